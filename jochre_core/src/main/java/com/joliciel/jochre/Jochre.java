@@ -60,7 +60,6 @@ import com.joliciel.jochre.analyser.ErrorLogger;
 import com.joliciel.jochre.analyser.FScoreObserver;
 import com.joliciel.jochre.analyser.ImageAnalyser;
 import com.joliciel.jochre.analyser.LetterAssigner;
-import com.joliciel.jochre.analyser.LetterGuessObserver;
 import com.joliciel.jochre.analyser.OriginalShapeLetterAssigner;
 import com.joliciel.jochre.analyser.SimpleLetterFScoreObserver;
 import com.joliciel.jochre.boundaries.BoundaryDetector;
@@ -99,11 +98,14 @@ import com.joliciel.jochre.letterGuesser.LetterValidator;
 import com.joliciel.jochre.letterGuesser.features.LetterFeature;
 import com.joliciel.jochre.letterGuesser.features.LetterFeatureParser;
 import com.joliciel.jochre.letterGuesser.features.LetterFeatureTester;
+import com.joliciel.jochre.lexicon.CompactLexicon;
 import com.joliciel.jochre.lexicon.CorpusLexiconBuilder;
+import com.joliciel.jochre.lexicon.Lexicon;
 import com.joliciel.jochre.lexicon.LexiconErrorWriter;
 import com.joliciel.jochre.lexicon.MostLikelyWordChooser;
 import com.joliciel.jochre.lexicon.TextFileLexicon;
 import com.joliciel.jochre.lexicon.UnknownWordListWriter;
+import com.joliciel.jochre.lexicon.WordFrequencyCache;
 import com.joliciel.jochre.output.AbbyyFineReader8Exporter;
 import com.joliciel.jochre.output.AltoXMLExporter;
 import com.joliciel.jochre.output.JochrePageByPageExporter;
@@ -210,6 +212,10 @@ public class Jochre {
           values.put("jochre.segmenter.target-short-dimension", Integer.parseInt(argValue));
         } else if (argName.equals("isCleanSegment")) {
           values.put("jochre.segmenter.is-clean-segment", Boolean.parseBoolean(argValue));
+        } else if (argName.equals("workerThreads")) {
+          values.put("jochre.document-generator.worker-threads", Integer.parseInt(argValue));
+        } else if (argName.equals("maxPagesInFlight")) {
+          values.put("jochre.document-generator.max-pages-in-flight", Integer.parseInt(argValue));
         } else {
           handled = false;
         }
@@ -594,6 +600,22 @@ public class Jochre {
             lexiconFile = new File(outputDir, baseName + ".obj");
           lexicon.serialize(lexiconFile);
         }
+      } else if (command.equals("compactLexicon")) {
+        if (outputDir == null && outputFile == null) {
+          throw new JochreException("Either outputDir our outputFile are required for " + command);
+        }
+
+        File inputFile = new File(inFilePath);
+        Lexicon lexicon = jochreSession.readLexicon(inputFile);
+
+        String baseName = inputFile.getName();
+        if (baseName.indexOf(".") > 0)
+          baseName = baseName.substring(0, baseName.indexOf("."));
+
+        File lexiconFile = outputFile;
+        if (lexiconFile == null)
+          lexiconFile = new File(outputDir, baseName + CompactLexicon.SUFFIX);
+        CompactLexicon.write(lexicon, jochreSession.getLocale(), lexiconFile);
       } else if (command.equals("analyseFolder")) {
         File inDir = new File(inDirPath);
         File[] pdfFiles = inDir.listFiles(new FilenameFilter() {
@@ -650,6 +672,10 @@ public class Jochre {
     } finally {
       long duration = System.currentTimeMillis() - startTime;
       LOG.info("Duration (ms):" + duration);
+      WordFrequencyCache wordFrequencyCache = jochreSession.getWordFrequencyCache();
+      if (wordFrequencyCache.getHitCount() + wordFrequencyCache.getMissCount() > 0)
+        LOG.info("Word frequency cache: " + wordFrequencyCache.getHitCount() + " hits, " + wordFrequencyCache.getMissCount()
+            + " misses, " + wordFrequencyCache.size() + " words");
     }
     LOG.info("#### finished #####");
   }
@@ -1108,36 +1134,8 @@ public class Jochre {
   private JochreDocumentGenerator getDocumentGenerator(String fileName, MostLikelyWordChooser wordChooser, Set<Integer> pages,
                                 List<DocumentObserver> observers, List<PdfImageObserver> imageObservers, boolean exitOnError) throws IOException {
 
-    ClassificationModel letterModel = jochreSession.getLetterModel();
-
-    List<String> letterFeatureDescriptors = letterModel.getFeatureDescriptors();
-    LetterFeatureParser letterFeatureParser = new LetterFeatureParser();
-    Set<LetterFeature<?>> letterFeatures = letterFeatureParser.getLetterFeatureSet(letterFeatureDescriptors);
-    LetterGuesser letterGuesser = new LetterGuesser(letterFeatures, letterModel.getDecisionMaker());
-    BoundaryDetector boundaryDetector = null;
-    LetterGuessObserver letterGuessObserver = null;
-
-    if (jochreSession.getSplitModel() != null && jochreSession.getMergeModel() != null) {
-      boundaryDetector = new DeterministicBoundaryDetector(jochreSession.getSplitModel(), jochreSession.getMergeModel(),
-          jochreSession);
-
-      OriginalShapeLetterAssigner shapeLetterAssigner = new OriginalShapeLetterAssigner();
-      shapeLetterAssigner.setEvaluate(false);
-      shapeLetterAssigner.setSingleLetterMethod(false);
-
-      letterGuessObserver = shapeLetterAssigner;
-    } else {
-      boundaryDetector = new OriginalBoundaryDetector();
-
-      LetterAssigner letterAssigner = new LetterAssigner();
-      letterGuessObserver = letterAssigner;
-    }
-
-    ImageAnalyser analyser = new BeamSearchImageAnalyser(boundaryDetector, letterGuesser, wordChooser, jochreSession);
-    analyser.addObserver(letterGuessObserver);
-
     JochreDocumentGenerator documentGenerator = new JochreDocumentGenerator(fileName, "", jochreSession, exitOnError);
-    documentGenerator.addDocumentObserver(analyser);
+    documentGenerator.requestAnalysis(wordChooser);
 
     for (DocumentObserver observer : observers)
       documentGenerator.addDocumentObserver(observer);
@@ -1428,6 +1426,7 @@ public class Jochre {
         case Alto3zip: {
           boolean zipped = (outputFormat == OutputFormat.Alto3zip);
           AltoXMLExporter observer = new AltoXMLExporter(outputDir, zipped, 3);
+          observer.setUseTemplates(jochreSession.getConfig().getBoolean("jochre.output.alto-templates"));
           observer.setBaseName(baseName);
           observer.setIncludeDate(includeDate);
           observers.add(observer);
@@ -1437,6 +1436,7 @@ public class Jochre {
         case Alto4zip: {
           boolean zipped = (outputFormat == OutputFormat.Alto3zip);
           AltoXMLExporter observer = new AltoXMLExporter(outputDir, zipped, 4);
+          observer.setUseTemplates(jochreSession.getConfig().getBoolean("jochre.output.alto-templates"));
           observer.setBaseName(baseName);
           observer.setIncludeDate(includeDate);
           observers.add(observer);
@@ -1533,6 +1533,7 @@ public class Jochre {
     MostLikelyWordChooser wordChooser = new MostLikelyWordChooser(jochreSession);
     List<DocumentObserver> documentObservers = new ArrayList<>();
     AltoXMLExporter altoXMLExporter = new AltoXMLExporter(writer, 4);
+    altoXMLExporter.setUseTemplates(jochreSession.getConfig().getBoolean("jochre.output.alto-templates"));
     documentObservers.add(altoXMLExporter);
     this.doCommandAnalyse(sourceFile, wordChooser, myPages, documentObservers, new ArrayList<>());
   }
@@ -1547,6 +1548,7 @@ public class Jochre {
     MostLikelyWordChooser wordChooser = new MostLikelyWordChooser(jochreSession);
     List<DocumentObserver> documentObservers = new ArrayList<>();
     AltoXMLExporter altoXMLExporter = new AltoXMLExporter(writer, 4);
+    altoXMLExporter.setUseTemplates(jochreSession.getConfig().getBoolean("jochre.output.alto-templates"));
     documentObservers.add(altoXMLExporter);
     JochreDocumentGenerator documentGenerator = this.getDocumentGenerator(fileName, wordChooser, myPages, documentObservers, new ArrayList<>(), true);
     ImageDocumentExtractor documentExtractor = new ImageDocumentExtractor(image, fileName, documentGenerator);
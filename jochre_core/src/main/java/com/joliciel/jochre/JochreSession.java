@@ -23,18 +23,23 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.nio.charset.Charset;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
 import java.util.zip.ZipInputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.joliciel.jochre.lang.Linguistics;
+import com.joliciel.jochre.lexicon.CompactLexicon;
 import com.joliciel.jochre.lexicon.DefaultLexiconWrapper;
 import com.joliciel.jochre.lexicon.FakeLexicon;
 import com.joliciel.jochre.lexicon.Lexicon;
 import com.joliciel.jochre.lexicon.LexiconMerger;
+import com.joliciel.jochre.lexicon.LexiconTrie;
 import com.joliciel.jochre.lexicon.TextFileLexicon;
+import com.joliciel.jochre.lexicon.WordFrequencyCache;
 import com.joliciel.talismane.machineLearning.ClassificationModel;
 import com.joliciel.talismane.machineLearning.MachineLearningModelFactory;
 import com.joliciel.talismane.utils.CSVFormatter;
@@ -58,6 +63,9 @@ public class JochreSession {
   private final Charset encoding;
   private final Charset csvEncoding;
   private final Lexicon lexicon;
+  private final WordFrequencyCache wordFrequencyCache;
+  private LexiconTrie lexiconTrie;
+  private ForkJoinPool labellingPool;
   private final String letterModelPath;
   private final String mergeModelPath;
   private final String splitModelPath;
@@ -102,11 +110,18 @@ public class JochreSession {
       String lexiconPath = jochreConfig.getString("lexicon");
       File lexiconDir = new File(lexiconPath);
       Lexicon myLexicon = this.readLexicon(lexiconDir);
-      this.lexicon = new DefaultLexiconWrapper(myLexicon, this.locale);
+      // compact lexicons already contain the upper-case variants for their
+      // locale
+      if (this.hasCaseVariants(myLexicon))
+        this.lexicon = myLexicon;
+      else
+        this.lexicon = new DefaultLexiconWrapper(myLexicon, this.locale);
     } else {
       this.lexicon = new FakeLexicon();
     }
 
+    this.wordFrequencyCache = new WordFrequencyCache(jochreConfig.getInt("word-chooser.frequency-cache-size"));
+
     String linguisticsClassName = jochreConfig.getString("linguistics.class");
     LOG.debug("linguisticsClassName: " + linguisticsClassName);
 
@@ -172,6 +187,27 @@ public class JochreSession {
     return csvEncoding;
   }
 
+  /**
+   * Is this lexicon a compact lexicon for the current locale, or a merger of
+   * such lexicons only, so that it needn't be wrapped to find the upper-case
+   * variants of each word?
+   */
+  private boolean hasCaseVariants(Lexicon lexicon) {
+    if (lexicon instanceof CompactLexicon)
+      return ((CompactLexicon) lexicon).getLocale().equals(this.locale);
+    if (lexicon instanceof LexiconMerger) {
+      List<Lexicon> lexicons = ((LexiconMerger) lexicon).getLexicons();
+      if (lexicons.isEmpty())
+        return false;
+      for (Lexicon mergedLexicon : lexicons) {
+        if (!this.hasCaseVariants(mergedLexicon))
+          return false;
+      }
+      return true;
+    }
+    return false;
+  }
+
   protected Lexicon readLexicon(File lexiconDir) {
     Lexicon myLexicon = null;
 
@@ -182,6 +218,8 @@ public class JochreSession {
         if (lexiconFile.getName().endsWith(".txt")) {
           TextFileLexicon textFileLexicon = new TextFileLexicon(lexiconFile, this.encoding);
           lexiconMerger.addLexicon(textFileLexicon);
+        } else if (lexiconFile.getName().endsWith(CompactLexicon.SUFFIX)) {
+          lexiconMerger.addLexicon(new CompactLexicon(lexiconFile));
         } else {
           Lexicon textFileLexicon = TextFileLexicon.deserialize(lexiconFile);
           lexiconMerger.addLexicon(textFileLexicon);
@@ -193,6 +231,8 @@ public class JochreSession {
       if (lexiconDir.getName().endsWith(".txt")) {
         TextFileLexicon textFileLexicon = new TextFileLexicon(lexiconDir, this.encoding);
         myLexicon = textFileLexicon;
+      } else if (lexiconDir.getName().endsWith(CompactLexicon.SUFFIX)) {
+        myLexicon = new CompactLexicon(lexiconDir);
       } else {
         Lexicon textFileLexicon = TextFileLexicon.deserialize(lexiconDir);
         myLexicon = textFileLexicon;
@@ -205,6 +245,35 @@ public class JochreSession {
     return this.lexicon;
   }
 
+  /**
+   * A cache of the lexicon frequencies found for each word, shared by all word
+   * choosers in this session.
+   */
+  public WordFrequencyCache getWordFrequencyCache() {
+    return wordFrequencyCache;
+  }
+
+  /**
+   * A prefix trie of the lexicon's words, built the first time it is
+   * requested.
+   */
+  public synchronized LexiconTrie getLexiconTrie() {
+    if (lexiconTrie == null)
+      lexiconTrie = new LexiconTrie(lexicon, locale, this.getLinguistics().getPunctuation());
+    return lexiconTrie;
+  }
+
+  /**
+   * The pool on which the segmenter labels connected components when
+   * jochre.segmenter.labelling-threads is greater than 1, created the first
+   * time it is requested and shared by all images analysed in this session.
+   */
+  public synchronized ForkJoinPool getLabellingPool() {
+    if (labellingPool == null)
+      labellingPool = new ForkJoinPool(config.getInt("jochre.segmenter.labelling-threads"));
+    return labellingPool;
+  }
+
   /**
    * Return the letter model indicated by the config path.
    * 
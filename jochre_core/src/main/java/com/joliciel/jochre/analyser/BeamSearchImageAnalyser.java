@@ -19,7 +19,9 @@
 package com.joliciel.jochre.analyser;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.PriorityQueue;
 import java.util.TreeMap;
@@ -38,8 +40,11 @@ import com.joliciel.jochre.graphics.JochreImage;
 import com.joliciel.jochre.graphics.Paragraph;
 import com.joliciel.jochre.graphics.RowOfShapes;
 import com.joliciel.jochre.graphics.Shape;
+import com.joliciel.jochre.letterGuesser.LetterGuessCache;
 import com.joliciel.jochre.letterGuesser.LetterGuesser;
 import com.joliciel.jochre.letterGuesser.LetterSequence;
+import com.joliciel.jochre.letterGuesser.LetterSequenceNode;
+import com.joliciel.jochre.lexicon.LexiconTrie;
 import com.joliciel.jochre.lexicon.MostLikelyWordChooser;
 import com.joliciel.talismane.machineLearning.Decision;
 import com.joliciel.talismane.utils.LogUtils;
@@ -49,7 +54,19 @@ import com.joliciel.talismane.utils.SimpleProgressMonitor;
 import com.typesafe.config.Config;
 
 /**
- * Perform a analysis using a beam search.
+ * Perform a analysis using a beam search.<br>
+ * <br>
+ * All state for a given image is held in an {@link ImageAnalysisState}
+ * confined to the analysing thread, so that a single analyser (and its
+ * underlying models) can be shared by concurrent threads via
+ * {@link #analyse(JochreImage, List)}, as long as each thread analyses a
+ * different image with its own observers.<br>
+ * <br>
+ * If <code>jochre.image-analyser.lexicon-prefix-check</code> is set, each
+ * word is checked against a {@link LexiconTrie} as its letters are guessed, and
+ * sequences whose words can't be completed to a lexicon word are down-weighted
+ * during the search, instead of only being rescored by the
+ * {@link MostLikelyWordChooser} at the end.
  * 
  * @author Assaf Urieli
  *
@@ -63,9 +80,8 @@ public class BeamSearchImageAnalyser implements ImageAnalyser, Monitorable {
 
   private final int beamWidth;
   private final double minOutcomeWeight;
-
-  private int shapeCount = 0;
-  private int totalShapeCount = -1;
+  private final LexiconTrie lexiconTrie;
+  private final double lexiconPrefixPenalty;
 
   private SimpleProgressMonitor currentMonitor;
 
@@ -91,6 +107,11 @@ public class BeamSearchImageAnalyser implements ImageAnalyser, Monitorable {
     Config imageAnalyserConfig = jochreSession.getConfig().getConfig("jochre.image-analyser");
     this.beamWidth = imageAnalyserConfig.getInt("beam-width");
     this.minOutcomeWeight = imageAnalyserConfig.getDouble("min-outcome-prob");
+    if (imageAnalyserConfig.getBoolean("lexicon-prefix-check") && jochreSession.getConfig().hasPath("jochre.lexicon"))
+      this.lexiconTrie = jochreSession.getLexiconTrie();
+    else
+      this.lexiconTrie = null;
+    this.lexiconPrefixPenalty = imageAnalyserConfig.getDouble("lexicon-prefix-penalty");
   }
 
   @Override
@@ -102,7 +123,28 @@ public class BeamSearchImageAnalyser implements ImageAnalyser, Monitorable {
     }
   }
 
+  /**
+   * Analyse an image, notifying the observers provided instead of this
+   * analyser's observers. May be called concurrently by several threads, as
+   * long as each one analyses a different image with its own observers.
+   */
+  public void analyse(JochreImage image, List<LetterGuessObserver> observers) {
+    this.analyseInternal(new ImageAnalysisState(image, observers, null));
+
+    for (LetterGuessObserver observer : observers) {
+      observer.onFinish();
+    }
+  }
+
   public void analyseInternal(JochreImage image) {
+    this.analyseInternal(new ImageAnalysisState(image, observers, currentMonitor));
+  }
+
+  private void analyseInternal(ImageAnalysisState state) {
+    JochreImage image = state.image;
+    List<LetterGuessObserver> observers = state.observers;
+    SimpleProgressMonitor currentMonitor = state.monitor;
+
     LOG.debug("Analysing image " + image.getId());
     if (currentMonitor != null) {
       currentMonitor.setCurrentAction("imageMonitor.analysingImage", new Object[] { image.getPage().getIndex() });
@@ -110,8 +152,6 @@ public class BeamSearchImageAnalyser implements ImageAnalyser, Monitorable {
     for (LetterGuessObserver observer : observers) {
       observer.onImageStart(image);
     }
-    if (totalShapeCount < 0)
-      totalShapeCount = image.getShapeCount();
 
     for (Paragraph paragraph : image.getParagraphs()) {
       LOG.debug("Analysing paragraph " + paragraph.getIndex() + " (id=" + paragraph.getId() + ")");
@@ -143,21 +183,28 @@ public class BeamSearchImageAnalyser implements ImageAnalyser, Monitorable {
           // Perform a beam search to guess the most likely sequence
           // for this
           // word
-          TreeMap<Integer, PriorityQueue<LetterSequence>> heaps = new TreeMap<>();
+          LetterGuessCache letterGuessCache = new LetterGuessCache();
+          TreeMap<Integer, PriorityQueue<LetterSequenceNode>> heaps = new TreeMap<>();
 
           // prime a starter heap with the n best shape boundary
           // analyses for
           // this group
-          PriorityQueue<LetterSequence> starterHeap = new PriorityQueue<>(1);
+          // the first word of a group continuing a hyphenated word from the
+          // previous row isn't checked against the lexicon
+          LexiconTrie.Prefix startPrefix = null;
+          if (lexiconTrie != null && holdoverSequences == null)
+            startPrefix = lexiconTrie.getRoot();
+
+          PriorityQueue<LetterSequenceNode> starterHeap = new PriorityQueue<>(1);
           for (ShapeSequence shapeSequence : shapeSequences) {
-            LetterSequence emptySequence = new LetterSequence(shapeSequence, jochreSession);
+            LetterSequenceNode emptySequence = new LetterSequenceNode(shapeSequence, startPrefix, jochreSession);
             starterHeap.add(emptySequence);
           }
           heaps.put(0, starterHeap);
 
-          PriorityQueue<LetterSequence> finalHeap = null;
+          PriorityQueue<LetterSequenceNode> finalHeap = null;
           while (heaps.size() > 0) {
-            Entry<Integer, PriorityQueue<LetterSequence>> heapEntry = heaps.pollFirstEntry();
+            Entry<Integer, PriorityQueue<LetterSequenceNode>> heapEntry = heaps.pollFirstEntry();
             if (LOG.isTraceEnabled())
               LOG.trace("heap for index: " + heapEntry.getKey().intValue() + ", width: " + width);
             if (heapEntry.getKey().intValue() == width) {
@@ -165,13 +212,38 @@ public class BeamSearchImageAnalyser implements ImageAnalyser, Monitorable {
               break;
             }
 
-            PriorityQueue<LetterSequence> previousHeap = heapEntry.getValue();
+            PriorityQueue<LetterSequenceNode> previousHeap = heapEntry.getValue();
 
             // limit the breadth to K
             int maxSequences = previousHeap.size() > this.beamWidth ? this.beamWidth : previousHeap.size();
 
+            List<LetterSequenceNode> histories = new ArrayList<>(maxSequences);
             for (int j = 0; j < maxSequences; j++) {
-              LetterSequence history = previousHeap.poll();
+              histories.add(previousHeap.poll());
+            }
+
+            // gather the histories advancing to the same shape, and guess them
+            // all at once
+            Map<ShapeInSequence, List<LetterSequenceNode>> historiesByShape = new IdentityHashMap<>();
+            for (LetterSequenceNode history : histories) {
+              ShapeInSequence shapeInSequence = history.getNextShape();
+              List<LetterSequenceNode> shapeHistories = historiesByShape.get(shapeInSequence);
+              if (shapeHistories == null) {
+                shapeHistories = new ArrayList<>();
+                historiesByShape.put(shapeInSequence, shapeHistories);
+              }
+              shapeHistories.add(history);
+            }
+
+            Map<LetterSequenceNode, List<Decision>> guessesByHistory = new IdentityHashMap<>();
+            for (Entry<ShapeInSequence, List<LetterSequenceNode>> shapeHistories : historiesByShape.entrySet()) {
+              List<List<Decision>> guesses = letterGuesser.guessLetters(shapeHistories.getKey(), shapeHistories.getValue(), letterGuessCache);
+              for (int j = 0; j < guesses.size(); j++) {
+                guessesByHistory.put(shapeHistories.getValue().get(j), guesses.get(j));
+              }
+            }
+
+            for (LetterSequenceNode history : histories) {
               ShapeInSequence shapeInSequence = history.getNextShape();
               Shape shape = shapeInSequence.getShape();
               if (LOG.isTraceEnabled()) {
@@ -184,21 +256,25 @@ public class BeamSearchImageAnalyser implements ImageAnalyser, Monitorable {
               } else {
                 position = group.getRight() - shape.getLeft() + 1;
               }
-              PriorityQueue<LetterSequence> heap = heaps.get(position);
+              PriorityQueue<LetterSequenceNode> heap = heaps.get(position);
               if (heap == null) {
                 heap = new PriorityQueue<>();
                 heaps.put(position, heap);
               }
 
-              letterGuesser.guessLetter(shapeInSequence, history);
+              List<Decision> letterGuesses = guessesByHistory.get(history);
 
               // heap sort
-              for (Decision letterGuess : shape.getLetterGuesses()) {
+              for (Decision letterGuess : letterGuesses) {
                 // leave out very low probability outcomes
                 if (letterGuess.getProbability() > this.minOutcomeWeight) {
-                  LetterSequence sequence = new LetterSequence(history);
-                  sequence.getLetters().add(letterGuess.getOutcome());
-                  sequence.addDecision(letterGuess);
+                  LetterSequenceNode sequence = null;
+                  if (lexiconTrie == null) {
+                    sequence = new LetterSequenceNode(history, letterGuess, letterGuesses);
+                  } else {
+                    LexiconTrie.Prefix prefix = lexiconTrie.extend(history.getLexiconPrefix(), letterGuess.getOutcome());
+                    sequence = new LetterSequenceNode(history, letterGuess, letterGuesses, prefix, lexiconPrefixPenalty);
+                  }
                   heap.add(sequence);
                 } // weight big enough to include
               } // next letter guess for this shape
@@ -206,6 +282,9 @@ public class BeamSearchImageAnalyser implements ImageAnalyser, Monitorable {
             } // next history in heap
           } // any more heaps?
 
+          state.letterGuessHits += letterGuessCache.getHits();
+          state.letterGuessMisses += letterGuessCache.getMisses();
+
           // find best sequence
           LetterSequence bestSequence = null;
           boolean isHoldover = false;
@@ -213,7 +292,16 @@ public class BeamSearchImageAnalyser implements ImageAnalyser, Monitorable {
           for (int i = 0; i < this.beamWidth; i++) {
             if (finalHeap.isEmpty())
               break;
-            finalSequences.add(finalHeap.poll());
+            LetterSequenceNode finalNode = finalHeap.poll();
+            LetterSequence finalSequence = finalNode.toLetterSequence();
+
+            // remember the guesses behind each decision, to store them in the
+            // shapes if this sequence is chosen
+            List<List<Decision>> letterGuesses = finalNode.getLetterGuesses();
+            for (int j = 0; j < letterGuesses.size(); j++) {
+              state.letterGuesses.put(finalSequence.getDecisions().get(j), letterGuesses.get(j));
+            }
+            finalSequences.add(finalSequence);
           }
 
           if (this.mostLikelyWordChooser == null) {
@@ -278,19 +366,29 @@ public class BeamSearchImageAnalyser implements ImageAnalyser, Monitorable {
 
             int i = 0;
             for (ShapeInSequence shapeInSequence : bestSequence.getUnderlyingShapeSequence()) {
+              // store the guesses which led to the best sequence in the shape
+              List<Decision> letterGuesses = state.letterGuesses.get(bestSequence.getDecisions().get(i));
+              if (letterGuesses != null) {
+                Shape shape = shapeInSequence.getShape();
+                shape.getLetterGuesses().clear();
+                shape.getLetterGuesses().addAll(letterGuesses);
+              }
               String bestOutcome = bestSequence.getLetters().get(i);
-              this.assignLetter(shapeInSequence, bestOutcome);
+              this.assignLetter(shapeInSequence, bestOutcome, observers);
               i++;
             } // next shape
 
             for (LetterGuessObserver observer : observers) {
               observer.onGuessSequence(bestSequence);
             }
+
+            if (holdoverSequences == null)
+              state.letterGuesses.clear();
           }
 
-          this.shapeCount += group.getShapes().size();
-          if (this.currentMonitor != null) {
-            double progress = (double) shapeCount / (double) totalShapeCount;
+          state.shapeCount += group.getShapes().size();
+          if (currentMonitor != null) {
+            double progress = (double) state.shapeCount / (double) state.totalShapeCount;
             LOG.debug("progress: " + progress);
             currentMonitor.setPercentComplete(progress);
           }
@@ -298,12 +396,15 @@ public class BeamSearchImageAnalyser implements ImageAnalyser, Monitorable {
       } // next row
     } // next paragraph
 
+    if (LOG.isDebugEnabled())
+      LOG.debug("Letter guesses for image " + image.getId() + ": " + state.letterGuessMisses + " calculated, " + state.letterGuessHits + " cached");
+
     for (LetterGuessObserver observer : observers) {
       observer.onImageEnd();
     }
   }
 
-  private void assignLetter(ShapeInSequence shapeInSequence, String bestGuess) {
+  private void assignLetter(ShapeInSequence shapeInSequence, String bestGuess, List<LetterGuessObserver> observers) {
     for (LetterGuessObserver observer : observers) {
       observer.onGuessLetter(shapeInSequence, bestGuess);
     }
@@ -363,4 +464,30 @@ public class BeamSearchImageAnalyser implements ImageAnalyser, Monitorable {
     }
   }
 
+  /**
+   * State for the analysis of a single image, confined to the analysing
+   * thread.
+   */
+  private static final class ImageAnalysisState {
+    private final JochreImage image;
+    private final List<LetterGuessObserver> observers;
+    private final SimpleProgressMonitor monitor;
+    private final int totalShapeCount;
+    private int shapeCount = 0;
+    private int letterGuessHits = 0;
+    private int letterGuessMisses = 0;
+
+    /**
+     * The full list of guesses from which each retained letter guess was
+     * taken, for the groups currently being analysed.
+     */
+    private final Map<Decision, List<Decision>> letterGuesses = new IdentityHashMap<>();
+
+    public ImageAnalysisState(JochreImage image, List<LetterGuessObserver> observers, SimpleProgressMonitor monitor) {
+      this.image = image;
+      this.observers = observers;
+      this.monitor = monitor;
+      this.totalShapeCount = image.getShapeCount();
+    }
+  }
 }
@@ -21,9 +21,16 @@ package com.joliciel.jochre.doc;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.imageio.ImageIO;
 
@@ -55,7 +62,16 @@ import com.typesafe.config.Config;
 
 /**
  * A utility interface to create and analyse JochreDocuments out of a source
- * file containing multiple pages and images (typically a PDF file).
+ * file containing multiple pages and images (typically a PDF file).<br>
+ * <br>
+ * If <code>jochre.document-generator.worker-threads</code> is greater than 1,
+ * each image is segmented and analysed on a pool of worker threads, each of
+ * which has its own {@link ImageAnalyser}. All {@link DocumentObserver}
+ * callbacks are nevertheless delivered on the calling thread, in page order, as
+ * soon as the corresponding page has been analysed. The number of pages held
+ * in memory at any one time is limited by
+ * <code>jochre.document-generator.max-pages-in-flight</code>. Progress
+ * monitoring is only available when images are processed sequentially.
  * 
  * @author Assaf Urieli
  *
@@ -81,6 +97,14 @@ public class JochreDocumentGenerator implements SourceFileProcessor, Monitorable
   private final JochreSession jochreSession;
   private final boolean exitOnError;
 
+  private final int workerThreads;
+  private final int maxPagesInFlight;
+  private ExecutorService executor = null;
+  private ThreadLocal<ImageAnalyser> workerAnalyser = null;
+  private final List<ImageAnalyser> workerAnalysers = Collections.synchronizedList(new ArrayList<>());
+  private final Deque<PendingEvent> pendingEvents = new ArrayDeque<>();
+  private int pagesInFlight = 0;
+
   /**
    * Constructor for existing documents.
    * 
@@ -91,6 +115,9 @@ public class JochreDocumentGenerator implements SourceFileProcessor, Monitorable
     this.jochreSession = jochreSession;
     this.doc = jochreDocument;
     this.exitOnError = false;
+    Config generatorConfig = jochreSession.getConfig().getConfig("jochre.document-generator");
+    this.workerThreads = generatorConfig.getInt("worker-threads");
+    this.maxPagesInFlight = generatorConfig.getInt("max-pages-in-flight");
   }
 
   /**
@@ -110,6 +137,9 @@ public class JochreDocumentGenerator implements SourceFileProcessor, Monitorable
     this.filename = filename;
     this.userFriendlyName = userFriendlyName;
     this.exitOnError = exitOnError;
+    Config generatorConfig = jochreSession.getConfig().getConfig("jochre.document-generator");
+    this.workerThreads = generatorConfig.getInt("worker-threads");
+    this.maxPagesInFlight = generatorConfig.getInt("max-pages-in-flight");
   }
 
   @Override
@@ -132,6 +162,11 @@ public class JochreDocumentGenerator implements SourceFileProcessor, Monitorable
       }
     }
 
+    if (this.isParallel() && executor == null) {
+      LOG.debug("Starting " + workerThreads + " worker threads");
+      executor = Executors.newFixedThreadPool(workerThreads);
+    }
+
     for (DocumentObserver observer : documentObservers)
       observer.onDocumentStart(this.doc);
 
@@ -141,6 +176,9 @@ public class JochreDocumentGenerator implements SourceFileProcessor, Monitorable
   @Override
   public void onDocumentComplete(JochreDocument doc) {
     LOG.debug("JochreDocumentGeneratorImpl.onDocumentComplete");
+    if (this.isParallel())
+      this.deliverPendingEvents(0);
+
     for (DocumentObserver observer : documentObservers)
       observer.onDocumentComplete(doc);
   }
@@ -148,6 +186,14 @@ public class JochreDocumentGenerator implements SourceFileProcessor, Monitorable
   @Override
   public void onAnalysisComplete() {
     LOG.debug("JochreDocumentGeneratorImpl.onAnalysisComplete");
+    if (executor != null) {
+      executor.shutdown();
+      executor = null;
+    }
+    synchronized (workerAnalysers) {
+      for (ImageAnalyser analyser : workerAnalysers)
+        analyser.onAnalysisComplete();
+    }
     for (DocumentObserver observer : documentObservers)
       observer.onAnalysisComplete();
   }
@@ -160,18 +206,44 @@ public class JochreDocumentGenerator implements SourceFileProcessor, Monitorable
   @Override
   public JochrePage onPageStart(int pageIndex) {
     LOG.debug("JochreDocumentGeneratorImpl.onPageStart(" + pageIndex + ")");
+    if (this.isParallel()) {
+      // wait until there's room for another page in memory
+      this.deliverPendingEvents(maxPagesInFlight);
+    }
+
     JochrePage jochrePage = this.doc.newPage();
     jochrePage.setIndex(pageIndex);
     if (save)
       jochrePage.save();
-    for (DocumentObserver observer : documentObservers)
-      observer.onPageStart(jochrePage);
+
+    if (this.isParallel()) {
+      pagesInFlight++;
+      pendingEvents.add(new PendingEvent(null, () -> {
+        for (DocumentObserver observer : documentObservers)
+          observer.onPageStart(jochrePage);
+      }));
+    } else {
+      for (DocumentObserver observer : documentObservers)
+        observer.onPageStart(jochrePage);
+    }
     return jochrePage;
   }
 
   @Override
   public void onPageComplete(JochrePage jochrePage) {
     LOG.debug("JochreDocumentGeneratorImpl.onPageComplete(" + jochrePage.getIndex() + ")");
+    if (this.isParallel()) {
+      pendingEvents.add(new PendingEvent(null, () -> {
+        this.completePage(jochrePage);
+        pagesInFlight--;
+      }));
+      this.deliverPendingEvents(maxPagesInFlight);
+    } else {
+      this.completePage(jochrePage);
+    }
+  }
+
+  private void completePage(JochrePage jochrePage) {
     for (DocumentObserver observer : documentObservers)
       observer.onPageComplete(jochrePage);
     jochrePage.clearMemory();
@@ -180,6 +252,10 @@ public class JochreDocumentGenerator implements SourceFileProcessor, Monitorable
   @Override
   public JochreImage onImageFound(JochrePage jochrePage, BufferedImage image, String imageName, int imageIndex) {
     LOG.debug("JochreDocumentGeneratorImpl.onImageFound");
+    if (this.isParallel()) {
+      return this.submitImage(jochrePage, image, imageName);
+    }
+
     try {
       int monitorableCount = 0;
       for (DocumentObserver observer : documentObservers) {
@@ -279,8 +355,146 @@ public class JochreDocumentGenerator implements SourceFileProcessor, Monitorable
     }
   }
 
+  /**
+   * Create the source image on the calling thread, and hand it over to a worker
+   * thread for segmentation and analysis. Observers will be notified once all
+   * previous pages have been delivered.
+   */
+  private JochreImage submitImage(JochrePage jochrePage, BufferedImage image, String imageName) {
+    LOG.debug("Creating source image object");
+    SourceImage sourceImage = jochrePage.newJochreImage(image, imageName + '.' + SUFFIX);
+
+    if (currentUser != null)
+      sourceImage.setOwner(currentUser);
+
+    Future<?> task = executor.submit(() -> {
+      this.segmentAndAnalyse(sourceImage, imageName);
+      return null;
+    });
+
+    pendingEvents.add(new PendingEvent(task, () -> {
+      for (DocumentObserver observer : documentObservers)
+        observer.onImageStart(sourceImage);
+      for (DocumentObserver observer : documentObservers)
+        observer.onImageComplete(sourceImage);
+    }));
+
+    this.deliverPendingEvents(maxPagesInFlight);
+    return sourceImage;
+  }
+
+  /**
+   * Segment, save and analyse a single image - runs on a worker thread.
+   */
+  private void segmentAndAnalyse(SourceImage sourceImage, String imageName) throws IOException {
+    LOG.debug("Segmenting image " + imageName);
+    Segmenter segmenter = new Segmenter(sourceImage, jochreSession);
+    segmenter.setDrawSegmentation(drawSegmentedImage);
+
+    try {
+      segmenter.segment();
+    } catch (SegmentationException se) {
+      LOG.error("segmentation failed", se);
+      sourceImage.clearSegmentation();
+      if (exitOnError) {
+        throw se;
+      }
+    }
+
+    if (drawSegmentedImage) {
+      BufferedImage segmentedImage = segmenter.getSegmentedImage();
+      File imageFile = new File(outputDirectory, imageName + "_seg.png");
+      LOG.debug("Writing segmented image to " + imageFile.getAbsolutePath());
+      ImageIO.write(segmentedImage, "PNG", imageFile);
+    }
+    sourceImage.setImageStatus(ImageStatus.AUTO_NEW);
+
+    if (save) {
+      LOG.debug("Saving image");
+      sourceImage.save();
+    }
+
+    if (workerAnalyser != null) {
+      ImageAnalyser analyser = workerAnalyser.get();
+      analyser.onImageStart(sourceImage);
+      analyser.onImageComplete(sourceImage);
+    }
+  }
+
+  /**
+   * Deliver pending observer events in order, for as long as they're ready,
+   * and beyond that until fewer than maxPages pages remain in flight. A
+   * maxPages of 0 delivers all pending events.
+   */
+  private void deliverPendingEvents(int maxPages) {
+    while (!pendingEvents.isEmpty()) {
+      PendingEvent event = pendingEvents.peekFirst();
+      if (pagesInFlight < maxPages && !event.isDone())
+        break;
+      pendingEvents.removeFirst();
+      try {
+        event.deliver();
+      } catch (RuntimeException e) {
+        pendingEvents.clear();
+        pagesInFlight = 0;
+        if (executor != null) {
+          executor.shutdownNow();
+          executor = null;
+        }
+        throw e;
+      }
+    }
+  }
+
+  private boolean isParallel() {
+    return workerThreads > 1;
+  }
+
+  /**
+   * An observer notification waiting for a worker task (if any) to complete.
+   */
+  private static final class PendingEvent {
+    private final Future<?> task;
+    private final Runnable delivery;
+
+    public PendingEvent(Future<?> task, Runnable delivery) {
+      this.task = task;
+      this.delivery = delivery;
+    }
+
+    public boolean isDone() {
+      return task == null || task.isDone();
+    }
+
+    public void deliver() {
+      if (task != null) {
+        try {
+          task.get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+          LOG.error("Failed to process image", e.getCause());
+          if (e.getCause() instanceof RuntimeException)
+            throw (RuntimeException) e.getCause();
+          throw new RuntimeException(e.getCause());
+        }
+      }
+      delivery.run();
+    }
+  }
+
+  /**
+   * Progress can only be monitored when images are processed sequentially,
+   * since the monitor follows a single image from segmentation to analysis.
+   * 
+   * @throws JochreException
+   *           if document-generator.worker-threads is greater than 1
+   */
   @Override
   public ProgressMonitor monitorTask() {
+    if (this.isParallel())
+      throw new JochreException("Cannot monitor progress with " + workerThreads + " worker threads: set jochre.document-generator.worker-threads to 1");
     currentMonitor = new MultiTaskProgressMonitor();
     return currentMonitor;
   }
@@ -338,6 +552,32 @@ public class JochreDocumentGenerator implements SourceFileProcessor, Monitorable
    * split/merge models.
    */
   public void requestAnalysis(MostLikelyWordChooser wordChooser) {
+    if (this.isParallel()) {
+      // load the models once on the calling thread, after which each worker
+      // thread builds its own analyser sharing the same models
+      this.loadModels();
+      workerAnalyser = ThreadLocal.withInitial(() -> {
+        ImageAnalyser analyser = this.newImageAnalyser(wordChooser);
+        workerAnalysers.add(analyser);
+        return analyser;
+      });
+    } else {
+      this.documentObservers.add(0, this.newImageAnalyser(wordChooser));
+    }
+  }
+
+  private void loadModels() {
+    try {
+      jochreSession.getLetterModel();
+      jochreSession.getSplitModel();
+      jochreSession.getMergeModel();
+    } catch (IOException e) {
+      LOG.error("Failed to load models", e);
+      throw new RuntimeException(e);
+    }
+  }
+
+  private ImageAnalyser newImageAnalyser(MostLikelyWordChooser wordChooser) {
     try {
       ClassificationModel letterModel = jochreSession.getLetterModel();
 
@@ -368,7 +608,7 @@ public class JochreDocumentGenerator implements SourceFileProcessor, Monitorable
       ImageAnalyser analyser = new BeamSearchImageAnalyser(boundaryDetector, letterGuesser, wordChooser, jochreSession);
       analyser.addObserver(observer);
 
-      this.documentObservers.add(0, analyser);
+      return analyser;
     } catch (Exception e) {
       LOG.error("Failed to load models", e);
       throw new RuntimeException(e);
@@ -0,0 +1,289 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.graphics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import com.joliciel.jochre.utils.graphics.BitPlane;
+
+/**
+ * Finds the 8-connected components of black pixels in a {@link BitPlane}, in
+ * a single top-to-bottom sweep.<br>
+ * Each row is broken up into horizontal runs of black pixels, and each run is
+ * joined (using union-find) to all runs it touches in the row above. A second
+ * pass over the runs then gives each component its bounding box and pixel
+ * count. All state is held in primitive arrays, so there is no allocation per
+ * run and no limit on component size.<br>
+ * Components are numbered in the order in which their first pixel is met when
+ * scanning the image top-to-bottom, left-to-right.<br>
+ * For large images, the rows can be divided into horizontal bands labelled in
+ * parallel, after which each band's runs are appended to the previous band's,
+ * joining the runs which touch across the band edge. The result is identical
+ * to a sequential sweep.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+final class ConnectedComponentLabeller {
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private int runCount = 0;
+  private int[] runStart = new int[INITIAL_CAPACITY];
+  private int[] runEnd = new int[INITIAL_CAPACITY];
+  private int[] runY = new int[INITIAL_CAPACITY];
+  private int[] parent = new int[INITIAL_CAPACITY];
+
+  private int componentCount = 0;
+  private int[] runComponent;
+  private int[] firstRun;
+  private int[] left;
+  private int[] top;
+  private int[] right;
+  private int[] bottom;
+  private int[] pixelCount;
+
+  private int lastRowStart = 0;
+  private int firstRowEnd = 0;
+
+  /**
+   * Label all components in the plane.
+   */
+  public ConnectedComponentLabeller(BitPlane plane) {
+    this(plane, 0, plane.getHeight());
+    this.resolve();
+  }
+
+  /**
+   * Label all components in the plane, dividing it into bands of at most
+   * bandHeight rows, labelled in parallel on the pool provided.
+   */
+  public ConnectedComponentLabeller(BitPlane plane, ForkJoinPool pool, int bandHeight) {
+    List<Callable<ConnectedComponentLabeller>> bands = new ArrayList<>();
+    for (int yStart = 0; yStart < plane.getHeight(); yStart += bandHeight) {
+      final int bandStart = yStart;
+      final int bandEnd = Math.min(yStart + bandHeight, plane.getHeight());
+      bands.add(() -> new ConnectedComponentLabeller(plane, bandStart, bandEnd));
+    }
+    boolean firstBand = true;
+    for (Future<ConnectedComponentLabeller> future : pool.invokeAll(bands)) {
+      ConnectedComponentLabeller band;
+      try {
+        band = future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SegmentationException(e);
+      } catch (ExecutionException e) {
+        throw new SegmentationException(e.getCause());
+      }
+      this.append(band, !firstBand);
+      firstBand = false;
+    }
+    this.resolve();
+  }
+
+  /**
+   * Find the runs in rows yStart (inclusive) to yEnd (exclusive), and join them
+   * to each other, without resolving the components.
+   */
+  private ConnectedComponentLabeller(BitPlane plane, int yStart, int yEnd) {
+    int previousRowStart = 0;
+    int previousRowEnd = 0;
+    for (int y = yStart; y < yEnd; y++) {
+      int rowStart = runCount;
+      for (int x = plane.nextBlack(0, y); x >= 0; x = plane.nextBlack(x, y)) {
+        int end = plane.nextWhite(x, y);
+        this.addRun(x, end, y);
+        x = end;
+      }
+      int rowEnd = runCount;
+      if (y > yStart)
+        this.joinRows(previousRowStart, previousRowEnd, rowStart, rowEnd);
+      else
+        firstRowEnd = rowEnd;
+      previousRowStart = rowStart;
+      previousRowEnd = rowEnd;
+    }
+    lastRowStart = previousRowStart;
+  }
+
+  /**
+   * Append the runs of the band directly beneath this one, optionally joining
+   * the runs touching across the edge between them.
+   */
+  private void append(ConnectedComponentLabeller band, boolean joinEdge) {
+    int offset = runCount;
+    this.ensureCapacity(runCount + band.runCount);
+    System.arraycopy(band.runStart, 0, runStart, offset, band.runCount);
+    System.arraycopy(band.runEnd, 0, runEnd, offset, band.runCount);
+    System.arraycopy(band.runY, 0, runY, offset, band.runCount);
+    for (int i = 0; i < band.runCount; i++)
+      parent[offset + i] = band.parent[i] + offset;
+    runCount += band.runCount;
+
+    if (joinEdge)
+      this.joinRows(lastRowStart, offset, offset, offset + band.firstRowEnd);
+    else
+      firstRowEnd = offset + band.firstRowEnd;
+    lastRowStart = offset + band.lastRowStart;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > runStart.length) {
+      int newCapacity = Math.max(capacity, runStart.length * 2);
+      runStart = Arrays.copyOf(runStart, newCapacity);
+      runEnd = Arrays.copyOf(runEnd, newCapacity);
+      runY = Arrays.copyOf(runY, newCapacity);
+      parent = Arrays.copyOf(parent, newCapacity);
+    }
+  }
+
+  private void addRun(int start, int end, int y) {
+    this.ensureCapacity(runCount + 1);
+    runStart[runCount] = start;
+    runEnd[runCount] = end;
+    runY[runCount] = y;
+    parent[runCount] = runCount;
+    runCount++;
+  }
+
+  /**
+   * Join each run in the current row to the runs in the previous row which
+   * touch it, including diagonally.
+   */
+  private void joinRows(int previousRowStart, int previousRowEnd, int rowStart, int rowEnd) {
+    int p = previousRowStart;
+    for (int c = rowStart; c < rowEnd; c++) {
+      // skip previous runs ending more than one pixel to the left of this run
+      while (p < previousRowEnd && runEnd[p] < runStart[c])
+        p++;
+      for (int q = p; q < previousRowEnd && runStart[q] <= runEnd[c]; q++)
+        this.union(q, c);
+    }
+  }
+
+  private int find(int run) {
+    while (parent[run] != run) {
+      parent[run] = parent[parent[run]];
+      run = parent[run];
+    }
+    return run;
+  }
+
+  /**
+   * Join two runs, always keeping the earlier root as the component's root, so
+   * that a component's root is its first run in scan order.
+   */
+  private void union(int run1, int run2) {
+    int root1 = this.find(run1);
+    int root2 = this.find(run2);
+    if (root1 < root2)
+      parent[root2] = root1;
+    else if (root2 < root1)
+      parent[root1] = root2;
+  }
+
+  private void resolve() {
+    runComponent = new int[runCount];
+    int rootCount = 0;
+    for (int i = 0; i < runCount; i++) {
+      if (this.find(i) == i)
+        rootCount++;
+    }
+    firstRun = new int[rootCount];
+    left = new int[rootCount];
+    top = new int[rootCount];
+    right = new int[rootCount];
+    bottom = new int[rootCount];
+    pixelCount = new int[rootCount];
+
+    for (int i = 0; i < runCount; i++) {
+      // roots always precede the other runs in their component
+      int root = this.find(i);
+      int component;
+      if (root == i) {
+        component = componentCount++;
+        firstRun[component] = i;
+        left[component] = runStart[i];
+        top[component] = runY[i];
+        right[component] = runEnd[i] - 1;
+        bottom[component] = runY[i];
+      } else {
+        component = runComponent[root];
+        if (runStart[i] < left[component])
+          left[component] = runStart[i];
+        if (runEnd[i] - 1 > right[component])
+          right[component] = runEnd[i] - 1;
+        bottom[component] = runY[i];
+      }
+      runComponent[i] = component;
+      pixelCount[component] += runEnd[i] - runStart[i];
+    }
+  }
+
+  /**
+   * The number of components found.
+   */
+  public int getComponentCount() {
+    return componentCount;
+  }
+
+  /**
+   * The x-coordinate of the component's first pixel in scan order.
+   */
+  public int getStartX(int component) {
+    return runStart[firstRun[component]];
+  }
+
+  /**
+   * The y-coordinate of the component's first pixel in scan order, which is
+   * also its top.
+   */
+  public int getStartY(int component) {
+    return runY[firstRun[component]];
+  }
+
+  public int getLeft(int component) {
+    return left[component];
+  }
+
+  public int getTop(int component) {
+    return top[component];
+  }
+
+  public int getRight(int component) {
+    return right[component];
+  }
+
+  public int getBottom(int component) {
+    return bottom[component];
+  }
+
+  /**
+   * The number of black pixels in the component.
+   */
+  public int getPixelCount(int component) {
+    return pixelCount[component];
+  }
+}
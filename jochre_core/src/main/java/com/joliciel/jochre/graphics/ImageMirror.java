@@ -18,33 +18,37 @@
 //////////////////////////////////////////////////////////////////////////////
 package com.joliciel.jochre.graphics;
 
+import com.joliciel.jochre.utils.graphics.BitPlane;
+
 /**
  * A mirror of a given image grid, used to store pixels that have already been
  * processed.
  */
 public class ImageMirror implements WritableImageGrid {
   private ImageGrid imageGrid;
-  private boolean[] pixels;
+  private BitPlane pixels;
 
   public ImageMirror(ImageGrid imageGrid) {
     this.imageGrid = imageGrid;
-    pixels = new boolean[imageGrid.getWidth() * imageGrid.getHeight()];
+    pixels = new BitPlane(imageGrid.getWidth(), imageGrid.getHeight());
   }
 
   @Override
   public void setPixel(int x, int y, int value) {
-    if (y * imageGrid.getWidth() + x < pixels.length) {
-      pixels[y * imageGrid.getWidth() + x] = (value != 0);
-    }
+    pixels.set(x, y, value != 0);
+  }
+
+  /**
+   * The pixels set so far, as a bit plane.
+   */
+  BitPlane getBitPlane() {
+    return pixels;
   }
 
   @Override
   public int getAbsolutePixel(int x, int y) {
-    if (x < 0 || y < 0 || x >= this.getWidth() || y >= this.getHeight())
-      return 0;
-    return pixels[y * imageGrid.getWidth() + x] ? 1 : 0;
+    return pixels.get(x, y) ? 1 : 0;
   }
-
   @Override
   public int getHeight() {
     return imageGrid.getHeight();
@@ -35,8 +35,8 @@ import com.joliciel.jochre.Entity;
 import com.joliciel.jochre.JochreSession;
 import com.joliciel.jochre.doc.DocumentDao;
 import com.joliciel.jochre.doc.JochrePage;
-import com.joliciel.jochre.utils.graphics.ImagePixelGrabber;
-import com.joliciel.jochre.utils.graphics.ImagePixelGrabberImpl;
+import com.joliciel.jochre.utils.graphics.BitPlane;
+import com.joliciel.jochre.utils.graphics.GreyscaleRaster;
 import com.joliciel.jochre.security.SecurityDao;
 import com.joliciel.jochre.security.User;
 import com.joliciel.talismane.utils.Monitorable;
@@ -74,7 +74,8 @@ public class JochreImage implements Entity, ImageGrid, Monitorable {
   boolean originalImageChanged = false;
   private BufferedImage originalImage = null;
   int shapeCount = -1;
-  private ImagePixelGrabber pixelGrabber;
+  private GreyscaleRaster pixelGrabber;
+  private Map<Integer, BitPlane> binaryPlanes = new HashMap<>();
 
   private double confidence = -1;
   ImageStatus imageStatus;
@@ -99,9 +100,13 @@ public class JochreImage implements Entity, ImageGrid, Monitorable {
     this.originalImage = originalImage;
   }
 
-  ImagePixelGrabber getPixelGrabber() {
+  /**
+   * A greyscale raster of the original image, shared by all shapes in this
+   * image.
+   */
+  GreyscaleRaster getPixelGrabber() {
     if (this.pixelGrabber == null) {
-      this.pixelGrabber = new ImagePixelGrabberImpl(this.getOriginalImage());
+      this.pixelGrabber = new GreyscaleRaster(this.getOriginalImage());
     }
     return this.pixelGrabber;
   }
@@ -134,10 +139,24 @@ public class JochreImage implements Entity, ImageGrid, Monitorable {
     if (x < 0 || y < 0 || x >= this.getWidth() || y >= this.getHeight())
       return false;
 
-    if (this.getPixel(x, y) <= threshold)
-      return true;
-    else
-      return false;
+    return this.getBinaryPlane(threshold).get(x, y);
+  }
+
+  /**
+   * The image binarised for a given threshold, where a pixel is black if its
+   * normalised brightness is &lt;= the threshold. Calculated once per
+   * threshold.
+   */
+  public BitPlane getBinaryPlane(int threshold) {
+    BitPlane binaryPlane = this.binaryPlanes.get(threshold);
+    if (binaryPlane == null) {
+      boolean[] blackValues = new boolean[256];
+      for (int i = 0; i < 256; i++)
+        blackValues[i] = this.normalize(i) <= threshold;
+      binaryPlane = new BitPlane(this.getPixelGrabber(), blackValues);
+      this.binaryPlanes.put(threshold, binaryPlane);
+    }
+    return binaryPlane;
   }
 
   /**
@@ -356,6 +375,7 @@ public class JochreImage implements Entity, ImageGrid, Monitorable {
     this.paragraphs = null;
     this.originalImage = null;
     this.pixelGrabber = null;
+    this.binaryPlanes = new HashMap<>();
     this.shapeMap = null;
     System.gc();
   }
@@ -394,11 +414,15 @@ public class JochreImage implements Entity, ImageGrid, Monitorable {
 
   public void setOriginalImage(BufferedImage originalImage) {
     this.originalImage = originalImage;
+    this.pixelGrabber = null;
+    this.binaryPlanes = new HashMap<>();
     originalImageChanged = true;
   }
 
   void setOriginalImageDB(BufferedImage originalImage) {
     this.originalImage = originalImage;
+    this.pixelGrabber = null;
+    this.binaryPlanes = new HashMap<>();
   }
 
   /**
@@ -36,6 +36,7 @@ import com.joliciel.jochre.JochreSession;
 import com.joliciel.jochre.stats.CardinalityComparator;
 import com.joliciel.jochre.stats.DBSCANClusterer;
 import com.joliciel.jochre.stats.MeanAbsoluteDeviation;
+import com.joliciel.jochre.utils.graphics.BitPlane;
 import com.joliciel.talismane.utils.Monitorable;
 import com.joliciel.talismane.utils.ProgressMonitor;
 import com.joliciel.talismane.utils.SimpleProgressMonitor;
@@ -59,17 +60,19 @@ public class Segmenter implements Monitorable {
 
   private final SourceImage sourceImage;
   private final JochreSession jochreSession;
-  private final int maxShapeStackSize;
 
   private final boolean clean;
+  private final int labellingThreads;
+  private final int labellingBandHeight;
 
   public Segmenter(SourceImage sourceImage, JochreSession jochreSession) {
     this.sourceImage = sourceImage;
     this.jochreSession = jochreSession;
     Config segmenterConfig = jochreSession.getConfig().getConfig("jochre.segmenter");
     drawSegmentation = segmenterConfig.getBoolean("draw-segmented-image");
-    maxShapeStackSize = segmenterConfig.getInt("max-shape-stack-size");
     clean = segmenterConfig.getBoolean("is-clean-segment");
+    labellingThreads = segmenterConfig.getInt("labelling-threads");
+    labellingBandHeight = segmenterConfig.getInt("labelling-band-height");
   }
 
   /**
@@ -740,25 +743,24 @@ public class Segmenter implements Monitorable {
     LOG.debug("########## findContiguousShapes #########");
     // As we get them out of the image grid, we write them to a writeable
     // grid so as to avoid duplicate extraction
-    WritableImageGrid mirror = new ImageMirror(sourceImage);
     Set<Shape> shapes = new TreeSet<Shape>(new ShapeTopToBottomComparator());
 
-    for (int y = 0; y < sourceImage.getHeight(); y++) {
-      for (int x = 0; x < sourceImage.getWidth(); x++) {
-        if (sourceImage.isPixelBlack(x, y, sourceImage.getSeparationThreshold())) {
-          // if this pixel has already been found, ignore it
-          if (mirror.getPixel(x, y) > 0)
-            continue;
-
-          // get the shape surrounding this pixel
-          Shape shape = this.getShape(sourceImage, mirror, x, y);
-          shapes.add(shape);
-          // List<Shape> splitShapes = this.getShapes(sourceImage,
-          // mirror, x, y);
-          // shapes.addAll(splitShapes);
-        }
-      }
+    BitPlane blackPixels = sourceImage.getBinaryPlane(sourceImage.getSeparationThreshold());
+    ConnectedComponentLabeller labeller;
+    if (labellingThreads > 1) {
+      labeller = new ConnectedComponentLabeller(blackPixels, jochreSession.getLabellingPool(), labellingBandHeight);
+    } else {
+      labeller = new ConnectedComponentLabeller(blackPixels);
+    }
+    for (int i = 0; i < labeller.getComponentCount(); i++) {
+      Shape shape = new Shape(sourceImage, labeller.getStartX(i), labeller.getStartY(i), jochreSession);
+      shape.setLeft(labeller.getLeft(i));
+      shape.setTop(labeller.getTop(i));
+      shape.setRight(labeller.getRight(i));
+      shape.setBottom(labeller.getBottom(i));
+      shapes.add(shape);
     }
+    LOG.debug("Found " + shapes.size() + " shapes");
     return shapes;
   }
 
@@ -3099,18 +3101,17 @@ public class Segmenter implements Monitorable {
     // 0 0 x x x x
     // so we have to go up and to the left to keep finding contiguous black
     // pixels.
-    Stack<int[]> segmentStack = new Stack<int[]>();
-    segmentStack.push(new int[] { xMin, xMax, y });
-
-    while (!segmentStack.isEmpty()) {
-      if (segmentStack.size() > maxShapeStackSize) {
-        throw new SegmentationException("While finding contiguous shapes, stack to large");
-      }
-      
-      int[] segment = segmentStack.pop();
-      xMin = segment[0];
-      xMax = segment[1];
-      y = segment[2];
+    // segments are stored as consecutive triplets {xMin, xMax, y}
+    int[] segmentStack = new int[3 * 64];
+    int stackSize = 0;
+    segmentStack[stackSize++] = xMin;
+    segmentStack[stackSize++] = xMax;
+    segmentStack[stackSize++] = y;
+
+    while (stackSize > 0) {
+      y = segmentStack[--stackSize];
+      xMax = segmentStack[--stackSize];
+      xMin = segmentStack[--stackSize];
       if (LOG.isTraceEnabled()) {
         LOG.trace("Popping next segment, xMin=" + xMin + ", xMax=" + xMax + ", y=" +y);
       }
@@ -3165,17 +3166,25 @@ public class Segmenter implements Monitorable {
                   break;
                 }
               }
-              segmentStack.push(new int[]{currentStart, xEnd, rely});
+              if (stackSize + 3 > segmentStack.length)
+                segmentStack = Arrays.copyOf(segmentStack, segmentStack.length * 2);
+              segmentStack[stackSize++] = currentStart;
+              segmentStack[stackSize++] = xEnd;
+              segmentStack[stackSize++] = rely;
               if (LOG.isTraceEnabled()) {
-                LOG.trace("At xMax pushed " + Arrays.toString(segmentStack.peek()));
+                LOG.trace("At xMax pushed " + currentStart + ", " + xEnd + ", " + rely);
               }
             }
           } else {
             if (inBlack) {
               // end of the previous segment
-              segmentStack.push(new int[]{currentStart, relx, rely});
+              if (stackSize + 3 > segmentStack.length)
+                segmentStack = Arrays.copyOf(segmentStack, segmentStack.length * 2);
+              segmentStack[stackSize++] = currentStart;
+              segmentStack[stackSize++] = relx;
+              segmentStack[stackSize++] = rely;
               if (LOG.isTraceEnabled()) {
-                LOG.trace("End of segment, pushed" + Arrays.toString(segmentStack.peek()));
+                LOG.trace("End of segment, pushed " + currentStart + ", " + relx + ", " + rely);
               }
               inBlack = false;
             }
@@ -23,10 +23,8 @@ import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collection;
-import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -42,7 +40,8 @@ import com.joliciel.jochre.JochreSession;
 import com.joliciel.jochre.boundaries.BoundaryDao;
 import com.joliciel.jochre.boundaries.Split;
 import com.joliciel.jochre.utils.graphics.ImagePixelGrabber;
-import com.joliciel.jochre.utils.graphics.ImagePixelGrabberImpl;
+import com.joliciel.jochre.utils.graphics.BitPlane;
+import com.joliciel.jochre.utils.graphics.GreyscaleRaster;
 import com.joliciel.talismane.machineLearning.Decision;
 import com.joliciel.talismane.machineLearning.features.Feature;
 import com.joliciel.talismane.machineLearning.features.FeatureResult;
@@ -117,8 +116,9 @@ public class Shape implements ImageGrid, Entity, Rectangle, ShapeWrapper, HasFea
 
   private Map<String, FeatureResult<?>> featureResults = new HashMap<String, FeatureResult<?>>();
 
-  private Dictionary<String, BitSet> bitsets = new Hashtable<String, BitSet>();
-  private Dictionary<Integer, BitSet> outlines = new Hashtable<Integer, BitSet>();
+  private Map<Integer, BitPlane> binaryPlanes = new HashMap<>();
+  private Map<Integer, BitSet> bitsets = new HashMap<>();
+  private Map<Integer, BitSet> outlines = new HashMap<>();
 
   private int[] brightnessCounts;
   private boolean blackAndWhite = false;
@@ -920,31 +920,41 @@ public class Shape implements ImageGrid, Entity, Rectangle, ShapeWrapper, HasFea
   public boolean isPixelBlack(int x, int y, int threshold, int whiteGapFillFactor) {
     if (x < 0 || y < 0 || x >= this.getWidth() || y >= this.getHeight())
       return false;
+    if (whiteGapFillFactor == 0)
+      return this.getBinaryPlane(threshold).get(x, y);
     BitSet bitset = this.getBlackAndWhiteBitSet(threshold, whiteGapFillFactor);
     return bitset.get(y * this.getWidth() + x);
   }
 
+  /**
+   * This shape binarised for a given brightness threshold, where pixels &lt;=
+   * the threshold are black. If the shape's pixels are read from its
+   * containing image, this is taken directly from the image's binary plane.
+   */
+  public BitPlane getBinaryPlane(int threshold) {
+    BitPlane binaryPlane = this.binaryPlanes.get(threshold);
+    if (binaryPlane == null) {
+      if (this.image == null && this.jochreImage != null) {
+        binaryPlane = this.jochreImage.getBinaryPlane(threshold).getRegion(this.getLeft(), this.getTop(), this.getWidth(), this.getHeight());
+      } else {
+        binaryPlane = new BitPlane(this.getWidth(), this.getHeight());
+        for (int y = 0; y < this.getHeight(); y++)
+          for (int x = 0; x < this.getWidth(); x++)
+            binaryPlane.set(x, y, this.getPixel(x, y) <= threshold);
+      }
+      this.binaryPlanes.put(threshold, binaryPlane);
+    }
+    return binaryPlane;
+  }
+
   /**
    * Return a BitSet representation of this shape for a given brightness
-   * threshold and given white gap fill factor. See
-   * {@link #isPixelBlack(int, int, int, int)} for details on how we determine
-   * if a given bit is true or false. The BitSet structured from top-left to
-   * bottom-right, travelling horizontally first.
+   * threshold. See {@link #isPixelBlack(int, int, int, int)} for details on how
+   * we determine if a given bit is true or false. The BitSet structured from
+   * top-left to bottom-right, travelling horizontally first.
    */
   public BitSet getBlackAndWhiteBitSet(int threshold) {
-    String key = "" + threshold;
-    BitSet bitset = this.bitsets.get(key);
-    if (bitset == null) {
-      bitset = new BitSet(this.getWidth() * this.getHeight());
-      int counter = 0;
-      for (int j = 0; j < this.getHeight(); j++)
-        for (int i = 0; i < this.getWidth(); i++) {
-          int pixel = this.getPixel(i, j);
-          bitset.set(counter++, pixel <= threshold);
-        }
-      this.bitsets.put(key, bitset);
-    }
-    return bitset;
+    return this.getBlackAndWhiteBitSet(threshold, 0);
   }
 
   /**
@@ -955,18 +965,19 @@ public class Shape implements ImageGrid, Entity, Rectangle, ShapeWrapper, HasFea
    * bottom-right, travelling horizontally first.
    */
   public BitSet getBlackAndWhiteBitSet(int threshold, int whiteGapFillFactor) {
-    String key = threshold + "|" + whiteGapFillFactor;
+    // thresholds are brightness values from 0 to 255
+    int key = whiteGapFillFactor * 256 + threshold;
     BitSet bitset = this.bitsets.get(key);
     if (bitset == null) {
-      bitset = this.getBlackAndWhiteBitSet(threshold);
       // if the image is black-and-white, fill in any bits
       // that may have been emptied during the scan
       if (whiteGapFillFactor > 0 && this.isBlackAndWhite()) {
         ShapeFiller shapeFiller = new ShapeFiller();
         bitset = shapeFiller.fillShape(this, threshold, whiteGapFillFactor);
-
-      } else {
+      } else if (whiteGapFillFactor > 0) {
         bitset = this.getBlackAndWhiteBitSet(threshold);
+      } else {
+        bitset = this.getBinaryPlane(threshold).toBitSet();
       }
       this.bitsets.put(key, bitset);
     }
@@ -979,20 +990,7 @@ public class Shape implements ImageGrid, Entity, Rectangle, ShapeWrapper, HasFea
   public BitSet getOutline(int threshold) {
     BitSet outline = this.outlines.get(threshold);
     if (outline == null) {
-      outline = new BitSet(this.getHeight() * this.getWidth());
-      int counter = 0;
-      for (int y = 0; y < this.getHeight(); y++) {
-        for (int x = 0; x < this.getWidth(); x++) {
-          boolean black = this.isPixelBlack(x, y, threshold);
-          if (!black)
-            outline.set(counter++, false);
-          else {
-            boolean innerPixel = this.isPixelBlack(x - 1, y, threshold) && this.isPixelBlack(x + 1, y, threshold)
-                && this.isPixelBlack(x, y - 1, threshold) && this.isPixelBlack(x, y + 1, threshold);
-            outline.set(counter++, !innerPixel);
-          } // is it black?
-        } // next x
-      } // next y
+      outline = this.getBinaryPlane(threshold).getOutline().toBitSet();
       this.outlines.put(threshold, outline);
     }
     return outline;
@@ -1064,8 +1062,9 @@ public class Shape implements ImageGrid, Entity, Rectangle, ShapeWrapper, HasFea
     brightnessBySectorMap = new HashMap<String, Map<SectionBrightnessMeasurementMethod, double[][]>>();
     brightnessMeanBySectorMap = new HashMap<String, Map<SectionBrightnessMeasurementMethod, Double>>();
 
-    bitsets = new Hashtable<String, BitSet>();
-    outlines = new Hashtable<Integer, BitSet>();
+    binaryPlanes = new HashMap<>();
+    bitsets = new HashMap<>();
+    outlines = new HashMap<>();
 
     brightnessCounts = null;
 
@@ -1085,7 +1084,9 @@ public class Shape implements ImageGrid, Entity, Rectangle, ShapeWrapper, HasFea
    */
   public BufferedImage getImage() {
     if (image == null && this.jochreImage != null) {
-      image = this.jochreImage.getOriginalImage().getSubimage(this.getLeft(), this.getTop(), this.getWidth(), this.getHeight());
+      // the sub-image shares the original image's pixels, so we don't keep it:
+      // pixels continue to be read from the containing image's raster
+      return this.jochreImage.getOriginalImage().getSubimage(this.getLeft(), this.getTop(), this.getWidth(), this.getHeight());
     }
     return image;
   }
@@ -1094,9 +1095,16 @@ public class Shape implements ImageGrid, Entity, Rectangle, ShapeWrapper, HasFea
     this.image = image;
   }
 
+  /**
+   * Pixels for this shape: a view on the containing image's raster, or a
+   * raster of its own if the shape's image was loaded separately.
+   */
   ImagePixelGrabber getPixelGrabber() {
     if (this.pixelGrabber == null) {
-      this.pixelGrabber = new ImagePixelGrabberImpl(this.getImage());
+      if (this.image == null && this.jochreImage != null)
+        this.pixelGrabber = this.jochreImage.getPixelGrabber().getView(this.getLeft(), this.getTop(), this.getWidth(), this.getHeight());
+      else
+        this.pixelGrabber = new GreyscaleRaster(this.getImage());
     }
     return this.pixelGrabber;
   }
@@ -21,7 +21,6 @@ package com.joliciel.jochre.graphics;
 import java.awt.Color;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
-import java.awt.image.RescaleOp;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -122,12 +121,6 @@ public class SourceImage extends JochreImage implements ImageGrid {
 
     this.name = name;
 
-    // increase contrast for grayscale images, to help with segmentation
-    // the original image will be restored again after segmentation with a
-    // call to restoreOriginalImage()
-    // Note: decided it's better not to restore the original image
-    imageBackup = ImageUtils.deepCopy(image);
-
     this.saveImage(image, "png", new File("data/original.png"));
 
 
@@ -161,20 +154,20 @@ public class SourceImage extends JochreImage implements ImageGrid {
     }
 
     this.saveImage(initialImage, "png", new File("data/scaled.png"));
-    
-    BufferedImage rgb = ImageUtils.indexedToRGB(initialImage);
-    this.saveImage(rgb, "png", new File("data/rgb.png"));
-
-    RescaleOp op = new RescaleOp(1.2f, 15f, null);
-    BufferedImage brighter = op.filter(rgb, rgb);
-    this.saveImage(brighter, "png", new File("data/brighter.png"));
 
-    BufferedImage greyImage = ImageUtils.toGreyscale(brighter);
-    this.saveImage(greyImage, "png", new File("data/grey.png"));
-
-    BufferedImage equalizedImage = OpenCVUtils.equalizeImage(greyImage);
+    // brighten, convert to greyscale and equalise in a single pipeline,
+    // leaving the source image untouched
+    BufferedImage equalizedImage = ImageUtils.toEqualisedGreyscale(initialImage, 1.2f, 15f);
     this.saveImage(equalizedImage, "png", new File("data/equalized.png"));
 
+    // the original image is restored after analysis with a call to
+    // restoreOriginalSize(). If the image was scaled down we always need it.
+    boolean keepOriginalImage = segmenterConfig.getBoolean("keep-original-image");
+    if (keepOriginalImage || initialImage != image)
+      imageBackup = image;
+    else
+      imageBackup = null;
+
     this.setOriginalImage(equalizedImage);
 
     this.setWidth(equalizedImage.getWidth());
@@ -1076,15 +1069,27 @@ public class SourceImage extends JochreImage implements ImageGrid {
     if (this.isRescaled()) {
       double reverseScale = 1.0 / this.scale;
       this.rescale(reverseScale);
-      this.setOriginalImage(imageBackup);
-      this.calculateThresholds(false);
-      this.setWidth(imageBackup.getWidth());
-      this.setHeight(imageBackup.getHeight());
+      if (imageBackup != null) {
+        this.setOriginalImage(imageBackup);
+        this.calculateThresholds(false);
+        this.setWidth(imageBackup.getWidth());
+        this.setHeight(imageBackup.getHeight());
+      }
       this.scale = 0.0;
     }
   }
 
+  /**
+   * Replace the preprocessed image by the image as originally provided.
+   * 
+   * @throws IllegalStateException
+   *           if the original image wasn't kept, because
+   *           jochre.segmenter.keep-original-image is false and the image
+   *           wasn't scaled
+   */
   public void restoreOriginalImage() {
+    if (imageBackup == null)
+      throw new IllegalStateException("Original image not kept for " + this.getName() + ": set jochre.segmenter.keep-original-image to true");
     this.setOriginalImage(imageBackup);
     this.calculateThresholds(false);
   }
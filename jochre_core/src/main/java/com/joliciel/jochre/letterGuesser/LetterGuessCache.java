@@ -0,0 +1,89 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.letterGuesser;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.joliciel.jochre.boundaries.ShapeInSequence;
+import com.joliciel.talismane.machineLearning.Decision;
+import com.joliciel.talismane.machineLearning.features.FeatureResult;
+
+/**
+ * Memoizes letter guesser work across the various histories of a beam search
+ * for a single group of shapes. Results for features which don't depend on the
+ * history are stored once per shape in sequence, while letter guesses are
+ * stored per shape in sequence and history-dependent feature results (e.g. the
+ * n-gram preceding the shape).<br>
+ * <br>
+ * Not thread-safe: a cache should be confined to the thread analysing the
+ * group.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public class LetterGuessCache {
+  private final Map<ShapeInSequence, FeatureResult<?>[]> intrinsicResults = new IdentityHashMap<>();
+  private final Map<ShapeInSequence, Map<String, List<Decision>>> letterGuesses = new IdentityHashMap<>();
+  private int hits = 0;
+  private int misses = 0;
+
+  FeatureResult<?>[] getIntrinsicResults(ShapeInSequence shapeInSequence) {
+    return intrinsicResults.get(shapeInSequence);
+  }
+
+  void putIntrinsicResults(ShapeInSequence shapeInSequence, FeatureResult<?>[] results) {
+    intrinsicResults.put(shapeInSequence, results);
+  }
+
+  List<Decision> getLetterGuesses(ShapeInSequence shapeInSequence, String historyKey) {
+    Map<String, List<Decision>> guessesByHistory = letterGuesses.get(shapeInSequence);
+    List<Decision> guesses = guessesByHistory == null ? null : guessesByHistory.get(historyKey);
+    if (guesses == null)
+      misses++;
+    else
+      hits++;
+    return guesses;
+  }
+
+  void putLetterGuesses(ShapeInSequence shapeInSequence, String historyKey, List<Decision> guesses) {
+    Map<String, List<Decision>> guessesByHistory = letterGuesses.get(shapeInSequence);
+    if (guessesByHistory == null) {
+      guessesByHistory = new HashMap<>();
+      letterGuesses.put(shapeInSequence, guessesByHistory);
+    }
+    guessesByHistory.put(historyKey, guesses);
+  }
+
+  /**
+   * The number of letter guesses retrieved from the cache.
+   */
+  public int getHits() {
+    return hits;
+  }
+
+  /**
+   * The number of letter guesses which had to be calculated.
+   */
+  public int getMisses() {
+    return misses;
+  }
+}
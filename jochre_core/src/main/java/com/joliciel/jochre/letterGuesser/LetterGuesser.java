@@ -21,6 +21,7 @@ package com.joliciel.jochre.letterGuesser;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,7 +35,12 @@ import com.joliciel.talismane.machineLearning.features.FeatureResult;
 import com.joliciel.talismane.machineLearning.features.RuntimeEnvironment;
 
 /**
- * Guesses the letters for a given shape.
+ * Guesses the letters for a given shape.<br>
+ * <br>
+ * The letter guesser holds no state of its own beyond its features and
+ * decision maker, so that a single instance can be shared by several threads,
+ * as long as {@link #guessLetters(ShapeInSequence, LetterSequence)} is used and
+ * each thread analyses different shapes.
  * 
  * @author Assaf Urieli
  *
@@ -45,11 +51,16 @@ public class LetterGuesser {
   private static final double MIN_PROB_TO_STORE = 0.001;
 
   private final DecisionMaker decisionMaker;
-  private final Set<LetterFeature<?>> features;
+  private final List<LetterFeature<?>> features;
+  private final boolean[] historyDependent;
 
   public LetterGuesser(Set<LetterFeature<?>> features, DecisionMaker decisionMaker) {
     this.decisionMaker = decisionMaker;
-    this.features = features;
+    this.features = new ArrayList<>(features);
+    this.historyDependent = new boolean[this.features.size()];
+    for (int i = 0; i < this.features.size(); i++) {
+      this.historyDependent[i] = this.features.get(i).isHistoryDependent();
+    }
   }
 
   public String guessLetter(ShapeInSequence shapeInSequence) {
@@ -65,16 +76,116 @@ public class LetterGuesser {
    */
   public String guessLetter(ShapeInSequence shapeInSequence, LetterSequence history) {
     Shape shape = shapeInSequence.getShape();
+    List<Decision> letterGuesses = this.guessLetters(shapeInSequence, history);
+
+    // store outcomes
+    shape.getLetterGuesses().clear();
+    shape.getLetterGuesses().addAll(letterGuesses);
+
+    String bestOutcome = letterGuesses.get(0).getOutcome();
+
+    if (LOG.isTraceEnabled()) {
+      LOG.trace("Shape: " + shape);
+      LOG.trace("Letter: " + shape.getLetter());
+      LOG.trace("Best outcome: " + bestOutcome);
+    }
+
+    return bestOutcome;
+  }
+
+  /**
+   * Analyses this shape, using the context provided for features that are not
+   * intrinsic, without storing the outcomes in the shape.
+   * 
+   * @return all outcomes above a certain threshold of probability, from most
+   *         to least likely.
+   */
+  public List<Decision> guessLetters(ShapeInSequence shapeInSequence, LetterSequence history) {
+    return this.guessLetters(shapeInSequence, history, null);
+  }
+
+  /**
+   * Same as {@link #guessLetters(ShapeInSequence, LetterSequence)}, but
+   * re-using any results already calculated for this shape in sequence with a
+   * different history, as long as the history-dependent features give the same
+   * results.
+   * 
+   * @param cache
+   *            the cache for the group being analysed, or null if no caching
+   *            is required
+   */
+  public List<Decision> guessLetters(ShapeInSequence shapeInSequence, LetterSequence history, LetterGuessCache cache) {
+    return this.guessLetters(new LetterGuesserContext(shapeInSequence, history), cache);
+  }
+
+  /**
+   * Same as {@link #guessLetters(ShapeInSequence, LetterSequence, LetterGuessCache)},
+   * for a history represented by a beam search node.
+   */
+  public List<Decision> guessLetters(ShapeInSequence shapeInSequence, LetterSequenceNode history, LetterGuessCache cache) {
+    return this.guessLetters(new LetterGuesserContext(shapeInSequence, history), cache);
+  }
+
+  private List<Decision> guessLetters(LetterGuesserContext context, LetterGuessCache cache) {
+    FeatureResult<?>[] intrinsicResults = this.getIntrinsicResults(context, cache);
+    return this.guessLetters(context, intrinsicResults, cache);
+  }
+
+  /**
+   * The results of the features which don't depend on the history, taken from
+   * the cache if they were already analysed for this shape in sequence. Results
+   * for history-dependent features are left empty.
+   */
+  private FeatureResult<?>[] getIntrinsicResults(LetterGuesserContext context, LetterGuessCache cache) {
+    ShapeInSequence shapeInSequence = context.getShapeInSequence();
+    FeatureResult<?>[] intrinsicResults = cache == null ? null : cache.getIntrinsicResults(shapeInSequence);
+    if (intrinsicResults == null) {
+      intrinsicResults = new FeatureResult<?>[features.size()];
+      for (int i = 0; i < features.size(); i++) {
+        if (!historyDependent[i]) {
+          RuntimeEnvironment env = new RuntimeEnvironment();
+          intrinsicResults[i] = features.get(i).check(context, env);
+        }
+      }
+      if (cache != null)
+        cache.putIntrinsicResults(shapeInSequence, intrinsicResults);
+    }
+    return intrinsicResults;
+  }
+
+  /**
+   * Analyse the history-dependent features only, and combine them with the
+   * intrinsic results already analysed for this shape in sequence.
+   */
+  private List<Decision> guessLetters(LetterGuesserContext context, FeatureResult<?>[] intrinsicResults, LetterGuessCache cache) {
+    ShapeInSequence shapeInSequence = context.getShapeInSequence();
     if (LOG.isTraceEnabled())
-      LOG.trace("guessLetter, shape: " + shape);
+      LOG.trace("guessLetters, shape: " + shapeInSequence.getShape());
+
+    FeatureResult<?>[] historyResults = new FeatureResult<?>[features.size()];
+    StringBuilder historyKey = new StringBuilder();
+    for (int i = 0; i < features.size(); i++) {
+      if (historyDependent[i]) {
+        RuntimeEnvironment env = new RuntimeEnvironment();
+        FeatureResult<?> featureResult = features.get(i).check(context, env);
+        historyResults[i] = featureResult;
+        historyKey.append(i).append('=');
+        if (featureResult != null)
+          historyKey.append(featureResult.getOutcome());
+        historyKey.append('\u0000');
+      }
+    }
 
-    List<FeatureResult<?>> featureResults = new ArrayList<FeatureResult<?>>();
+    String key = historyKey.toString();
+    if (cache != null) {
+      List<Decision> cachedGuesses = cache.getLetterGuesses(shapeInSequence, key);
+      if (cachedGuesses != null)
+        return cachedGuesses;
+    }
 
-    // analyse features
-    for (LetterFeature<?> feature : features) {
-      LetterGuesserContext context = new LetterGuesserContext(shapeInSequence, history);
-      RuntimeEnvironment env = new RuntimeEnvironment();
-      FeatureResult<?> featureResult = feature.check(context, env);
+    List<FeatureResult<?>> featureResults = new ArrayList<FeatureResult<?>>(features.size());
+    for (int i = 0; i < features.size(); i++) {
+      FeatureResult<?> featureResult = historyDependent[i] ? historyResults[i] : intrinsicResults[i];
       if (featureResult != null) {
         featureResults.add(featureResult);
         if (LOG.isTraceEnabled()) {
@@ -83,27 +194,48 @@ public class LetterGuesser {
       }
     }
 
-    List<Decision> letterGuesses = decisionMaker.decide(featureResults);
+    List<Decision> decisions = decisionMaker.decide(featureResults);
 
-    // store outcomes
-    String bestOutcome = null;
-    shape.getLetterGuesses().clear();
-
-    for (Decision letterGuess : letterGuesses) {
+    TreeSet<Decision> letterGuesses = new TreeSet<>();
+    for (Decision letterGuess : decisions) {
       if (letterGuess.getProbability() >= MIN_PROB_TO_STORE) {
-        shape.getLetterGuesses().add(letterGuess);
+        letterGuesses.add(letterGuess);
       }
     }
 
-    bestOutcome = shape.getLetterGuesses().iterator().next().getOutcome();
+    List<Decision> guesses = new ArrayList<>(letterGuesses);
+    if (cache != null)
+      cache.putLetterGuesses(shapeInSequence, key, guesses);
 
-    if (LOG.isTraceEnabled()) {
-      LOG.trace("Shape: " + shape);
-      LOG.trace("Letter: " + shape.getLetter());
-      LOG.trace("Best outcome: " + bestOutcome);
-    }
+    return guesses;
+  }
 
-    return bestOutcome;
+  /**
+   * Guess the letters for a single shape in sequence given several histories,
+   * typically all of the histories in a beam which advance to this shape.
+   * Intrinsic features are only analysed once, and the decision maker is only
+   * consulted once per distinct set of feature results.
+   * 
+   * @param cache
+   *            the cache for the group being analysed, or null to use a cache
+   *            restricted to this call
+   * @return the letter guesses for each history, in the same order as the
+   *         histories
+   */
+  public List<List<Decision>> guessLetters(ShapeInSequence shapeInSequence, List<LetterSequenceNode> histories, LetterGuessCache cache) {
+    if (cache == null)
+      cache = new LetterGuessCache();
+    List<List<Decision>> guesses = new ArrayList<>(histories.size());
+    if (histories.isEmpty())
+      return guesses;
+
+    // the intrinsic features only depend on the shape in sequence, so any
+    // history will do to analyse them
+    FeatureResult<?>[] intrinsicResults = this.getIntrinsicResults(new LetterGuesserContext(shapeInSequence, histories.get(0)), cache);
+    for (LetterSequenceNode history : histories) {
+      guesses.add(this.guessLetters(new LetterGuesserContext(shapeInSequence, history), intrinsicResults, cache));
+    }
+    return guesses;
   }
 
 }
@@ -34,11 +34,22 @@ import com.joliciel.jochre.graphics.ShapeWrapper;
  */
 public class LetterGuesserContext implements ShapeWrapper, ShapeInSequenceWrapper {
   private final ShapeInSequence shapeInSequence;
-  private final LetterSequence history;
+  private LetterSequence history;
+  private final LetterSequenceNode historyNode;
 
   public LetterGuesserContext(ShapeInSequence shapeInSequence, LetterSequence history) {
     this.shapeInSequence = shapeInSequence;
     this.history = history;
+    this.historyNode = null;
+  }
+
+  /**
+   * A context whose history is a beam search node.
+   */
+  public LetterGuesserContext(ShapeInSequence shapeInSequence, LetterSequenceNode historyNode) {
+    this.shapeInSequence = shapeInSequence;
+    this.history = null;
+    this.historyNode = historyNode;
   }
 
   @Override
@@ -51,9 +62,37 @@ public class LetterGuesserContext implements ShapeWrapper, ShapeInSequenceWrappe
    * preceding the current shape within the same word.
    */
   public LetterSequence getHistory() {
+    if (history == null && historyNode != null)
+      history = historyNode.toLetterSequence();
     return history;
   }
 
+  /**
+   * Is there a history, i.e. are we analysing rather than training?
+   */
+  public boolean hasHistory() {
+    return history != null || historyNode != null;
+  }
+
+  /**
+   * The number of letters in the history.
+   */
+  public int getHistoryLength() {
+    if (historyNode != null)
+      return historyNode.getLength();
+    return history == null ? 0 : history.getLetters().size();
+  }
+
+  /**
+   * The letter in the history i letters before the last one (0 being the
+   * last letter).
+   */
+  public String getHistoryLetterFromEnd(int i) {
+    if (historyNode != null)
+      return historyNode.getLetterFromEnd(i);
+    return history.getLetters().get(history.getLetters().size() - i - 1);
+  }
+
   @Override
   public Shape getShape() {
     return this.shapeInSequence.getShape();
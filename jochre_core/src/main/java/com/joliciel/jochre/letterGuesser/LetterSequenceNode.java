@@ -0,0 +1,237 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.letterGuesser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.joliciel.jochre.JochreSession;
+import com.joliciel.jochre.boundaries.ShapeInSequence;
+import com.joliciel.jochre.boundaries.ShapeSequence;
+import com.joliciel.jochre.lexicon.LexiconTrie;
+import com.joliciel.talismane.machineLearning.Decision;
+
+/**
+ * A lightweight, immutable letter sequence used while the beam search is
+ * underway. Each node only stores its last letter guess, and points to its
+ * parent node for the preceding guesses, so that nodes sharing a prefix share
+ * the same parent, and expanding a history doesn't copy it. The score is kept
+ * as a primitive running sum of log probabilities.<br>
+ * <br>
+ * Only nodes which survive until the end of the beam search need to be
+ * converted to a full {@link LetterSequence}, via
+ * {@link #toLetterSequence()}.<br>
+ * <br>
+ * When the beam search checks words against the lexicon, each node also holds
+ * its position in the {@link LexiconTrie}, and its score is multiplied by a
+ * penalty each time a word stops being the start of a lexicon word.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public final class LetterSequenceNode implements Comparable<LetterSequenceNode> {
+  private final LetterSequenceNode parent;
+  private final ShapeSequence shapeSequence;
+  private final Decision decision;
+  private final List<Decision> letterGuesses;
+  private final int length;
+  private final double logProbabilitySum;
+  private final double score;
+  private final LexiconTrie.Prefix lexiconPrefix;
+  private final double lexiconFactor;
+  private final JochreSession jochreSession;
+
+  /**
+   * An empty sequence, at the start of the beam search for a given shape
+   * sequence.
+   */
+  public LetterSequenceNode(ShapeSequence shapeSequence, JochreSession jochreSession) {
+    this(shapeSequence, null, jochreSession);
+  }
+
+  /**
+   * An empty sequence, at the start of the beam search for a given shape
+   * sequence, whose words are checked against the lexicon.
+   * 
+   * @param lexiconPrefix
+   *            the trie prefix at the start of the sequence, or null if the
+   *            first word isn't checked
+   */
+  public LetterSequenceNode(ShapeSequence shapeSequence, LexiconTrie.Prefix lexiconPrefix, JochreSession jochreSession) {
+    this.jochreSession = jochreSession;
+    this.parent = null;
+    this.shapeSequence = shapeSequence;
+    this.decision = null;
+    this.letterGuesses = null;
+    this.length = 0;
+    this.logProbabilitySum = 0;
+    this.score = shapeSequence.getScore();
+    this.lexiconPrefix = lexiconPrefix;
+    this.lexiconFactor = 1.0;
+  }
+
+  /**
+   * Extend an existing node by one letter.
+   * 
+   * @param decision
+   *            the letter guess for the next shape
+   * @param letterGuesses
+   *            the full list of guesses from which this decision was taken
+   */
+  public LetterSequenceNode(LetterSequenceNode parent, Decision decision, List<Decision> letterGuesses) {
+    this(parent, decision, letterGuesses, parent.lexiconPrefix, 1.0);
+  }
+
+  /**
+   * Extend an existing node by one letter, checking words against the
+   * lexicon.
+   * 
+   * @param lexiconPrefix
+   *            the trie prefix after this letter
+   * @param penalty
+   *            the factor applied to the score if the current word has just
+   *            stopped being the start of a lexicon word
+   */
+  public LetterSequenceNode(LetterSequenceNode parent, Decision decision, List<Decision> letterGuesses, LexiconTrie.Prefix lexiconPrefix,
+      double penalty) {
+    this.jochreSession = parent.jochreSession;
+    this.parent = parent;
+    this.shapeSequence = parent.shapeSequence;
+    this.decision = decision;
+    this.letterGuesses = letterGuesses;
+    this.length = parent.length + 1;
+    this.logProbabilitySum = parent.logProbabilitySum + Math.log(decision.getProbability());
+    this.lexiconPrefix = lexiconPrefix;
+    boolean wordLost = lexiconPrefix != null && lexiconPrefix.isDead() && (parent.lexiconPrefix == null || !parent.lexiconPrefix.isDead());
+    this.lexiconFactor = wordLost ? parent.lexiconFactor * penalty : parent.lexiconFactor;
+    // geometric mean of the letter probabilities, as per LetterSequence
+    this.score = Math.exp(logProbabilitySum / length) * shapeSequence.getScore() * lexiconFactor;
+  }
+
+  /**
+   * The number of letters guessed so far.
+   */
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * The letter guessed i letters before the last one (0 being the last
+   * letter).
+   */
+  public String getLetterFromEnd(int i) {
+    LetterSequenceNode node = this;
+    for (int j = 0; j < i; j++)
+      node = node.parent;
+    return node.decision.getOutcome();
+  }
+
+  /**
+   * The shape sequence underlying this letter sequence.
+   */
+  public ShapeSequence getUnderlyingShapeSequence() {
+    return shapeSequence;
+  }
+
+  /**
+   * Get the next shape in the underlying shape sequence (beyond what has
+   * already been guessed by this node), or null if all shapes have been
+   * guessed.
+   */
+  public ShapeInSequence getNextShape() {
+    if (shapeSequence.size() <= length)
+      return null;
+    return shapeSequence.get(length);
+  }
+
+  public double getScore() {
+    return score;
+  }
+
+  /**
+   * The position of the current word in the lexicon trie, or null if the
+   * current word isn't being checked.
+   */
+  public LexiconTrie.Prefix getLexiconPrefix() {
+    return lexiconPrefix;
+  }
+
+  /**
+   * The decisions in this sequence, one per letter, in sequence order.
+   */
+  public List<Decision> getDecisions() {
+    List<Decision> decisions = new ArrayList<>(Collections.nCopies(length, (Decision) null));
+    LetterSequenceNode node = this;
+    for (int i = length - 1; i >= 0; i--) {
+      decisions.set(i, node.decision);
+      node = node.parent;
+    }
+    return decisions;
+  }
+
+  /**
+   * The full list of guesses from which each decision in this sequence was
+   * taken, in sequence order.
+   */
+  public List<List<Decision>> getLetterGuesses() {
+    List<List<Decision>> letterGuesses = new ArrayList<>(Collections.nCopies(length, (List<Decision>) null));
+    LetterSequenceNode node = this;
+    for (int i = length - 1; i >= 0; i--) {
+      letterGuesses.set(i, node.letterGuesses);
+      node = node.parent;
+    }
+    return letterGuesses;
+  }
+
+  /**
+   * Materialise this node as a full letter sequence.
+   */
+  public LetterSequence toLetterSequence() {
+    List<Decision> decisions = this.getDecisions();
+    List<String> letters = new ArrayList<>(length);
+    for (Decision decision : decisions)
+      letters.add(decision.getOutcome());
+    LetterSequence letterSequence = new LetterSequence(shapeSequence, letters, jochreSession);
+    for (Decision decision : decisions)
+      letterSequence.addDecision(decision);
+    return letterSequence;
+  }
+
+  @Override
+  public int compareTo(LetterSequenceNode o) {
+    if (this == o)
+      return 0;
+    if (this.score < o.score) {
+      return 1;
+    } else if (this.score > o.score) {
+      return -1;
+    } else {
+      return 1;
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (Decision decision : this.getDecisions())
+      sb.append(decision.getOutcome());
+    return "Sequence: " + sb.toString();
+  }
+}
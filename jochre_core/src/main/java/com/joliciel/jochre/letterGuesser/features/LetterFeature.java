@@ -34,4 +34,12 @@ public interface LetterFeature<Y> extends Feature<LetterGuesserContext,Y> {
    * Check the feature on this shape and return the result.
    */
   public FeatureResult<Y> check(LetterGuesserContext context, RuntimeEnvironment env);
+
+  /**
+   * Does this feature's result depend on the letters already guessed for the
+   * current sequence, rather than on the shape alone?
+   */
+  public default boolean isHistoryDependent() {
+    return false;
+  }
 }
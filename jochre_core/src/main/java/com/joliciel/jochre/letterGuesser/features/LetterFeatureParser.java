@@ -19,6 +19,8 @@
 package com.joliciel.jochre.letterGuesser.features;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
@@ -46,6 +48,17 @@ import com.joliciel.talismane.machineLearning.features.StringFeature;
 public class LetterFeatureParser extends AbstractFeatureParser<LetterGuesserContext> {
   private static final Logger LOG = LoggerFactory.getLogger(LetterFeatureParser.class);
 
+  /**
+   * Functions returning a feature for which
+   * {@link LetterFeature#isHistoryDependent()} is true.
+   */
+  private static final Set<String> HISTORY_DEPENDENT_FUNCTIONS = new HashSet<>(Arrays.asList("Ngram"));
+
+  /**
+   * Named descriptors which refer to a history-dependent function.
+   */
+  private final Set<String> historyDependentNames = new HashSet<>();
+
   private final ShapeFeatureParser shapeFeatureParser;
   private final ShapeInSequenceFeatureParser shapeInSequenceFeatureParser;
 
@@ -82,6 +95,9 @@ public class LetterFeatureParser extends AbstractFeatureParser<LetterGuesserCont
   @SuppressWarnings({ "unchecked", "rawtypes" })
   public List<LetterFeature<?>> parseDescriptor(FunctionDescriptor functionDescriptor) {
     List<Feature<LetterGuesserContext, ?>> letterFeatures = this.parse(functionDescriptor);
+    boolean historyDependent = this.isHistoryDependent(functionDescriptor);
+    if (historyDependent && functionDescriptor.getDescriptorName() != null)
+      historyDependentNames.add(functionDescriptor.getDescriptorName());
     List<LetterFeature<?>> wrappedFeatures = new ArrayList<LetterFeature<?>>();
     for (Feature<LetterGuesserContext, ?> letterFeature : letterFeatures) {
       LetterFeature<?> wrappedFeature = null;
@@ -98,11 +114,30 @@ public class LetterFeatureParser extends AbstractFeatureParser<LetterGuesserCont
       } else {
         wrappedFeature = new LetterFeatureWrapper(letterFeature);
       }
+      if (wrappedFeature instanceof LetterFeatureWrapper)
+        ((LetterFeatureWrapper<?>) wrappedFeature).setHistoryDependent(historyDependent);
       wrappedFeatures.add(wrappedFeature);
     }
     return wrappedFeatures;
   }
 
+  /**
+   * Does this descriptor call a history-dependent function, either directly or
+   * in one of its arguments?
+   */
+  private boolean isHistoryDependent(FunctionDescriptor functionDescriptor) {
+    if (!functionDescriptor.isFunction())
+      return false;
+    String functionName = functionDescriptor.getFunctionName();
+    if (HISTORY_DEPENDENT_FUNCTIONS.contains(functionName) || historyDependentNames.contains(functionName))
+      return true;
+    for (FunctionDescriptor argument : functionDescriptor.getArguments()) {
+      if (this.isHistoryDependent(argument))
+        return true;
+    }
+    return false;
+  }
+
   @Override
   public List<FunctionDescriptor> getModifiedDescriptors(FunctionDescriptor functionDescriptor) {
     List<FunctionDescriptor> modifiedDescriptors = this.shapeFeatureParser.getModifiedDescriptors(functionDescriptor);
@@ -114,6 +149,7 @@ public class LetterFeatureParser extends AbstractFeatureParser<LetterGuesserCont
   private static class LetterFeatureWrapper<T> extends AbstractFeature<LetterGuesserContext, T>
       implements LetterFeature<T>, FeatureWrapper<LetterGuesserContext, T> {
     private Feature<LetterGuesserContext, T> wrappedFeature = null;
+    private boolean historyDependent = false;
 
     public LetterFeatureWrapper(Feature<LetterGuesserContext, T> wrappedFeature) {
       super();
@@ -121,6 +157,15 @@ public class LetterFeatureParser extends AbstractFeatureParser<LetterGuesserCont
       this.setName(wrappedFeature.getName());
     }
 
+    @Override
+    public boolean isHistoryDependent() {
+      return historyDependent;
+    }
+
+    public void setHistoryDependent(boolean historyDependent) {
+      this.historyDependent = historyDependent;
+    }
+
     @Override
     public FeatureResult<T> check(LetterGuesserContext context, RuntimeEnvironment env) {
       return wrappedFeature.check(context, env);
@@ -3,7 +3,6 @@ package com.joliciel.jochre.letterGuesser.features;
 import com.joliciel.jochre.graphics.GroupOfShapes;
 import com.joliciel.jochre.graphics.Shape;
 import com.joliciel.jochre.letterGuesser.LetterGuesserContext;
-import com.joliciel.jochre.letterGuesser.LetterSequence;
 import com.joliciel.talismane.machineLearning.features.FeatureResult;
 import com.joliciel.talismane.machineLearning.features.IntegerFeature;
 import com.joliciel.talismane.machineLearning.features.RuntimeEnvironment;
@@ -18,6 +17,11 @@ public class NgramFeature extends AbstractLetterFeature<String> implements Strin
     this.setName(super.getName() + "(" + this.nFeature.getName() + ")");
   }
   
+  @Override
+  public boolean isHistoryDependent() {
+    return true;
+  }
+
   @Override
   public FeatureResult<String> checkInternal(LetterGuesserContext context, RuntimeEnvironment env) {
     FeatureResult<String> result = null;
@@ -29,13 +33,12 @@ public class NgramFeature extends AbstractLetterFeature<String> implements Strin
       int historyToFind = n-1;
       String ngram = "";
       Shape shape = context.getShapeInSequence().getShape();
-      LetterSequence history = context.getHistory();
       for (int i = 0; i < historyToFind; i++) {
         String letter = null;
-        if (history!=null) {
+        if (context.hasHistory()) {
           // this is during analysis, we look at the current history
-          if (history.getLetters().size()>i) {
-            letter = history.getLetters().get(history.getLetters().size()-i-1);
+          if (context.getHistoryLength()>i) {
+            letter = context.getHistoryLetterFromEnd(i);
           } else {
             letter = SPACE;
           }  
@@ -0,0 +1,276 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.lexicon;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.joliciel.jochre.utils.JochreException;
+
+/**
+ * An immutable lexicon stored in a single file, which is memory-mapped rather
+ * than read into the heap, so that it loads instantly and can be shared by
+ * several processes through the operating system's page cache.<br>
+ * <br>
+ * The file contains an open-addressing hash table with linear probing: a
+ * header, a table of slots each giving the file offset of an entry (or 0 for an
+ * empty slot), followed by the entries, each made up of the frequency, a flag
+ * byte, the word length and the word's UTF-16 characters. A lookup hashes the
+ * word and compares it to the entries in the probed slots directly in the
+ * mapped buffer, without allocating anything.<br>
+ * <br>
+ * When written, the upper-case variants added by {@link DefaultLexiconWrapper}
+ * for the lexicon's locale are stored as well, with a frequency of 1 if they
+ * aren't words in their own right, so that the lexicon doesn't need to be
+ * wrapped when it is read for the same locale.
+ *
+ * @author Assaf Urieli
+ *
+ */
+public class CompactLexicon implements Lexicon {
+  private static final Logger LOG = LoggerFactory.getLogger(CompactLexicon.class);
+
+  /**
+   * The suffix for compact lexicon files.
+   */
+  public static final String SUFFIX = ".lex";
+
+  private static final int MAGIC = 0x4A4C4558;
+  private static final int VERSION = 1;
+
+  /** The entry is a word in the base lexicon, not just an upper-case variant */
+  private static final byte BASE_WORD = 1;
+
+  private static final int FREQUENCY_OFFSET = 0;
+  private static final int FLAGS_OFFSET = 4;
+  private static final int LENGTH_OFFSET = 5;
+  private static final int CHARS_OFFSET = 7;
+
+  private final ByteBuffer buffer;
+  private final Locale locale;
+  private final int mask;
+  private final int entryCount;
+  private final int slotsOffset;
+
+  /**
+   * Map a compact lexicon file written by
+   * {@link #write(Lexicon, Locale, File)}.
+   */
+  public CompactLexicon(File file) {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+      this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+
+    if (buffer.capacity() < 18 || buffer.getInt(0) != MAGIC)
+      throw new JochreException("Not a compact lexicon: " + file.getPath());
+    int version = buffer.getInt(4);
+    if (version != VERSION)
+      throw new JochreException("Unsupported compact lexicon version " + version + " in " + file.getPath());
+
+    int slotCount = buffer.getInt(8);
+    this.mask = slotCount - 1;
+    this.entryCount = buffer.getInt(12);
+    int localeLength = buffer.getChar(16);
+    char[] localeChars = new char[localeLength];
+    for (int i = 0; i < localeLength; i++)
+      localeChars[i] = buffer.getChar(18 + i * 2);
+    this.locale = Locale.forLanguageTag(new String(localeChars));
+    this.slotsOffset = 18 + localeLength * 2;
+
+    if (LOG.isDebugEnabled())
+      LOG.debug("Mapped " + entryCount + " entries for locale " + locale + " from " + file.getPath());
+  }
+
+  @Override
+  public int getFrequency(String word) {
+    int slot = hash(word) & mask;
+    while (true) {
+      int entry = buffer.getInt(slotsOffset + slot * 4);
+      if (entry == 0)
+        return 0;
+      if (matches(entry, word))
+        return buffer.getInt(entry + FREQUENCY_OFFSET);
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private boolean matches(int entry, String word) {
+    int length = buffer.getChar(entry + LENGTH_OFFSET);
+    if (length != word.length())
+      return false;
+    int charsOffset = entry + CHARS_OFFSET;
+    for (int i = 0; i < length; i++) {
+      if (buffer.getChar(charsOffset + i * 2) != word.charAt(i))
+        return false;
+    }
+    return true;
+  }
+
+  private static int hash(String word) {
+    int h = word.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Return all words in the base lexicon, excluding upper-case variants which
+   * aren't words in their own right.
+   */
+  @Override
+  public Iterator<String> getWords() {
+    return new Iterator<String>() {
+      int slot = -1;
+
+      {
+        advance();
+      }
+
+      private void advance() {
+        slot++;
+        while (slot <= mask) {
+          int entry = buffer.getInt(slotsOffset + slot * 4);
+          if (entry != 0 && (buffer.get(entry + FLAGS_OFFSET) & BASE_WORD) != 0)
+            break;
+          slot++;
+        }
+      }
+
+      @Override
+      public boolean hasNext() {
+        return slot <= mask;
+      }
+
+      @Override
+      public String next() {
+        if (!hasNext())
+          throw new NoSuchElementException();
+        int entry = buffer.getInt(slotsOffset + slot * 4);
+        int length = buffer.getChar(entry + LENGTH_OFFSET);
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++)
+          chars[i] = buffer.getChar(entry + CHARS_OFFSET + i * 2);
+        advance();
+        return new String(chars);
+      }
+    };
+  }
+
+  /**
+   * The locale whose upper-case variants were stored with the words.
+   */
+  public Locale getLocale() {
+    return locale;
+  }
+
+  /**
+   * The number of entries stored, including upper-case variants.
+   */
+  public int getEntryCount() {
+    return entryCount;
+  }
+
+  /**
+   * Write a lexicon in the compact format, including the upper-case variants of
+   * each word for the locale provided.
+   */
+  public static void write(Lexicon lexicon, Locale locale, File file) {
+    // word -> frequency, with negative values marking variants only
+    Map<String, Integer> entries = new LinkedHashMap<>();
+    Iterator<String> words = lexicon.getWords();
+    while (words.hasNext()) {
+      String word = words.next();
+      int frequency = lexicon.getFrequency(word);
+      entries.put(word, frequency > 0 ? frequency : 0);
+    }
+    words = lexicon.getWords();
+    while (words.hasNext()) {
+      for (String variant : DefaultLexiconWrapper.getCaseVariants(words.next(), locale)) {
+        Integer frequency = entries.get(variant);
+        if (frequency == null)
+          entries.put(variant, -1);
+        else if (frequency == 0)
+          entries.put(variant, 1);
+      }
+    }
+
+    int slotCount = 1;
+    while (slotCount * 3 < entries.size() * 4 + 4)
+      slotCount <<= 1;
+    String localeTag = locale.toLanguageTag();
+    int slotsOffset = 18 + localeTag.length() * 2;
+
+    long size = slotsOffset + (long) slotCount * 4;
+    for (String word : entries.keySet()) {
+      if (word.length() > Character.MAX_VALUE)
+        throw new JochreException("Word too long for the compact format: " + word.substring(0, 50) + "...");
+      size += CHARS_OFFSET + word.length() * 2;
+    }
+    if (size > Integer.MAX_VALUE)
+      throw new JochreException("Lexicon too large for the compact format: " + size + " bytes");
+
+    int mask = slotCount - 1;
+    int[] slots = new int[slotCount];
+    int offset = slotsOffset + slotCount * 4;
+    for (String word : entries.keySet()) {
+      int slot = hash(word) & mask;
+      while (slots[slot] != 0)
+        slot = (slot + 1) & mask;
+      slots[slot] = offset;
+      offset += CHARS_OFFSET + word.length() * 2;
+    }
+
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(slotCount);
+      out.writeInt(entries.size());
+      out.writeChar(localeTag.length());
+      out.writeChars(localeTag);
+      for (int slot : slots)
+        out.writeInt(slot);
+      for (Map.Entry<String, Integer> entry : entries.entrySet()) {
+        String word = entry.getKey();
+        int frequency = entry.getValue();
+        out.writeInt(frequency < 0 ? 1 : frequency);
+        out.writeByte(frequency < 0 ? 0 : BASE_WORD);
+        out.writeChar(word.length());
+        out.writeChars(word);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+
+    LOG.info("Wrote " + entries.size() + " entries in " + slotCount + " slots to " + file.getPath());
+  }
+}
@@ -20,8 +20,10 @@ package com.joliciel.jochre.lexicon;
 
 import java.text.Normalizer;
 import java.text.Normalizer.Form;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 
@@ -48,17 +50,27 @@ public class DefaultLexiconWrapper implements Lexicon {
     Iterator<String> words = baseLexicon.getWords();
     while (words.hasNext()) {
       String word = words.next();
-      if (word.length() > 0) {
-        String firstLetter = word.substring(0, 1);
+      upperCaseLexicon.addAll(getCaseVariants(word, locale));
+    }
+  }
+
+  /**
+   * The variants of a word with an initial uppercase and all upper-case, both
+   * without accents, or an empty list for an empty word.
+   */
+  static List<String> getCaseVariants(String word, Locale locale) {
+    List<String> variants = new ArrayList<>(2);
+    if (word.length() > 0) {
+      String firstLetter = word.substring(0, 1);
 
-        if (word.length() == 1)
-          upperCaseLexicon.add(this.toUpperCaseNoAccents(firstLetter));
-        else
-          upperCaseLexicon.add(this.toUpperCaseNoAccents(firstLetter) + word.substring(1));
+      if (word.length() == 1)
+        variants.add(toUpperCaseNoAccents(firstLetter, locale));
+      else
+        variants.add(toUpperCaseNoAccents(firstLetter, locale) + word.substring(1));
 
-        upperCaseLexicon.add(this.toUpperCaseNoAccents(word));
-      }
+      variants.add(toUpperCaseNoAccents(word, locale));
     }
+    return variants;
   }
 
   @Override
@@ -74,6 +86,10 @@ public class DefaultLexiconWrapper implements Lexicon {
   }
 
   String toUpperCaseNoAccents(String string) {
+    return toUpperCaseNoAccents(string, locale);
+  }
+
+  static String toUpperCaseNoAccents(String string, Locale locale) {
     // decompose accents
     String decomposed = Normalizer.normalize(string, Form.NFD);
     // removing diacritics
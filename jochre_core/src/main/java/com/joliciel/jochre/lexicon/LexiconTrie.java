@@ -0,0 +1,296 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.lexicon;
+
+import java.text.Normalizer;
+import java.text.Normalizer.Form;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A prefix trie of the words in a lexicon, used to check during the beam
+ * search whether the word being guessed can still become a word in the
+ * lexicon.<br>
+ * <br>
+ * Words are folded (lowercase, without accents or other combining marks,
+ * ligatures split into letters), so that the check is permissive, and
+ * upper-case variants and unexpected accents are never rejected. The trie is
+ * held in a few primitive arrays, with the children of each node stored
+ * contiguously and sorted by letter, so that following a letter is a binary
+ * search among the node's children. The words themselves aren't kept once the
+ * trie is built, so that a memory-mapped {@link CompactLexicon} isn't
+ * duplicated on the heap.<br>
+ * <br>
+ * The guessed text may contain several words separated by punctuation, so a
+ * punctuation mark for which the current prefix has no continuation starts a
+ * new word. Any other character which isn't a letter (e.g. a digit, or the
+ * markers around split letters) leaves the rest of the word unchecked.
+ *
+ * @author Assaf Urieli
+ *
+ */
+public class LexiconTrie {
+  private static final Logger LOG = LoggerFactory.getLogger(LexiconTrie.class);
+  private static final int DEAD = -1;
+
+  private final Locale locale;
+  private final Set<Character> punctuation;
+  private final Prefix root;
+  private final Map<String, String> foldedLetters = new ConcurrentHashMap<>();
+
+  private int nodeCount = 0;
+  private char[] letters = new char[1024];
+  private int[] firstChild = new int[1024];
+  private int[] childCount = new int[1024];
+  private int[] wordCount = new int[1024];
+  private final BitSet isWord = new BitSet();
+
+  /**
+   * A node in the trie, reached by following a given prefix, or a dead node if
+   * the prefix has no continuation in the lexicon.
+   */
+  public static final class Prefix {
+    private final int node;
+    private final int depth;
+    private final int wordCount;
+
+    private Prefix(int node, int depth, int wordCount) {
+      this.node = node;
+      this.depth = depth;
+      this.wordCount = wordCount;
+    }
+
+    /**
+     * Whether no word in the lexicon starts with this prefix.
+     */
+    public boolean isDead() {
+      return node == DEAD;
+    }
+
+    /**
+     * The number of distinct words starting with this prefix.
+     */
+    public int getWordCount() {
+      return wordCount;
+    }
+
+    /**
+     * The prefix length, in folded characters.
+     */
+    public int getDepth() {
+      return depth;
+    }
+
+    @Override
+    public String toString() {
+      return "Prefix [node=" + node + ", depth=" + depth + ", wordCount=" + wordCount + "]";
+    }
+  }
+
+  /**
+   * Build a trie from all words in a lexicon.
+   *
+   * @param punctuation
+   *          the characters which may separate words within the guessed text
+   */
+  public LexiconTrie(Lexicon lexicon, Locale locale, Set<Character> punctuation) {
+    this.locale = locale;
+    this.punctuation = punctuation;
+
+    // the folded words are only needed in sorted order while building the
+    // trie
+    List<String> words = new ArrayList<>();
+    Iterator<String> iterator = lexicon.getWords();
+    while (iterator.hasNext()) {
+      String word = this.fold(iterator.next());
+      if (word.length() > 0)
+        words.add(word);
+    }
+    Collections.sort(words);
+
+    int root = this.addNodes(1);
+    this.addChildren(root, words, 0, words.size(), 0);
+
+    letters = Arrays.copyOf(letters, nodeCount);
+    firstChild = Arrays.copyOf(firstChild, nodeCount);
+    childCount = Arrays.copyOf(childCount, nodeCount);
+    wordCount = Arrays.copyOf(wordCount, nodeCount);
+    this.root = new Prefix(root, 0, wordCount[root]);
+
+    LOG.debug("Built lexicon trie with " + this.size() + " words and " + nodeCount + " nodes");
+  }
+
+  private int addNodes(int count) {
+    int first = nodeCount;
+    nodeCount += count;
+    if (nodeCount > letters.length) {
+      int capacity = Math.max(nodeCount, letters.length * 2);
+      letters = Arrays.copyOf(letters, capacity);
+      firstChild = Arrays.copyOf(firstChild, capacity);
+      childCount = Arrays.copyOf(childCount, capacity);
+      wordCount = Arrays.copyOf(wordCount, capacity);
+    }
+    return first;
+  }
+
+  /**
+   * Add the children of a node, given the sorted words in [start, end) which
+   * share the node's prefix of the given depth.
+   */
+  private void addChildren(int node, List<String> words, int start, int end, int depth) {
+    // words ending at this node sort first
+    int i = start;
+    while (i < end && words.get(i).length() == depth) {
+      isWord.set(node);
+      i++;
+    }
+
+    int children = 0;
+    for (int j = i; j < end; j++) {
+      if (j == i || words.get(j).charAt(depth) != words.get(j - 1).charAt(depth))
+        children++;
+    }
+
+    int first = this.addNodes(children);
+    firstChild[node] = first;
+    childCount[node] = children;
+    int distinctWords = isWord.get(node) ? 1 : 0;
+
+    int child = first;
+    while (i < end) {
+      char c = words.get(i).charAt(depth);
+      int j = i + 1;
+      while (j < end && words.get(j).charAt(depth) == c)
+        j++;
+      letters[child] = c;
+      this.addChildren(child, words, i, j, depth + 1);
+      distinctWords += wordCount[child];
+      child++;
+      i = j;
+    }
+    wordCount[node] = distinctWords;
+  }
+
+  /**
+   * The empty prefix, at the start of a word.
+   */
+  public Prefix getRoot() {
+    return root;
+  }
+
+  /**
+   * Follow the letter guessed after a given prefix.
+   *
+   * @param prefix
+   *          the current prefix, or null if the current word isn't being
+   *          checked
+   * @return the new prefix, or null if the rest of the word can't be checked
+   */
+  public Prefix extend(Prefix prefix, String letter) {
+    String folded = foldedLetters.get(letter);
+    if (folded == null) {
+      folded = this.fold(letter);
+      foldedLetters.put(letter, folded);
+    }
+
+    for (int i = 0; i < folded.length(); i++) {
+      char c = folded.charAt(i);
+      Prefix next = null;
+      if (prefix != null)
+        next = this.follow(prefix, c);
+      if (next != null && !next.isDead()) {
+        prefix = next;
+      } else if (punctuation.contains(c)) {
+        prefix = root;
+      } else if (prefix != null && !Character.isLetter(c)) {
+        prefix = null;
+      } else {
+        prefix = next;
+      }
+    }
+    return prefix;
+  }
+
+  private Prefix follow(Prefix prefix, char c) {
+    if (prefix.isDead())
+      return prefix;
+    int low = firstChild[prefix.node];
+    int high = low + childCount[prefix.node] - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (letters[mid] < c)
+        low = mid + 1;
+      else if (letters[mid] > c)
+        high = mid - 1;
+      else
+        return new Prefix(mid, prefix.depth + 1, wordCount[mid]);
+    }
+    return new Prefix(DEAD, prefix.depth + 1, 0);
+  }
+
+  /**
+   * Whether a prefix is exactly a word in the lexicon.
+   */
+  public boolean isWord(Prefix prefix) {
+    return !prefix.isDead() && isWord.get(prefix.node);
+  }
+
+  /**
+   * Lowercase, with compatibility decomposition, all combining marks removed,
+   * and the Yiddish ligatures (which have no decomposition) replaced by their
+   * letters, since OCR may read them either way.
+   */
+  String fold(String string) {
+    String decomposed = Normalizer.normalize(string.toLowerCase(locale), Form.NFKD);
+    StringBuilder sb = new StringBuilder(decomposed.length());
+    for (int i = 0; i < decomposed.length(); i++) {
+      char c = decomposed.charAt(i);
+      int type = Character.getType(c);
+      if (type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK || type == Character.ENCLOSING_MARK)
+        continue;
+      if (c == '\u05F0')
+        sb.append("\u05D5\u05D5");
+      else if (c == '\u05F1')
+        sb.append("\u05D5\u05D9");
+      else if (c == '\u05F2')
+        sb.append("\u05D9\u05D9");
+      else
+        sb.append(c);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * The number of distinct folded words.
+   */
+  public int size() {
+    return root.wordCount;
+  }
+}
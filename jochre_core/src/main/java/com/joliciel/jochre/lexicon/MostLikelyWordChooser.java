@@ -27,6 +27,7 @@ import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,14 +52,16 @@ public class MostLikelyWordChooser {
   private double frequencyLogBase;
   private boolean frequencyAdjusted;
 
-  private final Map<Integer, Double> frequencyLogs = new HashMap<>();
+  private final Map<Integer, Double> frequencyLogs = new ConcurrentHashMap<>();
   private final Linguistics linguistics;
+  private final WordFrequencyCache wordFrequencyCache;
   private Set<String> midWordPunctuation = new HashSet<>();
   private Set<String> startWordPunctuation = new HashSet<>();
   private Set<String> endWordPunctuation = new HashSet<>(Arrays.asList("'"));
 
   public MostLikelyWordChooser(JochreSession jochreSession) {
     this.linguistics = jochreSession.getLinguistics();
+    this.wordFrequencyCache = jochreSession.getWordFrequencyCache();
 
     Config wordChooserConfig = jochreSession.getConfig().getConfig("jochre.word-chooser");
     unknownWordFactor = wordChooserConfig.getDouble("unknown-word-factor");
@@ -425,7 +428,9 @@ public class MostLikelyWordChooser {
       for (LetterSequence subsequence : possibility) {
         String word = subsequence.getGuessedWord();
         int freq = 0;
-        List<CountedOutcome<String>> frequencies = this.linguistics.getFrequencies(word);
+        // copied, since the list may be modified below
+        List<CountedOutcome<String>> frequencies = new ArrayList<>(
+            this.wordFrequencyCache.getFrequencies(word, this.linguistics::getFrequencies));
 
         if (frequencies.size() == 0) {
           // check whether word is impossible
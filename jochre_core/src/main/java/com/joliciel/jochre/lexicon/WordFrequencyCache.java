@@ -0,0 +1,135 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.lexicon;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import com.joliciel.talismane.utils.CountedOutcome;
+
+/**
+ * A bounded cache of the lexicon frequencies found for each word, shared by
+ * all threads analysing pages in a given session, so that common words, and
+ * the same OCR near-misses appearing in beam after beam, are only looked up
+ * once.<br>
+ * <br>
+ * Words are kept in two generations: once the current generation is full, it
+ * becomes the previous generation, and the old previous generation is
+ * discarded. Words found in the previous generation are moved back to the
+ * current one, so that frequently used words are retained. The cache thus
+ * never holds more than the maximum size, without any locking on reads.<br>
+ * <br>
+ * The cached lists are unmodifiable.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public class WordFrequencyCache {
+  private final int generationSize;
+  private volatile Map<String, List<CountedOutcome<String>>> current = new ConcurrentHashMap<>();
+  private volatile Map<String, List<CountedOutcome<String>>> previous = new ConcurrentHashMap<>();
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+
+  /**
+   * @param maxSize
+   *          the maximum number of words cached, or 0 to disable the cache
+   */
+  public WordFrequencyCache(int maxSize) {
+    this.generationSize = maxSize / 2;
+  }
+
+  /**
+   * Get the frequencies for a given word, calling the loader if they aren't
+   * cached yet.
+   */
+  public List<CountedOutcome<String>> getFrequencies(String word,
+      Function<String, List<CountedOutcome<String>>> loader) {
+    if (generationSize == 0) {
+      missCount.increment();
+      return Collections.unmodifiableList(new ArrayList<>(loader.apply(word)));
+    }
+
+    List<CountedOutcome<String>> frequencies = current.get(word);
+    if (frequencies == null) {
+      frequencies = previous.get(word);
+      if (frequencies != null)
+        this.put(word, frequencies);
+    }
+    if (frequencies != null) {
+      hitCount.increment();
+      return frequencies;
+    }
+
+    missCount.increment();
+    frequencies = Collections.unmodifiableList(new ArrayList<>(loader.apply(word)));
+    this.put(word, frequencies);
+    return frequencies;
+  }
+
+  private void put(String word, List<CountedOutcome<String>> frequencies) {
+    current.put(word, frequencies);
+    if (current.size() >= generationSize) {
+      synchronized (this) {
+        if (current.size() >= generationSize) {
+          previous = current;
+          current = new ConcurrentHashMap<>();
+        }
+      }
+    }
+  }
+
+  /**
+   * The number of words currently cached.
+   */
+  public int size() {
+    return current.size() + previous.size();
+  }
+
+  /**
+   * The number of lookups for which the frequencies were cached.
+   */
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  /**
+   * The number of lookups for which the frequencies had to be loaded.
+   */
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  /**
+   * The proportion of lookups for which the frequencies were cached, or 0 if
+   * there haven't been any lookups.
+   */
+  public double getHitRate() {
+    long hits = this.getHitCount();
+    long total = hits + this.getMissCount();
+    if (total == 0)
+      return 0.0;
+    return (double) hits / total;
+  }
+}
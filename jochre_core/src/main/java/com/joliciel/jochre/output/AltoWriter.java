@@ -0,0 +1,289 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.output;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.List;
+import java.util.Locale;
+
+import com.joliciel.jochre.graphics.GroupOfShapes;
+import com.joliciel.jochre.graphics.JochreImage;
+import com.joliciel.jochre.graphics.Paragraph;
+import com.joliciel.jochre.graphics.Rectangle;
+import com.joliciel.jochre.graphics.RowOfShapes;
+import com.joliciel.jochre.graphics.Shape;
+import com.joliciel.jochre.letterGuesser.LetterSequence;
+import com.joliciel.talismane.utils.CountedOutcome;
+
+/**
+ * Writes the Alto page for an image directly to a writer, walking the image's
+ * paragraphs, rows, groups and shapes, without going through a template.<br>
+ * <br>
+ * The output is identical to that of the <code>alto_body_*.ftl</code>
+ * templates, down to the white space, number formats and escaping, so that the
+ * templates can still be used interchangeably.
+ *
+ * @author Assaf Urieli
+ *
+ */
+public class AltoWriter {
+  private final int version;
+  private final DecimalFormat pageIndexFormat;
+  private final DecimalFormat imageIndexFormat;
+  private final DecimalFormat paragraphIndexFormat;
+  private final DecimalFormat confidenceFormat;
+  private final DecimalFormat rotationFormat;
+
+  /**
+   * @param version
+   *          the Alto version: 3 for Alto 3.0, anything else for Alto 4.4
+   */
+  public AltoWriter(int version) {
+    this.version = version;
+    // the Alto 4 template sets its locale, the Alto 3 template uses the
+    // default locale
+    DecimalFormatSymbols symbols = new DecimalFormatSymbols(version == 3 ? Locale.getDefault() : Locale.US);
+    this.pageIndexFormat = new DecimalFormat("00000", symbols);
+    this.imageIndexFormat = new DecimalFormat("0", symbols);
+    this.paragraphIndexFormat = new DecimalFormat("000", symbols);
+    this.confidenceFormat = new DecimalFormat(version == 3 ? "0.0000" : "0.00", symbols);
+    this.rotationFormat = new DecimalFormat("0.00", symbols);
+  }
+
+  /**
+   * Write the page element for a given image.
+   */
+  public void write(JochreImage image, Writer writer) throws IOException {
+    if (version == 3)
+      this.writeAlto3(image, writer);
+    else
+      this.writeAlto4(image, writer);
+  }
+
+  private void writeAlto4(JochreImage image, Writer writer) throws IOException {
+    String imageId = pageIndexFormat.format(image.getPage().getIndex()) + "_" + imageIndexFormat.format(image.getIndex());
+    writer.write("    <Page ID=\"PAGE");
+    writer.write(imageId);
+    writer.write("\" HEIGHT=\"");
+    writer.write(Integer.toString(image.getHeight()));
+    writer.write("\" WIDTH=\"");
+    writer.write(Integer.toString(image.getWidth()));
+    writer.write("\" PHYSICAL_IMG_NR=\"");
+    writer.write(Integer.toString(image.getPage().getIndex()));
+    writer.write("\" ROTATION=\"");
+    writer.write(rotationFormat.format(image.getMeanSlopeDegrees()));
+    writer.write("\" LANG=\"");
+    writer.write(image.getPage().getDocument().getLocale().getLanguage());
+    writer.write("\" PC=\"");
+    writer.write(confidenceFormat.format(image.getConfidence()));
+    writer.write("\">\n");
+
+    Rectangle printSpace = image.getPrintSpace();
+    writer.write("      <PrintSpace");
+    this.writeRectangle(printSpace.getHeight(), printSpace.getWidth(), printSpace.getLeft(), printSpace.getTop(), writer);
+    writer.write(">\n");
+
+    for (Paragraph paragraph : image.getParagraphs()) {
+      if (paragraph.isJunk())
+        continue;
+      writer.write("          <TextBlock ID=\"PAR");
+      writer.write(imageId);
+      writer.write("_");
+      writer.write(paragraphIndexFormat.format(paragraph.getIndex()));
+      writer.write("\"");
+      this.writeRectangle(paragraph.getHeight(), paragraph.getWidth(), paragraph.getLeft(), paragraph.getTop(), writer);
+      writer.write(">\n");
+
+      for (RowOfShapes row : paragraph.getRows()) {
+        List<Shape> rowShapes = row.getShapes();
+        Shape firstShape = image.isLeftToRight() ? rowShapes.get(0) : rowShapes.get(rowShapes.size() - 1);
+        writer.write("            <TextLine");
+        this.writeRectangle(row.getHeight(), row.getWidth(), row.getLeft(), row.getTop(), writer);
+        writer.write(" BASELINE=\"");
+        writer.write(Integer.toString(firstShape.getTop() + firstShape.getBaseLine()));
+        writer.write("\">\n");
+
+        for (GroupOfShapes group : row.getGroups()) {
+          this.writeSpace(group, writer);
+
+          writer.write("              <String");
+          this.writeRectangle(group.getHeight(), group.getWidth(), group.getLeft(), group.getTop(), writer);
+          writer.write(" CONTENT=\"");
+          writer.write(escape(group.getWord()));
+          writer.write("\" WC=\"");
+          writer.write(confidenceFormat.format(group.getConfidence()));
+          writer.write("\">\n");
+
+          for (Shape shape : group.getCorrectedShapes()) {
+            writer.write("                <Glyph");
+            this.writeRectangle(shape.getHeight(), shape.getWidth(), shape.getLeft(), shape.getTop(), writer);
+            writer.write(" CONTENT=\"");
+            writer.write(escape(shape.getLetter()));
+            writer.write("\" GC=\"");
+            writer.write(confidenceFormat.format(shape.getConfidence()));
+            writer.write("\" />\n");
+          }
+          writer.write("              </String>\n");
+        }
+        writer.write("            </TextLine>\n");
+      }
+      writer.write("          </TextBlock>\n");
+    }
+    writer.write("      </PrintSpace>\n");
+    writer.write("    </Page>\n");
+    writer.write("    ");
+  }
+
+  private void writeAlto3(JochreImage image, Writer writer) throws IOException {
+    String imageId = pageIndexFormat.format(image.getPage().getIndex()) + "_" + imageIndexFormat.format(image.getIndex());
+    writer.write("    <Page ID=\"PAGE");
+    writer.write(imageId);
+    writer.write("\" HEIGHT=\"");
+    writer.write(Integer.toString(image.getHeight()));
+    writer.write("\" WIDTH=\"");
+    writer.write(Integer.toString(image.getWidth()));
+    writer.write("\" PHYSICAL_IMG_NR=\"");
+    writer.write(Integer.toString(image.getPage().getIndex()));
+    writer.write("\">\n");
+
+    Rectangle printSpace = image.getPrintSpace();
+    writer.write("      <PrintSpace");
+    this.writeRectangle(printSpace.getHeight(), printSpace.getWidth(), printSpace.getLeft(), printSpace.getTop(), writer);
+    writer.write(" PC=\"");
+    writer.write(confidenceFormat.format(image.getConfidence()));
+    writer.write("\">\n");
+
+    for (Paragraph paragraph : image.getParagraphs()) {
+      if (paragraph.isJunk())
+        continue;
+      boolean hyphenated = false;
+      writer.write("          <TextBlock xmlns:ns1=\"http://www.w3.org/1999/xlink\" ID=\"PAR");
+      writer.write(imageId);
+      writer.write("_");
+      writer.write(paragraphIndexFormat.format(paragraph.getIndex()));
+      writer.write("\"");
+      this.writeRectangle(paragraph.getHeight(), paragraph.getWidth(), paragraph.getLeft(), paragraph.getTop(), writer);
+      writer.write(" ns1:type=\"simple\" language=\"");
+      writer.write(image.getPage().getDocument().getLocale().getLanguage());
+      writer.write("\">\n");
+
+      for (RowOfShapes row : paragraph.getRows()) {
+        writer.write("            <TextLine");
+        this.writeRectangle(row.getHeight(), row.getWidth(), row.getLeft(), row.getTop(), writer);
+        writer.write(">\n");
+
+        for (GroupOfShapes group : row.getGroups()) {
+          this.writeSpace(group, writer);
+
+          for (LetterSequence subsequence : group.getSubsequences()) {
+            Rectangle rect = subsequence.getRectangleInGroup(group);
+            if (rect == null)
+              continue;
+            String guessedWord = subsequence.getGuessedWord();
+            if (guessedWord.equals("-")) {
+              writer.write("              <HYP");
+              this.writeRectangle(rect.getHeight(), rect.getWidth(), rect.getLeft(), rect.getTop(), writer);
+              writer.write(" CONTENT=\"-\" />\n");
+              continue;
+            }
+
+            writer.write("              <String");
+            this.writeRectangle(rect.getHeight(), rect.getWidth(), rect.getLeft(), rect.getTop(), writer);
+            writer.write(" CONTENT=\"");
+            writer.write(escape(guessedWord));
+            writer.write("\" ");
+            if (subsequence.getHyphenSubsequence() != null) {
+              hyphenated = true;
+              writer.write("SUBS_TYPE=\"HypPart1\" SUBS_CONTENT=\"");
+              writer.write(escape(subsequence.getHyphenatedString()));
+              writer.write("\"");
+            } else if (hyphenated) {
+              hyphenated = false;
+              writer.write("SUBS_TYPE=\"HypPart2\" SUBS_CONTENT=\"");
+              writer.write(escape(subsequence.getHyphenatedString()));
+              writer.write("\"");
+            }
+            writer.write("  WC=\"");
+            writer.write(confidenceFormat.format(group.getConfidence()));
+            writer.write("\">\n");
+
+            List<CountedOutcome<String>> wordFrequencies = subsequence.getWordFrequencies();
+            if (wordFrequencies.size() > 0 && wordFrequencies.get(0) != null) {
+              String otherWord = wordFrequencies.get(0).getOutcome();
+              if (!otherWord.equals(guessedWord)) {
+                writer.write("                <ALTERNATIVE>");
+                writer.write(escape(otherWord));
+                writer.write("</ALTERNATIVE>\n");
+              }
+            }
+            writer.write("              </String>\n");
+          }
+        }
+        writer.write("            </TextLine>\n");
+      }
+      writer.write("          </TextBlock>\n");
+    }
+    writer.write("      </PrintSpace>\n");
+    writer.write("    </Page>\n");
+    writer.write("    ");
+  }
+
+  /**
+   * The space preceding a group, on a line of its own, which is left empty for
+   * the first group in the row.
+   */
+  private void writeSpace(GroupOfShapes group, Writer writer) throws IOException {
+    writer.write("              ");
+    if (group.getIndex() > 0) {
+      Rectangle space = group.getPrecedingSpace();
+      writer.write("<SP WIDTH=\"");
+      writer.write(Integer.toString(space.getWidth()));
+      writer.write("\" HPOS=\"");
+      writer.write(Integer.toString(space.getLeft()));
+      writer.write("\" VPOS=\"");
+      writer.write(Integer.toString(space.getTop()));
+      writer.write("\"/>");
+    }
+    writer.write("\n");
+  }
+
+  private void writeRectangle(int height, int width, int left, int top, Writer writer) throws IOException {
+    writer.write(" HEIGHT=\"");
+    writer.write(Integer.toString(height));
+    writer.write("\" WIDTH=\"");
+    writer.write(Integer.toString(width));
+    writer.write("\" HPOS=\"");
+    writer.write(Integer.toString(left));
+    writer.write("\" VPOS=\"");
+    writer.write(Integer.toString(top));
+    writer.write("\"");
+  }
+
+  /**
+   * Escape quotes only, as the templates do.
+   */
+  private static String escape(String text) {
+    if (text.indexOf('"') < 0)
+      return text;
+    return text.replace("\"", "&quot;");
+  }
+}
@@ -3,6 +3,7 @@ package com.joliciel.jochre.output;
 import java.io.*;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,38 +21,49 @@ import freemarker.template.TemplateException;
 import freemarker.template.Version;
 
 /**
- * Outputs to Alto 3.0 XML format, see http://www.loc.gov/standards/alto/
+ * Outputs to Alto 3.0 XML format, see http://www.loc.gov/standards/alto/<br>
+ * <br>
+ * Pages are written by an {@link AltoWriter} by default, or through the
+ * <code>alto_body_*.ftl</code> templates if {@link #setUseTemplates(boolean)}
+ * is set, both giving the same output. The templates are only parsed once,
+ * and shared by all exporters.
  **/
 public class AltoXMLExporter extends AbstractExporter implements DocumentObserver {
   private static final Logger LOG = LoggerFactory.getLogger(AltoXMLExporter.class);
-  private Template template;
+  private static final Configuration CONFIGURATION = new Configuration(new Version(2, 3, 23));
+  private static final Map<String, Template> templates = new ConcurrentHashMap<>();
+
+  static {
+    CONFIGURATION.setCacheStorage(new NullCacheStorage());
+    CONFIGURATION.setObjectWrapper(new DefaultObjectWrapperBuilder(new Version(2, 3, 23)).build());
+  }
+
   private final int version;
+  private final AltoWriter altoWriter;
+  private boolean useTemplates = false;
 
   public AltoXMLExporter(Writer writer, int version) {
     super(writer);
     this.version = version;
-    this.initialize();
+    this.altoWriter = new AltoWriter(version);
   }
 
   public AltoXMLExporter(File outDir, boolean zipped, int version) {
     super(outDir, zipped ? "_alto" + version + ".zip" : "_alto" + version + ".xml");
     this.version = version;
-    this.initialize();
+    this.altoWriter = new AltoWriter(version);
   }
 
-  private void initialize() {
-    try {
-      Configuration cfg = new Configuration(new Version(2, 3, 23));
-      cfg.setCacheStorage(new NullCacheStorage());
-      cfg.setObjectWrapper(new DefaultObjectWrapperBuilder(new Version(2, 3, 23)).build());
-
-
-      Reader templateReader = new BufferedReader(new InputStreamReader(AltoXMLExporter.class.getResourceAsStream("alto_body_" + getExactAltoVersion(version) + ".ftl")));
-      this.template = new Template("alto_body", templateReader, cfg);
-    } catch (IOException e) {
-      LOG.error("Failed writing to " + this.getClass().getSimpleName(), e);
-      throw new RuntimeException(e);
-    }
+  private Template getTemplate(String name) {
+    String templateName = name + "_" + getExactAltoVersion(version);
+    return templates.computeIfAbsent(templateName, key -> {
+      try (Reader templateReader = new BufferedReader(new InputStreamReader(AltoXMLExporter.class.getResourceAsStream(key + ".ftl")))) {
+        return new Template(name, templateReader, CONFIGURATION);
+      } catch (IOException e) {
+        LOG.error("Failed reading template " + key, e);
+        throw new RuntimeException(e);
+      }
+    });
   }
 
   private String getExactAltoVersion(int version) {
@@ -71,11 +83,6 @@ public class AltoXMLExporter extends AbstractExporter implements DocumentObserve
   @Override
   public void onDocumentStartInternal(JochreDocument jochreDocument) {
     try {
-      Configuration cfg = new Configuration(new Version(2, 3, 23));
-      cfg.setCacheStorage(new NullCacheStorage());
-      cfg.setObjectWrapper(new DefaultObjectWrapperBuilder(new Version(2, 3, 23)).build());
-
-      Reader templateReader = new BufferedReader(new InputStreamReader(AltoXMLExporter.class.getResourceAsStream("alto_header_" + getExactAltoVersion(version) + ".ftl")));
       Map<String, Object> model = new HashMap<>();
       model.put("document", jochreDocument);
 
@@ -85,8 +92,7 @@ public class AltoXMLExporter extends AbstractExporter implements DocumentObserve
 
       model.put("version", version);
 
-      Template template = new Template("alto_header", templateReader, cfg);
-      template.process(model, writer);
+      this.getTemplate("alto_header").process(model, writer);
       writer.flush();
     } catch (TemplateException e) {
       LOG.error("Failed writing to " + this.getClass().getSimpleName(), e);
@@ -105,9 +111,13 @@ public class AltoXMLExporter extends AbstractExporter implements DocumentObserve
   @Override
   public void onImageComplete(JochreImage jochreImage) {
     try {
-      Map<String, Object> model = new HashMap<>();
-      model.put("image", jochreImage);
-      template.process(model, writer);
+      if (useTemplates) {
+        Map<String, Object> model = new HashMap<>();
+        model.put("image", jochreImage);
+        this.getTemplate("alto_body").process(model, writer);
+      } else {
+        altoWriter.write(jochreImage, writer);
+      }
       writer.flush();
     } catch (TemplateException e) {
       LOG.error("Failed writing to " + this.getClass().getSimpleName(), e);
@@ -125,16 +135,10 @@ public class AltoXMLExporter extends AbstractExporter implements DocumentObserve
   @Override
   public void onDocumentCompleteInternal(JochreDocument jochreDocument) {
     try {
-      Configuration cfg = new Configuration(new Version(2, 3, 23));
-      cfg.setCacheStorage(new NullCacheStorage());
-      cfg.setObjectWrapper(new DefaultObjectWrapperBuilder(new Version(2, 3, 23)).build());
-
-      Reader templateReader = new BufferedReader(new InputStreamReader(AltoXMLExporter.class.getResourceAsStream("alto_footer_" + getExactAltoVersion(version) + ".ftl")));
       Map<String, Object> model = new HashMap<>();
       model.put("document", jochreDocument);
 
-      Template template = new Template("alto_footer", templateReader, cfg);
-      template.process(model, writer);
+      this.getTemplate("alto_footer").process(model, writer);
       writer.flush();
     } catch (TemplateException e) {
       LOG.error("Failed writing to " + this.getClass().getSimpleName(), e);
@@ -144,4 +148,16 @@ public class AltoXMLExporter extends AbstractExporter implements DocumentObserve
       throw new RuntimeException(e);
     }
   }
+
+  /**
+   * Whether pages should be written through the FreeMarker templates rather
+   * than the {@link AltoWriter}. Default is false.
+   */
+  public boolean isUseTemplates() {
+    return useTemplates;
+  }
+
+  public void setUseTemplates(boolean useTemplates) {
+    this.useTemplates = useTemplates;
+  }
 }
@@ -0,0 +1,46 @@
+package com.joliciel.jochre.graphics;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import com.joliciel.jochre.utils.graphics.BitPlane;
+
+/**
+ * Compares the time taken to label a synthetic 4800x7200 page (roughly a 600
+ * dpi newspaper page) sequentially and in parallel bands, and checks that both
+ * give the same components. Takes optional arguments for the number of
+ * threads and the band height.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public class ConnectedComponentLabellerBenchmark {
+  public static void main(String[] args) throws Exception {
+    int threads = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(2, Runtime.getRuntime().availableProcessors());
+    int bandHeight = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+    BitPlane plane = ConnectedComponentLabellerTest.getSyntheticPage(4800, 7200, new Random(42));
+
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      // warm up both implementations before measuring either
+      new ConnectedComponentLabeller(plane);
+      new ConnectedComponentLabeller(plane, pool, bandHeight);
+
+      long startTime = System.nanoTime();
+      ConnectedComponentLabeller sequential = new ConnectedComponentLabeller(plane);
+      double sequentialTime = (System.nanoTime() - startTime) / 1000000.0;
+
+      startTime = System.nanoTime();
+      ConnectedComponentLabeller banded = new ConnectedComponentLabeller(plane, pool, bandHeight);
+      double bandedTime = (System.nanoTime() - startTime) / 1000000.0;
+
+      ConnectedComponentLabellerTest.assertSameComponents(sequential, banded);
+
+      System.out.println("Components: " + sequential.getComponentCount());
+      System.out.println(String.format("Sequential: %.1f ms", sequentialTime));
+      System.out.println(String.format("Banded on %d threads, bands of %d rows: %.1f ms", threads, bandHeight, bandedTime));
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
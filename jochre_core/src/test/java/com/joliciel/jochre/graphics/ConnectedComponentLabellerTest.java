@@ -0,0 +1,138 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.graphics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import com.joliciel.jochre.utils.graphics.BitPlane;
+
+public class ConnectedComponentLabellerTest {
+
+  @Test
+  public void testSmallImage() throws Exception {
+    int[] pixels = {
+        0, 0, 0, 0, 0, 0, 0, 0, // row 0
+        0, 1, 0, 0, 0, 0, 0, 0, // row 1
+        0, 0, 0, 1, 0, 0, 1, 1, // row 2
+        0, 0, 1, 1, 1, 0, 0, 1, // row 3
+        0, 0, 0, 1, 1, 1, 1, 1, // row 4
+        0, 1, 0, 0, 0, 0, 0, 0, // row 5
+        0, 1, 1, 0, 0, 0, 0, 0, // row 6
+        0, 0, 1, 1, 0, 0, 0, 0, // row 7
+    };
+    BitPlane plane = new BitPlane(8, 8);
+    for (int y = 0; y < 8; y++)
+      for (int x = 0; x < 8; x++)
+        plane.set(x, y, pixels[y * 8 + x] == 1);
+
+    ConnectedComponentLabeller labeller = new ConnectedComponentLabeller(plane);
+    assertEquals(3, labeller.getComponentCount());
+
+    assertEquals(1, labeller.getStartX(0));
+    assertEquals(1, labeller.getStartY(0));
+    assertEquals(1, labeller.getPixelCount(0));
+
+    // the second component is joined diagonally to its top-right corner
+    assertEquals(3, labeller.getStartX(1));
+    assertEquals(2, labeller.getStartY(1));
+    assertEquals(2, labeller.getLeft(1));
+    assertEquals(2, labeller.getTop(1));
+    assertEquals(7, labeller.getRight(1));
+    assertEquals(4, labeller.getBottom(1));
+    assertEquals(12, labeller.getPixelCount(1));
+
+    assertEquals(1, labeller.getLeft(2));
+    assertEquals(5, labeller.getTop(2));
+    assertEquals(3, labeller.getRight(2));
+    assertEquals(7, labeller.getBottom(2));
+    assertEquals(5, labeller.getPixelCount(2));
+
+    // with bands of 2 rows, every component crosses a band edge
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      assertSameComponents(labeller, new ConnectedComponentLabeller(plane, pool, 2));
+      assertSameComponents(labeller, new ConnectedComponentLabeller(plane, pool, 1));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testBandsSameAsSequential() throws Exception {
+    BitPlane plane = getSyntheticPage(600, 900, new Random(42));
+    ConnectedComponentLabeller sequential = new ConnectedComponentLabeller(plane);
+
+    ForkJoinPool pool = new ForkJoinPool(3);
+    try {
+      // band heights dividing the page evenly or not, and bands narrower than
+      // most shapes
+      for (int bandHeight : new int[] { 1, 7, 64, 300, 1000 })
+        assertSameComponents(sequential, new ConnectedComponentLabeller(plane, pool, bandHeight));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * A synthetic page with letter-sized blobs, column rules crossing many bands,
+   * and speckles, scaled to its size.
+   */
+  static BitPlane getSyntheticPage(int width, int height, Random random) {
+    BitPlane plane = new BitPlane(width, height);
+    // letter-sized blobs
+    int blobCount = (int) ((long) width * height / 864);
+    for (int i = 0; i < blobCount; i++) {
+      int left = random.nextInt(width - 30);
+      int top = random.nextInt(height - 40);
+      int blobWidth = 5 + random.nextInt(25);
+      int blobHeight = 5 + random.nextInt(35);
+      for (int y = top; y < top + blobHeight; y++) {
+        if (random.nextInt(4) > 0)
+          plane.setRange(left + random.nextInt(3), left + blobWidth - random.nextInt(3), y);
+      }
+    }
+    // column rules crossing many bands
+    for (int x = width / 4; x < width; x += width / 4)
+      for (int y = height / 72; y < height - height / 72; y++)
+        plane.set(x, y, true);
+    // speckles
+    int speckleCount = (int) ((long) width * height / 172);
+    for (int i = 0; i < speckleCount; i++)
+      plane.set(random.nextInt(width), random.nextInt(height), true);
+    return plane;
+  }
+
+  static void assertSameComponents(ConnectedComponentLabeller expected, ConnectedComponentLabeller actual) {
+    assertEquals(expected.getComponentCount(), actual.getComponentCount());
+    for (int i = 0; i < expected.getComponentCount(); i++) {
+      assertEquals(expected.getStartX(i), actual.getStartX(i));
+      assertEquals(expected.getStartY(i), actual.getStartY(i));
+      assertEquals(expected.getLeft(i), actual.getLeft(i));
+      assertEquals(expected.getTop(i), actual.getTop(i));
+      assertEquals(expected.getRight(i), actual.getRight(i));
+      assertEquals(expected.getBottom(i), actual.getBottom(i));
+      assertEquals(expected.getPixelCount(i), actual.getPixelCount(i));
+    }
+  }
+}
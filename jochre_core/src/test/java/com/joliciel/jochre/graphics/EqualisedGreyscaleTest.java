@@ -0,0 +1,86 @@
+package com.joliciel.jochre.graphics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.RescaleOp;
+import java.io.InputStream;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+import com.joliciel.jochre.utils.graphics.ImageUtils;
+
+public class EqualisedGreyscaleTest {
+
+  private BufferedImage getSample() throws Exception {
+    try (InputStream imageFileStream = getClass().getResourceAsStream("/com/joliciel/jochre/test/resources/MendeleMoykherSforimVol1_41_0Excerpt.png")) {
+      return ImageIO.read(imageFileStream);
+    }
+  }
+
+  /**
+   * The pipeline which SourceImage used before brightening, greyscale
+   * conversion and equalisation were fused.
+   */
+  private static BufferedImage getOriginalPipelineImage(BufferedImage image) {
+    BufferedImage rgb = ImageUtils.indexedToRGB(ImageUtils.deepCopy(image));
+    RescaleOp op = new RescaleOp(1.2f, 15f, null);
+    BufferedImage brighter = op.filter(rgb, rgb);
+    BufferedImage greyImage = ImageUtils.toGreyscale(brighter);
+    return OpenCVUtils.equalizeImage(greyImage);
+  }
+
+  private static BufferedImage convert(BufferedImage image, int type) {
+    BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(), type);
+    Graphics2D graphics = converted.createGraphics();
+    graphics.drawImage(image, 0, 0, null);
+    graphics.dispose();
+    return converted;
+  }
+
+  private static void assertSamePixels(BufferedImage expected, BufferedImage actual) {
+    assertEquals(expected.getWidth(), actual.getWidth());
+    assertEquals(expected.getHeight(), actual.getHeight());
+    for (int y = 0; y < expected.getHeight(); y++)
+      for (int x = 0; x < expected.getWidth(); x++)
+        assertEquals("pixel " + x + "," + y, expected.getRaster().getSample(x, y, 0), actual.getRaster().getSample(x, y, 0));
+  }
+
+  @Test
+  public void testGreySameAsOriginalPipeline() throws Exception {
+    BufferedImage image = this.getSample();
+    assertEquals(BufferedImage.TYPE_BYTE_GRAY, image.getType());
+    assertSamePixels(getOriginalPipelineImage(image), ImageUtils.toEqualisedGreyscale(image, 1.2f, 15f));
+  }
+
+  @Test
+  public void testColourSameAsOriginalPipeline() throws Exception {
+    BufferedImage image = this.getSample();
+    // a tinted colour version of the page
+    BufferedImage colourImage = convert(image, BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < colourImage.getHeight(); y++)
+      for (int x = 0; x < colourImage.getWidth(); x++) {
+        int grey = colourImage.getRGB(x, y) & 0xFF;
+        colourImage.setRGB(x, y, (grey << 16) | ((grey * 9 / 10) << 8) | (grey * 7 / 10));
+      }
+
+    assertSamePixels(getOriginalPipelineImage(colourImage), ImageUtils.toEqualisedGreyscale(colourImage, 1.2f, 15f));
+
+    BufferedImage bgrImage = convert(colourImage, BufferedImage.TYPE_3BYTE_BGR);
+    assertSamePixels(getOriginalPipelineImage(bgrImage), ImageUtils.toEqualisedGreyscale(bgrImage, 1.2f, 15f));
+
+    BufferedImage indexedImage = convert(colourImage, BufferedImage.TYPE_BYTE_INDEXED);
+    assertSamePixels(getOriginalPipelineImage(indexedImage), ImageUtils.toEqualisedGreyscale(indexedImage, 1.2f, 15f));
+  }
+
+  @Test
+  public void testSourceImageUntouched() throws Exception {
+    BufferedImage image = this.getSample();
+    BufferedImage copy = ImageUtils.deepCopy(image);
+    ImageUtils.toEqualisedGreyscale(image, 1.2f, 15f);
+    assertSamePixels(copy, image);
+  }
+}
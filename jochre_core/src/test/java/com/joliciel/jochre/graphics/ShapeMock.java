@@ -3,6 +3,7 @@ package com.joliciel.jochre.graphics;
 import java.util.BitSet;
 
 import com.joliciel.jochre.JochreSession;
+import com.joliciel.jochre.utils.graphics.BitPlane;
 
 public class ShapeMock extends Shape {
   private int[] pixels;
@@ -52,6 +53,15 @@ public class ShapeMock extends Shape {
     return this.isPixelBlack(x, y);
   }
 
+  @Override
+  public BitPlane getBinaryPlane(int threshold) {
+    BitPlane binaryPlane = new BitPlane(this.getWidth(), this.getHeight());
+    for (int y = 0; y < this.getHeight(); y++)
+      for (int x = 0; x < this.getWidth(); x++)
+        binaryPlane.set(x, y, this.isPixelBlack(x, y));
+    return binaryPlane;
+  }
+
   @Override
   public BitSet getBlackAndWhiteBitSet(int threshold) {
     return bitset;
@@ -1,6 +1,7 @@
 package com.joliciel.jochre.graphics;
 
 import com.joliciel.jochre.JochreSession;
+import com.joliciel.jochre.utils.graphics.BitPlane;
 
 public class SourceImageMock extends SourceImage {
   private int[] pixels;
@@ -20,6 +21,15 @@ public class SourceImageMock extends SourceImage {
       return false;
   }
 
+  @Override
+  public BitPlane getBinaryPlane(int threshold) {
+    BitPlane binaryPlane = new BitPlane(this.getWidth(), this.getHeight());
+    for (int y = 0; y < this.getHeight(); y++)
+      for (int x = 0; x < this.getWidth(); x++)
+        binaryPlane.set(x, y, this.isPixelBlack(x, y, threshold));
+    return binaryPlane;
+  }
+
   @Override
   public int getRawAbsolutePixel(int x, int y) {
     if (this.isPixelBlack(x, y, 100))
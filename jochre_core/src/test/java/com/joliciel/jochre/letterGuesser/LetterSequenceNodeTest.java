@@ -0,0 +1,103 @@
+package com.joliciel.jochre.letterGuesser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.joliciel.jochre.boundaries.ShapeSequence;
+import com.joliciel.jochre.lexicon.Lexicon;
+import com.joliciel.jochre.lexicon.LexiconTrie;
+import com.joliciel.talismane.machineLearning.Decision;
+
+public class LetterSequenceNodeTest {
+  private static final double PENALTY = 0.1;
+
+  private static LexiconTrie getTrie(String... words) {
+    final List<String> wordList = Arrays.asList(words);
+    Lexicon lexicon = new Lexicon() {
+      @Override
+      public int getFrequency(String word) {
+        return wordList.contains(word) ? 1 : 0;
+      }
+
+      @Override
+      public Iterator<String> getWords() {
+        return wordList.iterator();
+      }
+    };
+    Set<Character> punctuation = new HashSet<>(Arrays.asList(',', '.'));
+    return new LexiconTrie(lexicon, Locale.FRENCH, punctuation);
+  }
+
+  /**
+   * Guess the letters in turn, with the same probability each time, and
+   * return the score ratio between the checked and unchecked sequences after
+   * each letter.
+   */
+  private static double[] getLexiconFactors(LexiconTrie trie, String... letters) {
+    ShapeSequence shapeSequence = mock(ShapeSequence.class);
+    when(shapeSequence.getScore()).thenReturn(1.0);
+
+    LetterSequenceNode checked = new LetterSequenceNode(shapeSequence, trie.getRoot(), null);
+    LetterSequenceNode unchecked = new LetterSequenceNode(shapeSequence, null);
+    double[] factors = new double[letters.length];
+    for (int i = 0; i < letters.length; i++) {
+      Decision decision = new Decision(letters[i], 0.5);
+      List<Decision> guesses = Collections.singletonList(decision);
+      checked = new LetterSequenceNode(checked, decision, guesses, trie.extend(checked.getLexiconPrefix(), letters[i]), PENALTY);
+      unchecked = new LetterSequenceNode(unchecked, decision, guesses);
+      factors[i] = checked.getScore() / unchecked.getScore();
+    }
+    return factors;
+  }
+
+  @Test
+  public void testPenaltyOncePerWord() {
+    LexiconTrie trie = getTrie("chat");
+    double[] factors = getLexiconFactors(trie, "c", "h", "x", "y", "z");
+    assertEquals(1.0, factors[0], 0.0001);
+    assertEquals(1.0, factors[1], 0.0001);
+    // the word stops matching at "x"
+    assertEquals(PENALTY, factors[2], 0.0001);
+    // but isn't penalised again for the following letters
+    assertEquals(PENALTY, factors[3], 0.0001);
+    assertEquals(PENALTY, factors[4], 0.0001);
+  }
+
+  @Test
+  public void testPenaltyPerWord() {
+    LexiconTrie trie = getTrie("chat");
+    double[] factors = getLexiconFactors(trie, "x", "y", ",", "c", "h", "a", "t", ",", "q", "r");
+    assertEquals(PENALTY, factors[0], 0.0001);
+    assertEquals(PENALTY, factors[1], 0.0001);
+    // a lexicon word after the punctuation keeps the first word's penalty
+    assertEquals(PENALTY, factors[6], 0.0001);
+    // another unknown word is penalised once more
+    assertEquals(PENALTY * PENALTY, factors[8], 0.0001);
+    assertEquals(PENALTY * PENALTY, factors[9], 0.0001);
+  }
+
+  @Test
+  public void testUncheckedWord() {
+    LexiconTrie trie = getTrie("chat");
+    ShapeSequence shapeSequence = mock(ShapeSequence.class);
+    when(shapeSequence.getScore()).thenReturn(1.0);
+    LetterSequenceNode node = new LetterSequenceNode(shapeSequence, trie.getRoot(), null);
+    Decision decision = new Decision("1", 0.5);
+    node = new LetterSequenceNode(node, decision, Collections.singletonList(decision), trie.extend(node.getLexiconPrefix(), "1"), PENALTY);
+    // a word which can't be checked isn't penalised
+    assertNull(node.getLexiconPrefix());
+    assertEquals(0.5, node.getScore(), 0.0001);
+  }
+}
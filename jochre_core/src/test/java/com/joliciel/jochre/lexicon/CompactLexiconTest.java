@@ -0,0 +1,102 @@
+package com.joliciel.jochre.lexicon;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class CompactLexiconTest {
+
+  private static class MapLexicon implements Lexicon {
+    private final Map<String, Integer> frequencies = new HashMap<>();
+
+    @Override
+    public int getFrequency(String word) {
+      Integer frequency = frequencies.get(word);
+      return frequency == null ? 0 : frequency;
+    }
+
+    @Override
+    public Iterator<String> getWords() {
+      return frequencies.keySet().iterator();
+    }
+  }
+
+  @Test
+  public void testSameFrequenciesAsWrapper() throws Exception {
+    Locale locale = Locale.FRENCH;
+    MapLexicon baseLexicon = new MapLexicon();
+    baseLexicon.frequencies.put("été", 12);
+    baseLexicon.frequencies.put("a", 100);
+    baseLexicon.frequencies.put("Paris", 5);
+    baseLexicon.frequencies.put("ETE", 0);
+    baseLexicon.frequencies.put("rare", 0);
+    baseLexicon.frequencies.put("A", 3);
+    for (int i = 0; i < 1000; i++)
+      baseLexicon.frequencies.put("mot" + i, i);
+
+    File file = File.createTempFile("lexicon", CompactLexicon.SUFFIX);
+    file.deleteOnExit();
+    CompactLexicon.write(baseLexicon, locale, file);
+    CompactLexicon compactLexicon = new CompactLexicon(file);
+    DefaultLexiconWrapper wrapper = new DefaultLexiconWrapper(baseLexicon, locale);
+
+    assertEquals(locale, compactLexicon.getLocale());
+
+    List<String> words = new ArrayList<>(baseLexicon.frequencies.keySet());
+    words.add("Été");
+    words.add("ÉTÉ");
+    words.add("PARIS");
+    words.add("Mot12");
+    words.add("MOT12");
+    words.add("Rare");
+    words.add("absent");
+    words.add("");
+    for (String word : words)
+      assertEquals(word, wrapper.getFrequency(word), compactLexicon.getFrequency(word));
+
+    assertEquals(1, compactLexicon.getFrequency("ETE"));
+    assertEquals(3, compactLexicon.getFrequency("A"));
+    assertEquals(0, compactLexicon.getFrequency("rare"));
+  }
+
+  @Test
+  public void testGetWords() throws Exception {
+    MapLexicon baseLexicon = new MapLexicon();
+    baseLexicon.frequencies.put("chat", 2);
+    baseLexicon.frequencies.put("chien", 1);
+    baseLexicon.frequencies.put("CHAT", 1);
+
+    File file = File.createTempFile("lexicon", CompactLexicon.SUFFIX);
+    file.deleteOnExit();
+    CompactLexicon.write(baseLexicon, Locale.FRENCH, file);
+    CompactLexicon compactLexicon = new CompactLexicon(file);
+
+    Set<String> words = new HashSet<>();
+    Iterator<String> iterator = compactLexicon.getWords();
+    while (iterator.hasNext())
+      words.add(iterator.next());
+    assertEquals(baseLexicon.frequencies.keySet(), words);
+    // chat, chien, CHAT, Chat, Chien, CHIEN
+    assertEquals(6, compactLexicon.getEntryCount());
+  }
+
+  @Test
+  public void testEmpty() throws Exception {
+    File file = File.createTempFile("lexicon", CompactLexicon.SUFFIX);
+    file.deleteOnExit();
+    CompactLexicon.write(new MapLexicon(), Locale.ENGLISH, file);
+    CompactLexicon compactLexicon = new CompactLexicon(file);
+    assertEquals(0, compactLexicon.getFrequency("word"));
+    assertEquals(false, compactLexicon.getWords().hasNext());
+  }
+}
@@ -0,0 +1,99 @@
+package com.joliciel.jochre.lexicon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class LexiconTrieTest {
+
+  private static LexiconTrie getTrie(String... words) {
+    final List<String> wordList = Arrays.asList(words);
+    Lexicon lexicon = new Lexicon() {
+      @Override
+      public int getFrequency(String word) {
+        return wordList.contains(word) ? 1 : 0;
+      }
+
+      @Override
+      public Iterator<String> getWords() {
+        return wordList.iterator();
+      }
+    };
+    Set<Character> punctuation = new HashSet<>(Arrays.asList(',', '.', '(', ')', '-', '\''));
+    return new LexiconTrie(lexicon, Locale.FRENCH, punctuation);
+  }
+
+  private static LexiconTrie.Prefix extend(LexiconTrie trie, LexiconTrie.Prefix prefix, String... letters) {
+    for (String letter : letters)
+      prefix = trie.extend(prefix, letter);
+    return prefix;
+  }
+
+  @Test
+  public void testPrefixes() {
+    LexiconTrie trie = getTrie("chat", "chaton", "chien", "été", "chat");
+    assertEquals(4, trie.size());
+
+    LexiconTrie.Prefix prefix = extend(trie, trie.getRoot(), "c", "h");
+    assertEquals(3, prefix.getWordCount());
+    assertEquals(2, prefix.getDepth());
+    assertFalse(trie.isWord(prefix));
+
+    prefix = extend(trie, prefix, "a", "t");
+    assertEquals(2, prefix.getWordCount());
+    assertTrue(trie.isWord(prefix));
+
+    prefix = extend(trie, prefix, "x");
+    assertTrue(prefix.isDead());
+    // a dead word stays dead
+    assertTrue(extend(trie, prefix, "o", "n").isDead());
+  }
+
+  @Test
+  public void testFolding() {
+    LexiconTrie trie = getTrie("été", "œuvre");
+    assertTrue(trie.isWord(extend(trie, trie.getRoot(), "E", "T", "E")));
+    assertTrue(trie.isWord(extend(trie, trie.getRoot(), "É", "t", "é")));
+    // dual-character letters are followed character by character
+    assertTrue(trie.isWord(extend(trie, trie.getRoot(), "ét", "é")));
+
+    LexiconTrie yiddishTrie = getTrie("װאָס");
+    assertTrue(yiddishTrie.isWord(extend(yiddishTrie, yiddishTrie.getRoot(), "ו", "ו", "א", "ס")));
+  }
+
+  @Test
+  public void testPunctuation() {
+    LexiconTrie trie = getTrie("chat", "aujourd'hui");
+    // opening and closing punctuation
+    assertSame(trie.getRoot(), extend(trie, trie.getRoot(), "("));
+    assertTrue(trie.isWord(extend(trie, trie.getRoot(), "(", "c", "h", "a", "t")));
+    assertSame(trie.getRoot(), extend(trie, trie.getRoot(), "c", "h", "a", "t", ","));
+    // punctuation inside a lexicon word
+    assertTrue(trie.isWord(extend(trie, trie.getRoot(), "a", "u", "j", "o", "u", "r", "d", "'", "h", "u", "i")));
+    // punctuation after a dead word starts a new word
+    LexiconTrie.Prefix prefix = extend(trie, trie.getRoot(), "x", "y", "-");
+    assertSame(trie.getRoot(), prefix);
+  }
+
+  @Test
+  public void testUnchecked() {
+    LexiconTrie trie = getTrie("chat");
+    // digits and split letter markers leave the word unchecked
+    assertNull(extend(trie, trie.getRoot(), "1"));
+    assertNull(extend(trie, trie.getRoot(), "c", "|h"));
+    assertNull(extend(trie, null, "c", "h"));
+    // until the next punctuation
+    assertTrue(trie.isWord(extend(trie, null, "2", ",", "c", "h", "a", "t")));
+  }
+}
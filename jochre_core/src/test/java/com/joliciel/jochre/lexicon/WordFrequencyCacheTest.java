@@ -0,0 +1,63 @@
+package com.joliciel.jochre.lexicon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import com.joliciel.talismane.utils.CountedOutcome;
+
+public class WordFrequencyCacheTest {
+
+  @Test
+  public void testGetFrequencies() {
+    AtomicInteger loads = new AtomicInteger();
+    Function<String, List<CountedOutcome<String>>> loader = word -> {
+      loads.incrementAndGet();
+      List<CountedOutcome<String>> frequencies = new ArrayList<>();
+      frequencies.add(new CountedOutcome<>(word, word.length()));
+      return frequencies;
+    };
+
+    WordFrequencyCache cache = new WordFrequencyCache(100);
+    List<CountedOutcome<String>> frequencies = cache.getFrequencies("abc", loader);
+    assertEquals(3, frequencies.get(0).getCount());
+    assertSame(frequencies, cache.getFrequencies("abc", loader));
+    assertEquals(1, loads.get());
+
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(0.5, cache.getHitRate(), 0.0001);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testUnmodifiable() {
+    WordFrequencyCache cache = new WordFrequencyCache(100);
+    List<CountedOutcome<String>> frequencies = cache.getFrequencies("abc", word -> new ArrayList<>());
+    frequencies.add(new CountedOutcome<>("abc", 1));
+  }
+
+  @Test
+  public void testBounded() {
+    AtomicInteger loads = new AtomicInteger();
+    Function<String, List<CountedOutcome<String>>> loader = word -> {
+      loads.incrementAndGet();
+      return new ArrayList<>();
+    };
+
+    WordFrequencyCache cache = new WordFrequencyCache(10);
+    for (int i = 0; i < 100; i++) {
+      cache.getFrequencies("word" + i, loader);
+      // keep a frequent word in use
+      cache.getFrequencies("common", loader);
+      assertTrue(cache.size() <= 10);
+    }
+    assertEquals(101, loads.get());
+  }
+}
@@ -0,0 +1,199 @@
+package com.joliciel.jochre.output;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Test;
+
+import com.joliciel.jochre.doc.JochreDocument;
+import com.joliciel.jochre.doc.JochrePage;
+import com.joliciel.jochre.graphics.GroupOfShapes;
+import com.joliciel.jochre.graphics.JochreImage;
+import com.joliciel.jochre.graphics.Paragraph;
+import com.joliciel.jochre.graphics.Rectangle;
+import com.joliciel.jochre.graphics.RowOfShapes;
+import com.joliciel.jochre.graphics.Shape;
+import com.joliciel.jochre.letterGuesser.LetterSequence;
+import com.joliciel.talismane.utils.CountedOutcome;
+
+public class AltoXMLExporterTest {
+
+  private static Rectangle rectangle(int left, int top, int width, int height) {
+    Rectangle rect = mock(Rectangle.class);
+    when(rect.getLeft()).thenReturn(left);
+    when(rect.getTop()).thenReturn(top);
+    when(rect.getWidth()).thenReturn(width);
+    when(rect.getHeight()).thenReturn(height);
+    return rect;
+  }
+
+  private static Shape shape(String letter, int left, double confidence) {
+    Shape shape = mock(Shape.class);
+    when(shape.getLetter()).thenReturn(letter);
+    when(shape.getLeft()).thenReturn(left);
+    when(shape.getTop()).thenReturn(100);
+    when(shape.getWidth()).thenReturn(10);
+    when(shape.getHeight()).thenReturn(20);
+    when(shape.getBaseLine()).thenReturn(15);
+    when(shape.getConfidence()).thenReturn(confidence);
+    return shape;
+  }
+
+  private static LetterSequence subsequence(String word, String alternative) {
+    LetterSequence subsequence = mock(LetterSequence.class);
+    when(subsequence.getGuessedWord()).thenReturn(word);
+    when(subsequence.getHyphenatedString()).thenReturn(word);
+    List<CountedOutcome<String>> frequencies = new ArrayList<>();
+    if (alternative != null)
+      frequencies.add(new CountedOutcome<>(alternative, 3));
+    when(subsequence.getWordFrequencies()).thenReturn(frequencies);
+    return subsequence;
+  }
+
+  private JochreImage getImage() {
+    JochreDocument doc = mock(JochreDocument.class);
+    JochrePage page = mock(JochrePage.class);
+    JochreImage image = mock(JochreImage.class);
+    Paragraph paragraph = mock(Paragraph.class);
+    Paragraph junkParagraph = mock(Paragraph.class);
+    RowOfShapes row1 = mock(RowOfShapes.class);
+    RowOfShapes row2 = mock(RowOfShapes.class);
+    GroupOfShapes group1 = mock(GroupOfShapes.class);
+    GroupOfShapes group2 = mock(GroupOfShapes.class);
+    GroupOfShapes group3 = mock(GroupOfShapes.class);
+
+    when(doc.getLocale()).thenReturn(new Locale("yi"));
+    when(page.getDocument()).thenReturn(doc);
+    when(page.getIndex()).thenReturn(12);
+    when(image.getPage()).thenReturn(page);
+    when(image.getIndex()).thenReturn(0);
+    when(image.getWidth()).thenReturn(2000);
+    when(image.getHeight()).thenReturn(3000);
+    when(image.getMeanSlopeDegrees()).thenReturn(-0.125);
+    when(image.getConfidence()).thenReturn(0.87654);
+    when(image.isLeftToRight()).thenReturn(false);
+    Rectangle printSpace = rectangle(100, 200, 1800, 2600);
+    when(image.getPrintSpace()).thenReturn(printSpace);
+    when(image.getParagraphs()).thenReturn(Arrays.asList(junkParagraph, paragraph));
+
+    when(junkParagraph.isJunk()).thenReturn(true);
+    when(paragraph.getIndex()).thenReturn(1);
+    when(paragraph.getLeft()).thenReturn(100);
+    when(paragraph.getTop()).thenReturn(200);
+    when(paragraph.getWidth()).thenReturn(1800);
+    when(paragraph.getHeight()).thenReturn(100);
+    when(paragraph.getRows()).thenReturn(Arrays.asList(row1, row2));
+
+    Shape shape1 = shape("א", 300, 0.95);
+    Shape shape2 = shape("\"", 290, 0.5);
+    Shape shape3 = shape("ב", 200, 0.123456);
+    Shape shape4 = shape("-", 180, 0.9);
+    Shape shape5 = shape("ג", 300, 0.8);
+
+    when(row1.getLeft()).thenReturn(180);
+    when(row1.getTop()).thenReturn(100);
+    when(row1.getWidth()).thenReturn(130);
+    when(row1.getHeight()).thenReturn(20);
+    when(row1.getShapes()).thenReturn(Arrays.asList(shape4, shape3, shape2, shape1));
+    when(row1.getGroups()).thenReturn(Arrays.asList(group1, group2));
+
+    when(row2.getLeft()).thenReturn(300);
+    when(row2.getTop()).thenReturn(130);
+    when(row2.getWidth()).thenReturn(10);
+    when(row2.getHeight()).thenReturn(20);
+    when(row2.getShapes()).thenReturn(Arrays.asList(shape5));
+    when(row2.getGroups()).thenReturn(Arrays.asList(group3));
+
+    Rectangle rect1 = rectangle(290, 100, 20, 20);
+    when(group1.getIndex()).thenReturn(0);
+    when(group1.getLeft()).thenReturn(290);
+    when(group1.getTop()).thenReturn(100);
+    when(group1.getWidth()).thenReturn(20);
+    when(group1.getHeight()).thenReturn(20);
+    when(group1.getWord()).thenReturn("א\"");
+    when(group1.getConfidence()).thenReturn(0.725);
+    when(group1.getCorrectedShapes()).thenReturn(Arrays.asList(shape1, shape2));
+    LetterSequence subsequence1 = subsequence("א\"", "אַ\"");
+    when(subsequence1.getRectangleInGroup(group1)).thenReturn(rect1);
+    when(group1.getSubsequences()).thenReturn(Arrays.asList(subsequence1));
+
+    Rectangle rect2 = rectangle(200, 100, 10, 20);
+    Rectangle rect3 = rectangle(180, 100, 10, 20);
+    Rectangle space = rectangle(211, 100, 78, 20);
+    when(group2.getIndex()).thenReturn(1);
+    when(group2.getLeft()).thenReturn(180);
+    when(group2.getTop()).thenReturn(100);
+    when(group2.getWidth()).thenReturn(30);
+    when(group2.getHeight()).thenReturn(20);
+    when(group2.getWord()).thenReturn("ב-");
+    when(group2.getConfidence()).thenReturn(0.5);
+    when(group2.getPrecedingSpace()).thenReturn(space);
+    when(group2.getCorrectedShapes()).thenReturn(Arrays.asList(shape3, shape4));
+    LetterSequence subsequence2 = subsequence("ב", "ב");
+    LetterSequence hyphenSubsequence = subsequence("-", null);
+    when(subsequence2.getRectangleInGroup(group2)).thenReturn(rect2);
+    when(subsequence2.getHyphenSubsequence()).thenReturn(hyphenSubsequence);
+    when(subsequence2.getHyphenatedString()).thenReturn("בג");
+    when(hyphenSubsequence.getRectangleInGroup(group2)).thenReturn(rect3);
+    when(group2.getSubsequences()).thenReturn(Arrays.asList(subsequence2, hyphenSubsequence));
+
+    Rectangle rect4 = rectangle(300, 130, 10, 20);
+    when(group3.getIndex()).thenReturn(0);
+    when(group3.getLeft()).thenReturn(300);
+    when(group3.getTop()).thenReturn(130);
+    when(group3.getWidth()).thenReturn(10);
+    when(group3.getHeight()).thenReturn(20);
+    when(group3.getWord()).thenReturn("ג");
+    when(group3.getConfidence()).thenReturn(0.8);
+    when(group3.getCorrectedShapes()).thenReturn(Arrays.asList(shape5));
+    LetterSequence subsequence3 = subsequence("ג", null);
+    when(subsequence3.getRectangleInGroup(group3)).thenReturn(rect4);
+    when(subsequence3.getHyphenatedString()).thenReturn("בג");
+    // a subsequence outside the group is skipped
+    LetterSequence outside = subsequence("x", null);
+    when(group3.getSubsequences()).thenReturn(Arrays.asList(subsequence3, outside));
+
+    return image;
+  }
+
+  private String export(JochreImage image, int version, boolean useTemplates) {
+    StringWriter writer = new StringWriter();
+    AltoXMLExporter exporter = new AltoXMLExporter(writer, version);
+    exporter.setUseTemplates(useTemplates);
+    exporter.onImageComplete(image);
+    return writer.toString();
+  }
+
+  @Test
+  public void testAlto4SameAsTemplate() {
+    JochreImage image = this.getImage();
+    String result = this.export(image, 4, false);
+    assertEquals(this.export(image, 4, true), result);
+
+    assertTrue(result.startsWith("    <Page ID=\"PAGE00012_0\" HEIGHT=\"3000\" WIDTH=\"2000\" PHYSICAL_IMG_NR=\"12\" ROTATION=\"-0.12\" LANG=\"yi\" PC=\"0.88\">\n"));
+    assertTrue(result.contains("          <TextBlock ID=\"PAR00012_0_001\" HEIGHT=\"100\" WIDTH=\"1800\" HPOS=\"100\" VPOS=\"200\">\n"));
+    assertTrue(result.contains("            <TextLine HEIGHT=\"20\" WIDTH=\"130\" HPOS=\"180\" VPOS=\"100\" BASELINE=\"115\">\n"));
+    assertTrue(result.contains("              <SP WIDTH=\"78\" HPOS=\"211\" VPOS=\"100\"/>\n"));
+    assertTrue(result.contains(" CONTENT=\"&quot;\" GC=\"0.50\" />\n"));
+  }
+
+  @Test
+  public void testAlto3SameAsTemplate() {
+    JochreImage image = this.getImage();
+    String result = this.export(image, 3, false);
+    assertEquals(this.export(image, 3, true), result);
+
+    assertTrue(result.contains("<ALTERNATIVE>אַ&quot;</ALTERNATIVE>"));
+    assertTrue(result.contains("SUBS_TYPE=\"HypPart1\" SUBS_CONTENT=\"בג\"  WC="));
+    assertTrue(result.contains("SUBS_TYPE=\"HypPart2\" SUBS_CONTENT=\"בג\"  WC="));
+    assertTrue(result.contains("<HYP HEIGHT=\"20\" WIDTH=\"10\" HPOS=\"180\" VPOS=\"100\" CONTENT=\"-\" />"));
+  }
+}
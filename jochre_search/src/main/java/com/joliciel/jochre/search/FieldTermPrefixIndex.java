@@ -0,0 +1,289 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2016 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.StringHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-memory table of all of the terms in a given field of an index reader,
+ * sorted, with the number of documents containing each term and the first
+ * such document, used to find the most frequent terms starting with a given
+ * prefix without reading the index.<br>
+ * <br>
+ * The table for each segment is built once and cached until the segment is
+ * closed, so that after a refresh only new segments need to be read, after
+ * which the segment tables are merged. A prefix lookup is a binary search
+ * followed by a scan of the terms sharing the prefix. The display text of each
+ * term is only read from its first document for the terms actually
+ * returned.<br>
+ * <br>
+ * A Lucene FST would hold the same table in less memory, but sorted arrays
+ * keep the segment tables cheap to merge after each refresh, and the tables
+ * hold only the distinct values of short metadata fields.
+ *
+ * @author Assaf Urieli
+ *
+ */
+public class FieldTermPrefixIndex {
+  private static final Logger LOG = LoggerFactory.getLogger(FieldTermPrefixIndex.class);
+
+  private static final ConcurrentHashMap<IndexReader.CacheKey, Map<String, TermTable>> segmentTables = new ConcurrentHashMap<>();
+
+  private final String field;
+  private final Set<String> fieldsToLoad;
+  private final List<LeafReader> segmentReaders = new ArrayList<>();
+  private final TermTable table;
+
+  /**
+   * Sorted terms, with their weights and the first document containing each
+   * term. For a merged table, the segment of this first document is given by
+   * the index of the segment's table in the merged list.
+   */
+  static final class TermTable {
+    final BytesRef[] terms;
+    final int[] weights;
+    final int[] docIds;
+    final int[] segments;
+
+    TermTable(BytesRef[] terms, int[] weights, int[] docIds, int[] segments) {
+      this.terms = terms;
+      this.weights = weights;
+      this.docIds = docIds;
+      this.segments = segments;
+    }
+
+    int size() {
+      return terms.length;
+    }
+
+    int getSegment(int i) {
+      return segments == null ? 0 : segments[i];
+    }
+  }
+
+  public FieldTermPrefixIndex(IndexReader reader, String field) throws IOException {
+    this.field = field;
+    this.fieldsToLoad = Collections.singleton(field);
+    List<TermTable> tables = new ArrayList<>();
+    for (LeafReaderContext leaf : reader.leaves()) {
+      TermTable segmentTable = getSegmentTable(leaf.reader(), field);
+      if (segmentTable.size() > 0) {
+        tables.add(segmentTable);
+        segmentReaders.add(leaf.reader());
+      }
+    }
+    if (tables.size() == 1)
+      this.table = tables.get(0);
+    else
+      this.table = merge(tables);
+  }
+
+  private static TermTable getSegmentTable(LeafReader leafReader, String field) throws IOException {
+    IndexReader.CacheHelper cacheHelper = leafReader.getCoreCacheHelper();
+    if (cacheHelper == null)
+      return readSegment(leafReader, field);
+
+    IndexReader.CacheKey key = cacheHelper.getKey();
+    Map<String, TermTable> fieldTables = segmentTables.get(key);
+    if (fieldTables == null) {
+      fieldTables = new ConcurrentHashMap<>();
+      Map<String, TermTable> previous = segmentTables.putIfAbsent(key, fieldTables);
+      if (previous == null)
+        cacheHelper.addClosedListener(closedKey -> segmentTables.remove(closedKey));
+      else
+        fieldTables = previous;
+    }
+
+    TermTable segmentTable = fieldTables.get(field);
+    if (segmentTable == null) {
+      segmentTable = readSegment(leafReader, field);
+      fieldTables.put(field, segmentTable);
+    }
+    return segmentTable;
+  }
+
+  /**
+   * Read all of a segment's terms for the field, with the first document
+   * containing each term.
+   */
+  private static TermTable readSegment(LeafReader leafReader, String field) throws IOException {
+    List<BytesRef> terms = new ArrayList<>();
+    List<Integer> weights = new ArrayList<>();
+    List<Integer> docIds = new ArrayList<>();
+
+    Terms fieldTerms = leafReader.terms(field);
+    if (fieldTerms != null) {
+      TermsEnum termsEnum = fieldTerms.iterator();
+      PostingsEnum postingsEnum = null;
+      BytesRef bytesRef = null;
+      while ((bytesRef = termsEnum.next()) != null) {
+        postingsEnum = termsEnum.postings(postingsEnum, PostingsEnum.NONE);
+        terms.add(BytesRef.deepCopyOf(bytesRef));
+        weights.add(termsEnum.docFreq());
+        docIds.add(postingsEnum.nextDoc());
+      }
+    }
+
+    if (LOG.isDebugEnabled())
+      LOG.debug("Read " + terms.size() + " terms for field " + field + " in segment " + leafReader);
+
+    int[] weightArray = new int[weights.size()];
+    int[] docIdArray = new int[docIds.size()];
+    for (int i = 0; i < weightArray.length; i++) {
+      weightArray[i] = weights.get(i);
+      docIdArray[i] = docIds.get(i);
+    }
+    return new TermTable(terms.toArray(new BytesRef[terms.size()]), weightArray, docIdArray, null);
+  }
+
+  /**
+   * Merge sorted segment tables into a single sorted table, summing the
+   * weights of terms found in several segments, and keeping the first
+   * document from the first segment containing the term.
+   */
+  static TermTable merge(List<TermTable> tables) {
+    int maxSize = 0;
+    for (TermTable segmentTable : tables)
+      maxSize += segmentTable.size();
+
+    BytesRef[] terms = new BytesRef[maxSize];
+    int[] weights = new int[maxSize];
+    int[] docIds = new int[maxSize];
+    int[] segments = new int[maxSize];
+
+    int[] positions = new int[tables.size()];
+    PriorityQueue<Integer> queue = new PriorityQueue<>(Math.max(1, tables.size()), (a, b) -> {
+      int result = tables.get(a).terms[positions[a]].compareTo(tables.get(b).terms[positions[b]]);
+      return result != 0 ? result : Integer.compare(a, b);
+    });
+    for (int i = 0; i < tables.size(); i++) {
+      if (tables.get(i).size() > 0)
+        queue.add(i);
+    }
+
+    int size = 0;
+    while (!queue.isEmpty()) {
+      int i = queue.poll();
+      TermTable segmentTable = tables.get(i);
+      int position = positions[i];
+      BytesRef term = segmentTable.terms[position];
+      if (size > 0 && terms[size - 1].equals(term)) {
+        weights[size - 1] += segmentTable.weights[position];
+      } else {
+        terms[size] = term;
+        weights[size] = segmentTable.weights[position];
+        docIds[size] = segmentTable.docIds[position];
+        segments[size] = i;
+        size++;
+      }
+      positions[i]++;
+      if (positions[i] < segmentTable.size())
+        queue.add(i);
+    }
+
+    if (size < maxSize) {
+      return new TermTable(Arrays.copyOf(terms, size), Arrays.copyOf(weights, size), Arrays.copyOf(docIds, size), Arrays.copyOf(segments, size));
+    }
+    return new TermTable(terms, weights, docIds, segments);
+  }
+
+  /**
+   * Find the display text for the most frequent terms starting with a given
+   * prefix, sorted alphabetically. The display text is read from the first
+   * document containing the term, since the term itself may have been
+   * normalised (e.g. lowercase or without accents).
+   *
+   * @param maxResults
+   *          the maximum number of results, or 0 for all results.
+   */
+  public List<String> getResults(BytesRef prefix, int maxResults) throws IOException {
+    List<String> results = new ArrayList<>();
+    for (int i : getTopTerms(table, prefix, maxResults)) {
+      String display = null;
+      if (table.docIds[i] != PostingsEnum.NO_MORE_DOCS) {
+        Document doc = segmentReaders.get(table.getSegment(i)).document(table.docIds[i], fieldsToLoad);
+        display = doc.get(field);
+      }
+      if (display == null)
+        display = table.terms[i].utf8ToString();
+      results.add(display);
+    }
+    Collections.sort(results);
+    return results;
+  }
+
+  /**
+   * The positions in the table of the terms with the highest weights starting
+   * with a given prefix, in no particular order. For equal weights, the earlier
+   * term is kept.
+   */
+  static List<Integer> getTopTerms(TermTable table, BytesRef prefix, int maxResults) {
+    // binary search for the first term >= prefix
+    int low = 0;
+    int high = table.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (table.terms[mid].compareTo(prefix) < 0)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+
+    // keep the N highest weights, the worst result at the head of the queue
+    PriorityQueue<Integer> best = new PriorityQueue<>((a, b) -> table.weights[a] != table.weights[b]
+        ? Integer.compare(table.weights[a], table.weights[b])
+        : Integer.compare(b, a));
+    for (int i = low; i < table.size() && StringHelper.startsWith(table.terms[i], prefix); i++) {
+      if (maxResults <= 0 || best.size() < maxResults) {
+        best.add(i);
+      } else if (table.weights[i] > table.weights[best.peek()]) {
+        best.poll();
+        best.add(i);
+      }
+    }
+    return new ArrayList<>(best);
+  }
+
+  /**
+   * The number of distinct terms in the field.
+   */
+  public int size() {
+    return table.size();
+  }
+}
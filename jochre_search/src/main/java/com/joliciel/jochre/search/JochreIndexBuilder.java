@@ -29,6 +29,9 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
@@ -67,8 +70,14 @@ public class JochreIndexBuilder implements Runnable, TokenExtractor {
   private final boolean forceUpdate;
 
   private final int wordsPerDoc;
+  private final int threadCount;
+  private final boolean writePageImages;
 
-  private List<JochreToken> currentStrings = null;
+  /**
+   * The tokens of the document currently being added to the index by each
+   * thread, read back by the text layer analyser on the same thread.
+   */
+  private final ThreadLocal<List<JochreToken>> currentStrings = new ThreadLocal<>();
 
   /**
    *
@@ -83,6 +92,8 @@ public class JochreIndexBuilder implements Runnable, TokenExtractor {
     this.config = JochreSearchConfig.getInstance(configId);
     this.contentDir = config.getContentDir();
     this.wordsPerDoc = config.getConfig().getInt("index-builder.words-per-document");
+    this.threadCount = config.getConfig().getInt("index-builder.threads");
+    this.writePageImages = config.getConfig().getBoolean("index-builder.page-image-store");
     this.forceUpdate = forceUpdate;
   }
 
@@ -138,14 +149,24 @@ public class JochreIndexBuilder implements Runnable, TokenExtractor {
         searchStatusHolder.setStatus(SearchStatus.BUSY);
         searchStatusHolder.setTotalCount(subdirs.length);
 
-        for (File subdir : subdirs) {
+        if (threadCount > 1) {
+          // create the shared alto string fixer before the workers need it
+          AltoStringFixer.getInstance(configId);
+
+          ExecutorService executor = Executors.newFixedThreadPool(threadCount);
           try {
-            searchStatusHolder.setAction("Indexing " + subdir.getName());
-            this.processDocument(manager, indexWriter, subdir, forceUpdate);
-            searchStatusHolder.incrementSuccessCount(1);
-          } catch (Exception e) {
-            LOG.error("Failed to index " + subdir.getName(), e);
-            searchStatusHolder.incrementFailureCount(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (File subdir : subdirs) {
+              futures.add(executor.submit(() -> this.indexDirectory(manager, indexWriter, subdir)));
+            }
+            for (Future<?> future : futures)
+              future.get();
+          } finally {
+            executor.shutdownNow();
+          }
+        } else {
+          for (File subdir : subdirs) {
+            this.indexDirectory(manager, indexWriter, subdir);
           }
         }
 
@@ -172,6 +193,17 @@ public class JochreIndexBuilder implements Runnable, TokenExtractor {
     }
   }
 
+  private void indexDirectory(JochreSearchManager manager, IndexWriter indexWriter, File subdir) {
+    try {
+      searchStatusHolder.setAction("Indexing " + subdir.getName());
+      this.processDocument(manager, indexWriter, subdir, forceUpdate);
+      searchStatusHolder.incrementSuccessCount(1);
+    } catch (Exception e) {
+      LOG.error("Failed to index " + subdir.getName(), e);
+      searchStatusHolder.incrementFailureCount(1);
+    }
+  }
+
   private void processDocument(JochreSearchManager manager, IndexWriter indexWriter, File documentDir,
       boolean forceUpdate) {
     try {
@@ -267,6 +299,12 @@ public class JochreIndexBuilder implements Runnable, TokenExtractor {
       } finally {
         uis.reallyClose();
       }
+
+      if (writePageImages && jochreIndexDirectory.getPdfFile() != null) {
+        PageImageStore pageImageStore = new PageImageStore(jochreIndexDirectory.getPdfFile());
+        if (!pageImageStore.isUpToDate())
+          pageImageStore.write();
+      }
     } catch (IOException e) {
       LOG.error("Failed to update jochreIndexDirectory " + jochreIndexDirectory.getName(), e);
       throw new RuntimeException(e);
@@ -398,15 +436,21 @@ public class JochreIndexBuilder implements Runnable, TokenExtractor {
 
   @Override
   public List<JochreToken> findTokens(String fieldName, Reader input) {
-    return currentStrings;
+    return currentStrings.get();
   }
 
+  /**
+   * The tokens of the document being indexed by the current thread.
+   */
   public List<JochreToken> getCurrentStrings() {
-    return currentStrings;
+    return currentStrings.get();
   }
 
+  /**
+   * Set the tokens of the document about to be indexed by the current thread.
+   */
   public void setCurrentStrings(List<JochreToken> currentStrings) {
-    this.currentStrings = currentStrings;
+    this.currentStrings.set(currentStrings);
   }
 
   /**
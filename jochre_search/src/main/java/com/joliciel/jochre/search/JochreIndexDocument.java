@@ -7,6 +7,7 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.lucene.document.BinaryDocValuesField;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FieldType;
@@ -15,10 +16,14 @@ import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.BinaryDocValues;
 import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.util.BytesRef;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -72,11 +77,16 @@ public class JochreIndexDocument {
   private TIntObjectMap<TIntObjectMap<Rectangle>> rectangles = null;
   private TIntObjectMap<TIntIntMap> startIndexes = null;
   private TIntIntMap rowCounts = null;
+  private RowGeometry rowGeometry = null;
+  private boolean rowGeometryRead = false;
   private int docId = -1;
 
   private JochreIndexTermLister termLister;
 
-  /* Indexed, tokenized, stored. */
+  /*
+   * Indexed, tokenized, stored, with full term vectors so that a single
+   * document's terms can be listed without scanning the index vocabulary.
+   */
   public static final FieldType TYPE_STORED = new FieldType();
 
   static {
@@ -84,6 +94,8 @@ public class JochreIndexDocument {
     TYPE_STORED.setStored(true);
     TYPE_STORED.setStoreTermVectors(true);
     TYPE_STORED.setStoreTermVectorPositions(true);
+    TYPE_STORED.setStoreTermVectorOffsets(true);
+    TYPE_STORED.setStoreTermVectorPayloads(true);
     TYPE_STORED.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
     TYPE_STORED.freeze();
   }
@@ -280,29 +292,8 @@ public class JochreIndexDocument {
       if (this.url != null)
         doc.add(new StringField(JochreIndexField.url.name(), this.url, Field.Store.YES));
 
-      for (int pageIndex : rectangles.keys()) {
-        TIntObjectMap<Rectangle> rowRectangles = rectangles.get(pageIndex);
-        for (int rowIndex : rowRectangles.keys()) {
-          Rectangle rect = rowRectangles.get(rowIndex);
-          String fieldName = JochreIndexField.rect.name() + pageIndex + "_" + rowIndex;
-          doc.add(new StoredField(fieldName, this.rectToString(rect)));
-        }
-      }
-
-      for (int pageIndex : startIndexes.keys()) {
-        TIntIntMap rowStartIndexes = startIndexes.get(pageIndex);
-        for (int rowIndex : rowStartIndexes.keys()) {
-          int startIndex = rowStartIndexes.get(rowIndex);
-          String fieldName = JochreIndexField.start.name() + pageIndex + "_" + rowIndex;
-          doc.add(new StoredField(fieldName, startIndex));
-        }
-      }
-
-      for (int pageIndex : rowCounts.keys()) {
-        int rowCount = rowCounts.get(pageIndex);
-        String fieldName = JochreIndexField.rowCount.name() + pageIndex;
-        doc.add(new StoredField(fieldName, rowCount));
-      }
+      byte[] rowGeometry = RowGeometry.encode(rowCounts, rectangles, startIndexes);
+      doc.add(new BinaryDocValuesField(JochreIndexField.rowGeometry.name(), new BytesRef(rowGeometry)));
 
       indexWriter.addDocument(doc);
 
@@ -378,6 +369,11 @@ public class JochreIndexDocument {
       rect = rowRectangles.get(rowIndex);
       if (rect == null)
         throw new IndexFieldNotFoundException("No rectangles for pageIndex " + pageIndex + ", rowIndex " + rowIndex);
+    } else if (this.getRowGeometry() != null) {
+      rect = rowGeometry.getRectangle(pageIndex, rowIndex);
+      if (rect == null)
+        throw new IndexFieldNotFoundException("No rectangle found for pageIndex " + pageIndex + ", rowIndex " + rowIndex + " in document "
+            + this.describe());
     } else if (doc != null) {
       String fieldName = JochreIndexField.rect.name() + pageIndex + "_" + rowIndex;
       String rectString = this.doc.get(fieldName);
@@ -404,6 +400,11 @@ public class JochreIndexDocument {
       startIndex = rowStartIndexes.get(rowIndex);
       if (startIndex == -1)
         throw new IndexFieldNotFoundException("No start index for pageIndex " + pageIndex + ", rowIndex " + rowIndex);
+    } else if (this.getRowGeometry() != null) {
+      startIndex = rowGeometry.getStartIndex(pageIndex, rowIndex);
+      if (startIndex == -1)
+        throw new IndexFieldNotFoundException("No start index found for pageIndex " + pageIndex + ", rowIndex " + rowIndex + " in document "
+            + this.describe());
     } else if (doc != null) {
       String fieldName = JochreIndexField.start.name() + pageIndex + "_" + rowIndex;
       Number startIndexObj = null;
@@ -450,6 +451,10 @@ public class JochreIndexDocument {
     int rowCount = -1;
     if (rowCounts != null) {
       return rowCounts.get(pageIndex);
+    } else if (this.getRowGeometry() != null) {
+      rowCount = rowGeometry.getRowCount(pageIndex);
+      if (rowCount == -1)
+        throw new IndexFieldNotFoundException("No rowCount found for pageIndex " + pageIndex + " in document " + this.describe());
     } else {
       String fieldName = JochreIndexField.rowCount.name() + pageIndex;
       Number rowCountObj = null;
@@ -466,6 +471,33 @@ public class JochreIndexDocument {
     return rowCount;
   }
 
+  /**
+   * The row geometry stored as a doc value, read once when first needed, or
+   * null if the document was indexed before row geometry was stored this way.
+   */
+  private RowGeometry getRowGeometry() {
+    if (!rowGeometryRead) {
+      rowGeometryRead = true;
+      if (indexSearcher != null) {
+        try {
+          List<LeafReaderContext> leaves = indexSearcher.getIndexReader().leaves();
+          LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(docId, leaves));
+          BinaryDocValues docValues = leaf.reader().getBinaryDocValues(JochreIndexField.rowGeometry.name());
+          if (docValues != null && docValues.advanceExact(docId - leaf.docBase))
+            rowGeometry = new RowGeometry(docValues.binaryValue());
+        } catch (IOException e) {
+          LOG.error("Failed to read row geometry for docId " + docId, e);
+          throw new RuntimeException(e);
+        }
+      }
+    }
+    return rowGeometry;
+  }
+
+  private String describe() {
+    return this.name + ", pages " + this.startPage + " to " + this.endPage + " (docId=" + this.docId + ")";
+  }
+
   /**
    * The index of the first page contained in this document.
    */
@@ -489,18 +521,16 @@ public class JochreIndexDocument {
   }
 
   /**
-   * Get the image corresponding to a particular page index.
+   * Get the image corresponding to a particular page index. The image may be
+   * shared with other requests via the {@link PageImageCache}, and must not be
+   * modified.
    */
   public BufferedImage getImage(int pageIndex) {
-    PdfImageReader pdfImageReader = new PdfImageReader(this.directory.getPdfFile());
-    BufferedImage image = pdfImageReader.readImage(pageIndex);
+    PageImageCache pageImageCache = PageImageCache.getInstance(config.getConfigId());
+    BufferedImage image = pageImageCache.getImage(this.directory.getPdfFile(), pageIndex);
     return image;
   }
 
-  private String rectToString(Rectangle rect) {
-    return rect.x + "|" + rect.y + "|" + rect.width + "|" + rect.height;
-  }
-
   private Rectangle stringToRect(String string) {
     String[] parts = string.split("\\|");
     int x = Integer.parseInt(parts[0]);
@@ -48,10 +48,12 @@ public enum JochreIndexField {
   volume,
   /** Length of current section in characters */
   length,
-  /** Prefix for each row's rectangle. */
+  /** Prefix for each row's rectangle, in indexes built before {@link #rowGeometry}. */
   rect,
-  /** Prefix for each row's start position in characters. */
+  /** Prefix for each row's start position in characters, in indexes built before {@link #rowGeometry}. */
   start,
-  /** Prefix for the number of rows in each page */
-  rowCount;
+  /** Prefix for the number of rows in each page, in indexes built before {@link #rowGeometry}. */
+  rowCount,
+  /** Row counts, rectangles and start positions for all rows, as a binary doc value, see {@link RowGeometry} */
+  rowGeometry;
 }
@@ -1,6 +1,8 @@
 package com.joliciel.jochre.search;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -10,6 +12,7 @@ import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.BooleanQuery.Builder;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
@@ -32,6 +35,7 @@ import org.slf4j.LoggerFactory;
  */
 public class JochreIndexSearcher {
   private static final Logger LOG = LoggerFactory.getLogger(JochreIndexSearcher.class);
+  private static final String SEARCH_AFTER_SEPARATOR = ":";
 
   private final IndexSearcher indexSearcher;
   private final int maxDocs;
@@ -43,7 +47,8 @@ public class JochreIndexSearcher {
   }
 
   /**
-   * Return paginated results for a query.
+   * Return paginated results for a query. Only the hits up to the end of the
+   * requested page are collected.
    * 
    * @param jochreQuery
    *          the query to run
@@ -56,19 +61,106 @@ public class JochreIndexSearcher {
    * @throws IOException
    */
   public Pair<TopDocs, Integer> search(JochreQuery jochreQuery, int pageNumber, int resultsPerPage) throws IOException {
-    TopDocsCollector<? extends ScoreDoc> topDocsCollector = null;
-    switch (jochreQuery.getSortBy()) {
-    case Score:
-      topDocsCollector = TopScoreDocCollector.create(this.maxDocs);
-    case Year:
-      topDocsCollector = TopFieldCollector.create(new Sort(new SortedNumericSortField(JochreIndexField.yearSort.name(),
-          SortField.Type.INT, !jochreQuery.isSortAscending())), this.maxDocs, false, false, false, true);
-    }
+    int numHits = (int) Math.min(this.maxDocs, ((long) pageNumber + 1) * resultsPerPage);
+    TopDocsCollector<? extends ScoreDoc> topDocsCollector = this.getCollector(jochreQuery, Math.max(numHits, 1), null);
 
     indexSearcher.search(jochreQuery.getLuceneQuery(), topDocsCollector);
     TopDocs topDocs = topDocsCollector.topDocs(pageNumber * resultsPerPage, resultsPerPage);
     int totalHits = topDocsCollector.getTotalHits();
 
+    this.logResults(topDocs);
+    return Pair.of(topDocs, totalHits);
+  }
+
+  /**
+   * Return the page of results for a query following a given hit, as returned
+   * by a previous call. Only a single page of hits is collected, however deep
+   * the page.
+   * 
+   * @param jochreQuery
+   *          the query to run
+   * @param searchAfter
+   *          a token returned by {@link #getSearchAfter(ScoreDoc)} for the last
+   *          hit of the previous page, or null for the first page
+   * @param resultsPerPage
+   *          results per page
+   * @return a pair giving the TopDocs corresponding to the paginated results, and
+   *         the total hits
+   * @throws IOException
+   */
+  public Pair<TopDocs, Integer> search(JochreQuery jochreQuery, String searchAfter, int resultsPerPage)
+      throws IOException {
+    ScoreDoc after = searchAfter == null ? null : this.readSearchAfter(jochreQuery, searchAfter);
+    TopDocsCollector<? extends ScoreDoc> topDocsCollector = this.getCollector(jochreQuery,
+        Math.max(Math.min(resultsPerPage, this.maxDocs), 1), after);
+
+    indexSearcher.search(jochreQuery.getLuceneQuery(), topDocsCollector);
+    TopDocs topDocs = topDocsCollector.topDocs(0, resultsPerPage);
+    int totalHits = topDocsCollector.getTotalHits();
+
+    this.logResults(topDocs);
+    return Pair.of(topDocs, totalHits);
+  }
+
+  private TopDocsCollector<? extends ScoreDoc> getCollector(JochreQuery jochreQuery, int numHits, ScoreDoc after) {
+    switch (jochreQuery.getSortBy()) {
+    case Year: {
+      Sort sort = new Sort(new SortedNumericSortField(JochreIndexField.yearSort.name(), SortField.Type.INT,
+          !jochreQuery.isSortAscending()));
+      // the sort values are filled in so that a search after token can be built
+      // from any hit
+      return TopFieldCollector.create(sort, numHits, (FieldDoc) after, true, false, false, true);
+    }
+    case Score:
+    default:
+      return TopScoreDocCollector.create(numHits, after);
+    }
+  }
+
+  /**
+   * An opaque token identifying a given hit, to be passed back to
+   * {@link #search(JochreQuery, String, int)} in order to get the following
+   * page. It is only valid for the same query, sorted the same way, with the
+   * same index reader.
+   */
+  public String getSearchAfter(ScoreDoc scoreDoc) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(scoreDoc.doc).append(SEARCH_AFTER_SEPARATOR).append(Float.floatToIntBits(scoreDoc.score));
+    if (scoreDoc instanceof FieldDoc) {
+      for (Object field : ((FieldDoc) scoreDoc).fields)
+        sb.append(SEARCH_AFTER_SEPARATOR).append(field);
+    }
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private ScoreDoc readSearchAfter(JochreQuery jochreQuery, String searchAfter) {
+    try {
+      String decoded = new String(Base64.getUrlDecoder().decode(searchAfter), StandardCharsets.UTF_8);
+      String[] parts = decoded.split(SEARCH_AFTER_SEPARATOR);
+      int doc = Integer.parseInt(parts[0]);
+      float score = Float.intBitsToFloat(Integer.parseInt(parts[1]));
+      switch (jochreQuery.getSortBy()) {
+      case Year: {
+        if (parts.length != 3)
+          throw new JochreSearchException(
+              "Invalid searchAfter for sort by " + jochreQuery.getSortBy() + ": " + searchAfter);
+        return new FieldDoc(doc, score, new Object[] { Integer.parseInt(parts[2]) });
+      }
+      case Score:
+      default: {
+        if (parts.length != 2)
+          throw new JochreSearchException(
+              "Invalid searchAfter for sort by " + jochreQuery.getSortBy() + ": " + searchAfter);
+        return new ScoreDoc(doc, score);
+      }
+      }
+    } catch (IllegalArgumentException e) {
+      // includes NumberFormatException
+      throw new JochreSearchException("Invalid searchAfter: " + searchAfter);
+    }
+  }
+
+  private void logResults(TopDocs topDocs) throws IOException {
     if (LOG.isTraceEnabled()) {
       LOG.trace("Search results: ");
       for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
@@ -77,7 +169,6 @@ public class JochreIndexSearcher {
         LOG.trace(extId + "(docId " + scoreDoc.doc + "): " + scoreDoc.score);
       }
     }
-    return Pair.of(topDocs, totalHits);
   }
 
   /**
@@ -11,6 +11,8 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FieldInfos;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexReaderContext;
 import org.apache.lucene.index.LeafReader;
@@ -67,12 +69,39 @@ public class JochreIndexTermLister {
     LeafReaderContext subContext = leaves.get(leaf);
     LeafReader atomicReader = subContext.reader();
 
+    int relativeId = docId - subContext.docBase;
+    FieldInfos fieldInfos = atomicReader.getFieldInfos();
+
     int fieldCounter = 0;
     for (String field : fields) {
       fieldCounter++;
       if (LOG.isTraceEnabled())
         LOG.trace("Field " + fieldCounter + ": " + field);
 
+      if (fieldInfos.fieldInfo(field) == null) {
+        LOG.trace("Field not in segment");
+        continue; // nothing to do
+      }
+
+      // The term vector holds this document's terms only, so reading it
+      // costs the same whatever the size of the index vocabulary.
+      Terms termVector = getTermVector(atomicReader, relativeId, field);
+      if (termVector != null) {
+        if (LOG.isTraceEnabled())
+          LOG.trace("Reading term vector for field " + field);
+        TermsEnum termsEnum = termVector.iterator();
+        PostingsEnum postingsEnum = null;
+        while (termsEnum.next() != null) {
+          postingsEnum = termsEnum.postings(postingsEnum, PostingsEnum.OFFSETS | PostingsEnum.POSITIONS | PostingsEnum.PAYLOADS);
+          if (postingsEnum.nextDoc() != PostingsEnum.NO_MORE_DOCS)
+            this.findTerms(fieldTermMap, field, termsEnum, postingsEnum);
+        }
+        continue;
+      }
+
+      // Fields indexed without a full term vector (including indexes built
+      // before term vectors stored offsets and payloads) fall back to
+      // visiting the postings of every term in the segment.
       Terms atomicReaderTerms = atomicReader.terms(field);
       if (atomicReaderTerms == null) {
         LOG.trace("Empty reader");
@@ -80,17 +109,38 @@ public class JochreIndexTermLister {
       }
 
       TermsEnum termsEnum = atomicReaderTerms.iterator();
-
-      @SuppressWarnings("unused")
-      BytesRef bytesRef = null;
-      while ((bytesRef = termsEnum.next()) != null) {
-        this.findTerms(fieldTermMap, field, termsEnum, subContext, docId);
-      } // next bytesRef
+      PostingsEnum postingsEnum = null;
+      while (termsEnum.next() != null) {
+        postingsEnum = termsEnum.postings(postingsEnum, PostingsEnum.OFFSETS | PostingsEnum.POSITIONS | PostingsEnum.PAYLOADS);
+        if (postingsEnum.advance(relativeId) == relativeId)
+          this.findTerms(fieldTermMap, field, termsEnum, postingsEnum);
+      } // next term
     } // next field
 
     return fieldTermMap;
   }
 
+  /**
+   * Get a document's term vector for a given field, if it contains everything
+   * stored in the field's postings: positions, offsets and (if the field has
+   * any) payloads. Otherwise returns null, and the postings have to be read
+   * instead.
+   * 
+   * @param relativeId
+   *          the document id within the leaf reader
+   */
+  public static Terms getTermVector(LeafReader leafReader, int relativeId, String field) throws IOException {
+    FieldInfo fieldInfo = leafReader.getFieldInfos().fieldInfo(field);
+    if (fieldInfo == null || !fieldInfo.hasVectors())
+      return null;
+    Terms termVector = leafReader.getTermVector(relativeId, field);
+    if (termVector == null || !termVector.hasPositions() || !termVector.hasOffsets())
+      return null;
+    if (fieldInfo.hasPayloads() && !termVector.hasPayloads())
+      return null;
+    return termVector;
+  }
+
   public NavigableMap<Integer, JochreTerm> getTextTermByOffset() throws IOException {
     if (offsetTermMap == null) {
       offsetTermMap = new TreeMap<>();
@@ -136,42 +186,36 @@ public class JochreIndexTermLister {
     }
   }
 
-  private void findTerms(Map<String, Set<JochreTerm>> textFeatureMap, String field, TermsEnum termsEnum, LeafReaderContext subContext, int luceneId)
-      throws IOException {
+  /**
+   * Add the occurrences of the current term to the map, with the postings
+   * enum already positioned on the current document.
+   */
+  private void findTerms(Map<String, Set<JochreTerm>> textFeatureMap, String field, TermsEnum termsEnum, PostingsEnum docPosEnum) throws IOException {
     Term term = new Term(field, BytesRef.deepCopyOf(termsEnum.term()));
 
-    PostingsEnum docPosEnum = termsEnum.postings(null, PostingsEnum.OFFSETS | PostingsEnum.POSITIONS | PostingsEnum.PAYLOADS);
-    int relativeId = docPosEnum.nextDoc();
-    while (relativeId != PostingsEnum.NO_MORE_DOCS) {
-      int nextId = subContext.docBase + relativeId;
-      if (luceneId == nextId) {
-        // Retrieve the term frequency in the current document
-        int freq = docPosEnum.freq();
-
-        if (LOG.isTraceEnabled())
-          LOG.trace("Found " + freq + " matches for term " + term.toString() + ", luceneId " + nextId + ", docId " + docId + ", field " + field);
+    // Retrieve the term frequency in the current document
+    int freq = docPosEnum.freq();
 
-        for (int i = 0; i < freq; i++) {
-          int position = docPosEnum.nextPosition();
-          int start = docPosEnum.startOffset();
-          int end = docPosEnum.endOffset();
+    if (LOG.isTraceEnabled())
+      LOG.trace("Found " + freq + " matches for term " + term.toString() + ", docId " + docId + ", field " + field);
 
-          if (LOG.isTraceEnabled())
-            LOG.trace("Found match " + position + " at luceneId " + nextId + ", field " + field + " start=" + start + ", end=" + end);
+    Set<JochreTerm> jochreTerms = textFeatureMap.get(field);
+    for (int i = 0; i < freq; i++) {
+      int position = docPosEnum.nextPosition();
+      int start = docPosEnum.startOffset();
+      int end = docPosEnum.endOffset();
 
-          BytesRef bytesRef = docPosEnum.getPayload();
-          JochrePayload payload = null;
-          if (bytesRef != null)
-            payload = new JochrePayload(bytesRef);
+      if (LOG.isTraceEnabled())
+        LOG.trace("Found match " + position + " at docId " + docId + ", field " + field + " start=" + start + ", end=" + end);
 
-          JochreTerm jochreTerm = new JochreTerm(term.toString(), position, start, end, payload, term);
-          Set<JochreTerm> jochreTerms = textFeatureMap.get(field);
-          jochreTerms.add(jochreTerm);
-        } // next occurrence
-      } // correct document
+      BytesRef bytesRef = docPosEnum.getPayload();
+      JochrePayload payload = null;
+      if (bytesRef != null)
+        payload = new JochrePayload(bytesRef);
 
-      relativeId = docPosEnum.nextDoc();
-    }
+      JochreTerm jochreTerm = new JochreTerm(term.toString(), position, start, end, payload, term);
+      jochreTerms.add(jochreTerm);
+    } // next occurrence
   }
 
   public static final class JochreTerm implements Comparable<JochreTerm> {
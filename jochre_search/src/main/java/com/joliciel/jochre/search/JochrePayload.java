@@ -5,51 +5,171 @@ import java.util.Arrays;
 
 import org.apache.lucene.util.BytesRef;
 
+/**
+ * The geometry of a single token, stored as a payload at each position of the
+ * text field.<br>
+ * <br>
+ * Payloads are written in a compact variable-length format: a header byte
+ * giving the format version and whether there is a secondary rectangle, then
+ * the page, paragraph and row indexes and the rectangle as variable-length
+ * integers. The secondary rectangle (the second half of a hyphenated word, on
+ * the following row) is only written when present, with its top and height
+ * stored relative to the main rectangle.<br>
+ * <br>
+ * Indexes built before this format store fixed 14 or 22 byte payloads, which
+ * are still read. A compact payload is padded with a trailing zero byte if it
+ * would otherwise have one of these lengths, so that the two formats can be
+ * told apart by length alone.
+ */
 public class JochrePayload {
-  private BytesRef bytesRef;
-  
+  private static final int LEGACY_LENGTH = 14;
+  private static final int LEGACY_LENGTH_WITH_SECONDARY = 22;
+
+  private static final int VERSION = 1;
+  private static final int SECONDARY_FLAG = 1;
+
+  private final BytesRef bytesRef;
+  private final int left;
+  private final int top;
+  private final int width;
+  private final int height;
+  private final int pageIndex;
+  private final int paragraphIndex;
+  private final int rowIndex;
+  private final boolean hasSecondary;
+  private final int left2;
+  private final int top2;
+  private final int width2;
+  private final int height2;
+
   public JochrePayload(BytesRef bytesRef) {
     this.bytesRef = BytesRef.deepCopyOf(bytesRef);
-    if (bytesRef.length!=14&&bytesRef.length!=22)
-      throw new RuntimeException("bytesRef wrong size, should be 14 or 22, was " + bytesRef.length + ": " + Arrays.toString(bytesRef.bytes));
+    byte[] bytes = this.bytesRef.bytes;
+    int length = this.bytesRef.length;
+
+    if (length == LEGACY_LENGTH || length == LEGACY_LENGTH_WITH_SECONDARY) {
+      left = readShort(bytes, 0);
+      top = readShort(bytes, 2);
+      width = readShort(bytes, 4);
+      height = readShort(bytes, 6);
+      pageIndex = readShort(bytes, 8);
+      paragraphIndex = readShort(bytes, 10);
+      rowIndex = readShort(bytes, 12);
+      hasSecondary = length == LEGACY_LENGTH_WITH_SECONDARY;
+      if (hasSecondary) {
+        left2 = readShort(bytes, 14);
+        top2 = readShort(bytes, 16);
+        width2 = readShort(bytes, 18);
+        height2 = readShort(bytes, 20);
+      } else {
+        left2 = top2 = width2 = height2 = 0;
+      }
+    } else {
+      if (length == 0 || (bytes[0] >> 1) != VERSION)
+        throw new RuntimeException("Unsupported payload, length " + length + ": " + Arrays.toString(Arrays.copyOf(bytes, length)));
+
+      hasSecondary = (bytes[0] & SECONDARY_FLAG) != 0;
+      int[] pos = new int[] { 1 };
+      pageIndex = readVInt(bytes, pos, length);
+      paragraphIndex = readVInt(bytes, pos, length);
+      rowIndex = readVInt(bytes, pos, length);
+      left = readZInt(bytes, pos, length);
+      top = readZInt(bytes, pos, length);
+      width = readVInt(bytes, pos, length);
+      height = readVInt(bytes, pos, length);
+      if (hasSecondary) {
+        left2 = readZInt(bytes, pos, length);
+        top2 = top + height + readZInt(bytes, pos, length);
+        width2 = readVInt(bytes, pos, length);
+        height2 = height + readZInt(bytes, pos, length);
+      } else {
+        left2 = top2 = width2 = height2 = 0;
+      }
+    }
   }
-  
+
   public JochrePayload(JochreToken token) {
     this(token.getRectangle(), token.getSecondaryRectangle(), token.getPageIndex(), token.getParagraphIndex(), token.getRowIndex());
   }
-  
-  public JochrePayload(Rectangle rect, Rectangle secondaryRect,
-      int pageIndex, int paragraphIndex, int rowIndex) {
-    byte[] bytes;
-    if (secondaryRect==null)
-      bytes = new byte[14];
-    else
-      bytes = new byte[22];
-    bytes[0] = (byte) (rect.x / 256);
-    bytes[1] = (byte) (rect.x % 256);
-    bytes[2] = (byte) (rect.y / 256);
-    bytes[3] = (byte) (rect.y % 256);
-    bytes[4] = (byte) (rect.width / 256);
-    bytes[5] = (byte) (rect.width % 256);
-    bytes[6] = (byte) (rect.height / 256);
-    bytes[7] = (byte) (rect.height % 256);
-    bytes[8] = (byte) (pageIndex / 256);
-    bytes[9] = (byte) (pageIndex % 256);
-    bytes[10] = (byte) (paragraphIndex / 256);
-    bytes[11] = (byte) (paragraphIndex % 256);
-    bytes[12] = (byte) (rowIndex / 256);
-    bytes[13] = (byte) (rowIndex % 256);
-    if (secondaryRect!=null) {
-      bytes[14] = (byte) (secondaryRect.x / 256);
-      bytes[15] = (byte) (secondaryRect.x % 256);
-      bytes[16] = (byte) (secondaryRect.y / 256);
-      bytes[17] = (byte) (secondaryRect.y % 256);
-      bytes[18] = (byte) (secondaryRect.width / 256);
-      bytes[19] = (byte) (secondaryRect.width % 256);
-      bytes[20] = (byte) (secondaryRect.height / 256);
-      bytes[21] = (byte) (secondaryRect.height % 256);
+
+  public JochrePayload(Rectangle rect, Rectangle secondaryRect, int pageIndex, int paragraphIndex, int rowIndex) {
+    this.left = rect.x;
+    this.top = rect.y;
+    this.width = rect.width;
+    this.height = rect.height;
+    this.pageIndex = pageIndex;
+    this.paragraphIndex = paragraphIndex;
+    this.rowIndex = rowIndex;
+    this.hasSecondary = secondaryRect != null;
+    if (hasSecondary) {
+      this.left2 = secondaryRect.x;
+      this.top2 = secondaryRect.y;
+      this.width2 = secondaryRect.width;
+      this.height2 = secondaryRect.height;
+    } else {
+      this.left2 = this.top2 = this.width2 = this.height2 = 0;
+    }
+
+    // at most 5 bytes per value, plus the header and padding
+    byte[] bytes = new byte[1 + 11 * 5 + 1];
+    bytes[0] = (byte) ((VERSION << 1) | (hasSecondary ? SECONDARY_FLAG : 0));
+    int[] pos = new int[] { 1 };
+    writeVInt(bytes, pos, pageIndex);
+    writeVInt(bytes, pos, paragraphIndex);
+    writeVInt(bytes, pos, rowIndex);
+    writeZInt(bytes, pos, left);
+    writeZInt(bytes, pos, top);
+    writeVInt(bytes, pos, width);
+    writeVInt(bytes, pos, height);
+    if (hasSecondary) {
+      writeZInt(bytes, pos, left2);
+      writeZInt(bytes, pos, top2 - (top + height));
+      writeVInt(bytes, pos, width2);
+      writeZInt(bytes, pos, height2 - height);
     }
-    bytesRef = new BytesRef(bytes);
+    int length = pos[0];
+    if (length == LEGACY_LENGTH || length == LEGACY_LENGTH_WITH_SECONDARY)
+      length++;
+    this.bytesRef = new BytesRef(Arrays.copyOf(bytes, length));
+  }
+
+  private static int readShort(byte[] bytes, int i) {
+    return ((bytes[i] & 0xFF) << 8) | (bytes[i + 1] & 0xFF);
+  }
+
+  private static void writeVInt(byte[] bytes, int[] pos, int value) {
+    int i = pos[0];
+    while ((value & ~0x7F) != 0) {
+      bytes[i++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    bytes[i++] = (byte) value;
+    pos[0] = i;
+  }
+
+  private static void writeZInt(byte[] bytes, int[] pos, int value) {
+    writeVInt(bytes, pos, (value << 1) ^ (value >> 31));
+  }
+
+  private static int readVInt(byte[] bytes, int[] pos, int length) {
+    int i = pos[0];
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      if (i >= length)
+        throw new RuntimeException("Payload truncated: " + Arrays.toString(Arrays.copyOf(bytes, length)));
+      byte b = bytes[i++];
+      value |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        pos[0] = i;
+        return value;
+      }
+    }
+    throw new RuntimeException("Invalid variable-length integer in payload: " + Arrays.toString(Arrays.copyOf(bytes, length)));
+  }
+
+  private static int readZInt(byte[] bytes, int[] pos, int length) {
+    int value = readVInt(bytes, pos, length);
+    return (value >>> 1) ^ -(value & 1);
   }
 
   public BytesRef getBytesRef() {
@@ -57,53 +177,31 @@ public class JochrePayload {
   }
 
   public Rectangle getRectangle() {
-    byte[] bytes = bytesRef.bytes;
-    int i = bytesRef.offset;
-    int left = (bytes[i+0]<0 ? 256 + bytes[i+0] : bytes[i+0]) * 256 + (bytes[i+1]<0 ? 256 + bytes[i+1] : bytes[i+1]);
-    int top = (bytes[i+2]<0 ? 256 + bytes[i+2] : bytes[i+2]) * 256 + (bytes[i+3]<0 ? 256 + bytes[i+3] : bytes[i+3]);
-    int width = (bytes[i+4]<0 ? 256 + bytes[i+4] : bytes[i+4]) * 256 + (bytes[i+5]<0 ? 256 + bytes[i+5] : bytes[i+5]);
-    int height = (bytes[i+6]<0 ? 256 + bytes[i+6] : bytes[i+6]) * 256 + (bytes[i+7]<0 ? 256 + bytes[i+7] : bytes[i+7]);
-    Rectangle rect = new Rectangle(left, top, width, height);
-    return rect;
+    return new Rectangle(left, top, width, height);
   }
-  
+
   public Rectangle getSecondaryRectangle() {
-    if (bytesRef.length<20)
+    if (!hasSecondary)
       return null;
-    byte[] bytes = bytesRef.bytes;
-    int i = bytesRef.offset;
-    i+=14;
-    int left = (bytes[i+0]<0 ? 256 + bytes[i+0] : bytes[i+0]) * 256 + (bytes[i+1]<0 ? 256 + bytes[i+1] : bytes[i+1]);
-    int top = (bytes[i+2]<0 ? 256 + bytes[i+2] : bytes[i+2]) * 256 + (bytes[i+3]<0 ? 256 + bytes[i+3] : bytes[i+3]);
-    int width = (bytes[i+4]<0 ? 256 + bytes[i+4] : bytes[i+4]) * 256 + (bytes[i+5]<0 ? 256 + bytes[i+5] : bytes[i+5]);
-    int height = (bytes[i+6]<0 ? 256 + bytes[i+6] : bytes[i+6]) * 256 + (bytes[i+7]<0 ? 256 + bytes[i+7] : bytes[i+7]);
-    Rectangle rect = new Rectangle(left, top, width, height);
-    return rect;
+    return new Rectangle(left2, top2, width2, height2);
   }
-  
+
   public int getPageIndex() {
-    byte[] bytes = bytesRef.bytes;
-    int i = bytesRef.offset;
-    return (bytes[i+8]<0 ? 256 + bytes[i+8] : bytes[i+8]) * 256 + (bytes[i+9]<0 ? 256 + bytes[i+9] : bytes[i+9]);
+    return pageIndex;
   }
 
   public int getParagraphIndex() {
-    byte[] bytes = bytesRef.bytes;
-    int i = bytesRef.offset;
-    return (bytes[i+10]<0 ? 256 + bytes[i+10] : bytes[i+10]) * 256 + (bytes[i+11]<0 ? 256 + bytes[i+11] : bytes[i+11]);
+    return paragraphIndex;
   }
 
   public int getRowIndex() {
-    byte[] bytes = bytesRef.bytes;
-    int i = bytesRef.offset;
-    return (bytes[i+12]<0 ? 256 + bytes[i+12] : bytes[i+12]) * 256 + (bytes[i+13]<0 ? 256 + bytes[i+13] : bytes[i+13]);
+    return rowIndex;
   }
-  
+
   @Override
   public String toString() {
-    return "JochrePayload [rect=" + this.getRectangle() + ", pageIndex=" + this.getPageIndex()
-        + ", paragraphIndex=" + this.getParagraphIndex() + ", rowIndex="
-        + this.getRowIndex() + ", secondaryRect=" + this.getSecondaryRectangle() + "]";
+    return "JochrePayload [rect=" + this.getRectangle() + ", pageIndex=" + this.getPageIndex() + ", paragraphIndex=" + this.getParagraphIndex()
+        + ", rowIndex=" + this.getRowIndex() + ", secondaryRect=" + this.getSecondaryRectangle() + "]";
   }
 
 }
@@ -28,6 +28,7 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.DecimalFormat;
@@ -187,6 +188,10 @@ public class JochreSearch {
      * Refresh the index reader, to take into account any index updates.
      */
     refresh("application/json;charset=UTF-8"),
+    /**
+     * Hit and miss statistics for the search result cache.
+     */
+    cacheStatus("application/json;charset=UTF-8"),
     /**
      * Search a given set of fields for the top-n terms matching a given prefix.
      */
@@ -249,6 +254,7 @@ public class JochreSearch {
       Integer toYear = null;
       String reference = null;
       int pageNumber = 0;
+      String searchAfter = null;
       int resultsPerPage = config.getConfig().getInt("results-per-page");
 
       // lexicon handling
@@ -369,6 +375,9 @@ public class JochreSearch {
           reference = argValue;
         } else if (argName.equals("page")) {
           pageNumber = Integer.parseInt(argValue);
+        } else if (argName.equals("searchAfter")) {
+          if (argValue.length() > 0)
+            searchAfter = argValue;
         } else if (argName.equals("resultsPerPage")) {
           resultsPerPage = Integer.parseInt(argValue);
         } else if (argName.equals("applyEverywhere")) {
@@ -422,6 +431,21 @@ public class JochreSearch {
         out.write("{\"response\":\"index reader refreshed\"}\n");
         break;
       }
+      case cacheStatus: {
+        SearchResultCache resultCache = SearchResultCache.getInstance(configId);
+        JsonFactory jsonFactory = new JsonFactory();
+        JsonGenerator jsonGen = jsonFactory.createGenerator(out);
+
+        jsonGen.writeStartObject();
+        jsonGen.writeNumberField("size", resultCache.size());
+        jsonGen.writeNumberField("hits", resultCache.getHitCount());
+        jsonGen.writeNumberField("misses", resultCache.getMissCount());
+        jsonGen.writeNumberField("hitRate", df.parse(df.format(resultCache.getHitRate())).doubleValue());
+        jsonGen.writeEndObject();
+        jsonGen.flush();
+        out.write("\n");
+        break;
+      }
       case search:
       case highlight:
       case snippets: {
@@ -432,10 +456,12 @@ public class JochreSearch {
 
           try {
             JochreIndexSearcher searcher = new JochreIndexSearcher(indexSearcher, configId);
+            SearchResultCache resultCache = SearchResultCache.getInstance(configId);
 
             switch (command) {
             case search: {
-              Pair<TopDocs, Integer> results = searcher.search(query, pageNumber, resultsPerPage);
+              Pair<TopDocs, Integer> results = this.search(searcher, indexSearcher, resultCache, query, pageNumber,
+                  searchAfter, resultsPerPage);
               JsonFactory jsonFactory = new JsonFactory();
               JsonGenerator jsonGen = jsonFactory.createGenerator(out);
 
@@ -463,6 +489,13 @@ public class JochreSearch {
               }
 
               jsonGen.writeEndArray();
+
+              // a full page might be followed by another one
+              if (topDocs.scoreDocs.length > 0 && topDocs.scoreDocs.length == resultsPerPage) {
+                ScoreDoc lastScoreDoc = topDocs.scoreDocs[topDocs.scoreDocs.length - 1];
+                jsonGen.writeStringField("searchAfter", searcher.getSearchAfter(lastScoreDoc));
+              }
+
               jsonGen.writeEndObject();
               jsonGen.flush();
 
@@ -500,7 +533,8 @@ public class JochreSearch {
                     "For command " + command + " a query is required - no highlights available.");
 
               if (docIds == null) {
-                Pair<TopDocs, Integer> result = searcher.search(query, pageNumber, resultsPerPage);
+                Pair<TopDocs, Integer> result = this.search(searcher, indexSearcher, resultCache, query, pageNumber,
+                    searchAfter, resultsPerPage);
 
                 docIds = new LinkedHashSet<>();
                 for (ScoreDoc scoreDoc : result.getLeft().scoreDocs) {
@@ -515,23 +549,32 @@ public class JochreSearch {
                   }
                 }
               }
-              Set<String> searchFields = new HashSet<>();
-              searchFields.add(JochreIndexField.text.name());
-
-              Highlighter highlighter = new LuceneQueryHighlighter(query, indexSearcher, searchFields);
-              HighlightManager highlightManager = new HighlightManager(indexSearcher, searchFields, configId);
-              highlightManager.setDecimalPlaces(decimalPlaces);
-              highlightManager.setMinWeight(minWeight);
-              highlightManager.setIncludeText(includeText);
-              highlightManager.setIncludeGraphics(includeGraphics);
-              if (snippetCount > 0)
-                highlightManager.setSnippetCount(snippetCount);
-
-              if (command == Command.highlight) {
-                highlightManager.highlight(highlighter, docIds, out);
-              } else {
-                highlightManager.findSnippets(highlighter, docIds, out);
+              SearchResultCache.ResultKey resultKey = new SearchResultCache.ResultKey(indexSearcher, command.name(), query,
+                  new ArrayList<>(docIds), snippetCount, minWeight, includeText, includeGraphics, decimalPlaces);
+              String json = (String) resultCache.get(resultKey);
+              if (json == null) {
+                Set<String> searchFields = new HashSet<>();
+                searchFields.add(JochreIndexField.text.name());
+
+                Highlighter highlighter = new LuceneQueryHighlighter(query, indexSearcher, searchFields);
+                HighlightManager highlightManager = new HighlightManager(indexSearcher, searchFields, configId);
+                highlightManager.setDecimalPlaces(decimalPlaces);
+                highlightManager.setMinWeight(minWeight);
+                highlightManager.setIncludeText(includeText);
+                highlightManager.setIncludeGraphics(includeGraphics);
+                if (snippetCount > 0)
+                  highlightManager.setSnippetCount(snippetCount);
+
+                StringWriter writer = new StringWriter();
+                if (command == Command.highlight) {
+                  highlightManager.highlight(highlighter, docIds, writer);
+                } else {
+                  highlightManager.findSnippets(highlighter, docIds, writer);
+                }
+                json = writer.toString();
+                resultCache.put(resultKey, json);
               }
+              out.write(json);
               break;
             }
             }
@@ -1095,6 +1138,29 @@ public class JochreSearch {
     }
   }
 
+  /**
+   * Return a page of results for a query, from the result cache if the same
+   * page was already requested with the current index reader. If searchAfter is
+   * provided, the page follows the hit it identifies, and the page number is
+   * ignored.
+   */
+  @SuppressWarnings("unchecked")
+  private Pair<TopDocs, Integer> search(JochreIndexSearcher searcher, IndexSearcher indexSearcher,
+      SearchResultCache resultCache, JochreQuery query, int pageNumber, String searchAfter, int resultsPerPage)
+      throws IOException {
+    SearchResultCache.ResultKey resultKey = new SearchResultCache.ResultKey(indexSearcher, Command.search.name(), query,
+        searchAfter == null ? pageNumber : searchAfter, resultsPerPage);
+    Pair<TopDocs, Integer> results = (Pair<TopDocs, Integer>) resultCache.get(resultKey);
+    if (results == null) {
+      if (searchAfter == null)
+        results = searcher.search(query, pageNumber, resultsPerPage);
+      else
+        results = searcher.search(query, searchAfter, resultsPerPage);
+      resultCache.put(resultKey, results);
+    }
+    return results;
+  }
+
   /**
    * Command-line entry point.
    */
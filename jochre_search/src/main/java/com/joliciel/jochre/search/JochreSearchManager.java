@@ -10,6 +10,7 @@ import org.apache.lucene.index.IndexNotFoundException;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.search.ReferenceManager;
 import org.apache.lucene.search.SearcherFactory;
 import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.store.Directory;
@@ -64,6 +65,23 @@ public class JochreSearchManager {
         manager = new SearcherManager(indexDir, searcherFactory);
       }
       this.manager = manager;
+
+      // cached search results are only valid for the reader they were computed
+      // with
+      SearchResultCache resultCache = SearchResultCache.getInstance(configId);
+      this.manager.addListener(new ReferenceManager.RefreshListener() {
+        @Override
+        public void beforeRefresh() throws IOException {
+        }
+
+        @Override
+        public void afterRefresh(boolean didRefresh) throws IOException {
+          if (didRefresh) {
+            LOG.debug("Index reader refreshed, clearing search result cache");
+            resultCache.clear();
+          }
+        }
+      });
     } catch (IOException e) {
       throw new RuntimeException("Unable to open index directories", e);
     }
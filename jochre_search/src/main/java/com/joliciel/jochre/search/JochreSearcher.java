@@ -3,18 +3,28 @@ package com.joliciel.jochre.search;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.search.IndexSearcher;
 
 public class JochreSearcher extends IndexSearcher {
   private final int bookCount;
+  private final Map<JochreIndexField, FieldTermPrefixIndex> prefixIndexes = new ConcurrentHashMap<>();
 
   public JochreSearcher(IndexReader reader, JochreSearchConfig config) throws IOException {
     super(reader);
     File contentDir = config.getContentDir();
     bookCount = (int) (Files.find(contentDir.toPath(), 1, // how deep do we want to descend
         (path, attributes) -> attributes.isDirectory()).count() - 1);
+
+    // build the prefix indexes when the searcher is opened, rather than on the
+    // first prefix search
+    List<String> prefixFields = config.getConfig().getStringList("prefix-search.fields");
+    for (String prefixField : prefixFields)
+      this.getPrefixIndex(JochreIndexField.valueOf(prefixField));
   }
 
   /**
@@ -23,4 +33,17 @@ public class JochreSearcher extends IndexSearcher {
   public int getBookCount() {
     return bookCount;
   }
+
+  /**
+   * The prefix index for a given field, built the first time it is requested.
+   */
+  public FieldTermPrefixIndex getPrefixIndex(JochreIndexField field) {
+    return prefixIndexes.computeIfAbsent(field, f -> {
+      try {
+        return new FieldTermPrefixIndex(this.getIndexReader(), f.name());
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    });
+  }
 }
@@ -0,0 +1,171 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2015 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.search;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded cache of decoded page images, keyed by PDF file and page index,
+ * so that successive word and snippet images on the same page only decode
+ * the page once. The least recently used pages are evicted once the total
+ * raster size exceeds the configured maximum.<br>
+ * <br>
+ * Cached images are shared between requests, and must not be modified by
+ * callers.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public class PageImageCache {
+  private static final Logger LOG = LoggerFactory.getLogger(PageImageCache.class);
+  private static final Map<String, PageImageCache> instances = new HashMap<>();
+
+  private final long maxBytes;
+  private final LinkedHashMap<PageKey, BufferedImage> images = new LinkedHashMap<>(16, 0.75f, true);
+  private long currentBytes = 0;
+
+  public static synchronized PageImageCache getInstance(String configId) {
+    PageImageCache instance = instances.get(configId);
+    if (instance == null) {
+      JochreSearchConfig config = JochreSearchConfig.getInstance(configId);
+      long maxBytes = config.getConfig().getBytes("page-image-cache.max-size");
+      instance = new PageImageCache(maxBytes);
+      instances.put(configId, instance);
+    }
+    return instance;
+  }
+
+  PageImageCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Get the image for a given page of a PDF file, decoding it only if it isn't
+   * already cached.
+   */
+  public BufferedImage getImage(File pdfFile, int pageIndex) {
+    PageKey key = new PageKey(pdfFile, pageIndex);
+    BufferedImage image = this.get(key);
+    if (image == null) {
+      PdfImageReader pdfImageReader = new PdfImageReader(pdfFile);
+      image = pdfImageReader.readImage(pageIndex);
+      if (image != null)
+        this.put(key, image);
+    }
+    return image;
+  }
+
+  synchronized BufferedImage get(PageKey key) {
+    return images.get(key);
+  }
+
+  synchronized void put(PageKey key, BufferedImage image) {
+    long size = getByteSize(image);
+    if (size > maxBytes)
+      return;
+
+    BufferedImage previous = images.put(key, image);
+    if (previous != null)
+      currentBytes -= getByteSize(previous);
+    currentBytes += size;
+
+    Iterator<Map.Entry<PageKey, BufferedImage>> iterator = images.entrySet().iterator();
+    while (currentBytes > maxBytes && iterator.hasNext()) {
+      Map.Entry<PageKey, BufferedImage> eldest = iterator.next();
+      if (LOG.isDebugEnabled())
+        LOG.debug("Evicting page image " + eldest.getKey());
+      currentBytes -= getByteSize(eldest.getValue());
+      iterator.remove();
+    }
+  }
+
+  /**
+   * The total size in bytes of the images currently cached.
+   */
+  public synchronized long getCurrentBytes() {
+    return currentBytes;
+  }
+
+  /**
+   * The number of images currently cached.
+   */
+  public synchronized int size() {
+    return images.size();
+  }
+
+  public synchronized void clear() {
+    images.clear();
+    currentBytes = 0;
+  }
+
+  static long getByteSize(BufferedImage image) {
+    DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+    return (long) dataBuffer.getSize() * dataBuffer.getNumBanks() * DataBuffer.getDataTypeSize(dataBuffer.getDataType()) / 8;
+  }
+
+  static final class PageKey {
+    private final String path;
+    private final long lastModified;
+    private final int pageIndex;
+
+    /**
+     * The file's modification time is included so that a PDF replaced on disk
+     * is decoded again rather than served from the cache.
+     */
+    PageKey(File pdfFile, int pageIndex) {
+      this(pdfFile.getAbsolutePath(), pdfFile.lastModified(), pageIndex);
+    }
+
+    PageKey(String path, long lastModified, int pageIndex) {
+      this.path = path;
+      this.lastModified = lastModified;
+      this.pageIndex = pageIndex;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(path, lastModified, pageIndex);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof PageKey))
+        return false;
+      PageKey other = (PageKey) obj;
+      return pageIndex == other.pageIndex && lastModified == other.lastModified && path.equals(other.path);
+    }
+
+    @Override
+    public String toString() {
+      return path + "#" + pageIndex;
+    }
+  }
+}
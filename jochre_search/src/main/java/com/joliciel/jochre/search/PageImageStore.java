@@ -0,0 +1,313 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2015 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.search;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.imageio.ImageIO;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.joliciel.jochre.utils.pdf.PdfImageObserver;
+import com.joliciel.jochre.utils.pdf.PdfImageVisitor;
+
+/**
+ * A pack file of pre-extracted page images, stored alongside a PDF file with
+ * the same base name and the extension {@value #EXTENSION}, so that page
+ * images can be served without decoding the PDF.<br>
+ * <br>
+ * Each page is stored as a single PNG image, keeping the largest image found
+ * on the page as {@link PdfImageReader} does. Black and white and greyscale
+ * pages are kept as is. Colour pages are converted to greyscale (after
+ * flattening any transparency onto white), since a lossless colour PNG of a
+ * JPEG scan can be many times larger than the PDF itself. The dimensions are
+ * unchanged, so that word rectangles stored in the index remain valid, and
+ * {@link PdfImageReader} applies the same conversion when it reads the PDF
+ * directly, so that a page looks the same whichever way it is read.<br>
+ * <br>
+ * The file layout is: a header (magic number, version), the PNG data for each
+ * page, an offset table with one entry per page (page number, offset, length),
+ * and a trailer giving the offset of the table and the number of pages. The
+ * header and offset table are read once per store file and kept in memory
+ * until the file changes, so that reading a page only requires reading the
+ * page's own bytes.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public class PageImageStore {
+  private static final Logger LOG = LoggerFactory.getLogger(PageImageStore.class);
+  public static final String EXTENSION = ".pages";
+
+  private static final int MAGIC = 0x4A504753; // JPGS
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 8;
+  private static final int TABLE_ENTRY_SIZE = 16;
+  private static final int TRAILER_SIZE = 12;
+
+  private static final Map<File, PageTable> pageTables = new ConcurrentHashMap<>();
+
+  /**
+   * The greyscale image sample for each sRGB grey level, since greyscale
+   * images use a linear colour space.
+   */
+  private static final int[] greySamples = new int[256];
+
+  static {
+    BufferedImage greyLevels = new BufferedImage(256, 1, BufferedImage.TYPE_BYTE_GRAY);
+    for (int i = 0; i < 256; i++)
+      greyLevels.setRGB(i, 0, 0xFF000000 | (i << 16) | (i << 8) | i);
+    greyLevels.getRaster().getPixels(0, 0, 256, 1, greySamples);
+  }
+
+  private final File pdfFile;
+  private final File storeFile;
+
+  public PageImageStore(File pdfFile) {
+    this.pdfFile = pdfFile;
+    String pdfName = pdfFile.getName();
+    String baseName = pdfName.toLowerCase().endsWith(".pdf") ? pdfName.substring(0, pdfName.length() - ".pdf".length()) : pdfName;
+    this.storeFile = new File(pdfFile.getParentFile(), baseName + EXTENSION);
+  }
+
+  /**
+   * The pack file in which page images are stored.
+   */
+  public File getStoreFile() {
+    return storeFile;
+  }
+
+  /**
+   * Does the store exist, and was it written after the PDF was last modified?
+   */
+  public boolean isUpToDate() {
+    return storeFile.exists() && storeFile.lastModified() >= pdfFile.lastModified();
+  }
+
+  /**
+   * Read the image for a given page number (starting at 1), or null if the
+   * store does not contain this page.
+   */
+  public BufferedImage readImage(int pageNumber) throws IOException {
+    PageTable pageTable = this.getPageTable();
+    PageEntry entry = pageTable.entries.get(pageNumber);
+    if (entry == null)
+      return null;
+
+    byte[] imageBytes = new byte[entry.length];
+    try (RandomAccessFile file = new RandomAccessFile(storeFile, "r")) {
+      file.seek(entry.offset);
+      file.readFully(imageBytes);
+    }
+    return ImageIO.read(new ByteArrayInputStream(imageBytes));
+  }
+
+  /**
+   * The offset table for the current version of the store file, read only if
+   * it wasn't already read since the file was last written.
+   */
+  private PageTable getPageTable() throws IOException {
+    long lastModified = storeFile.lastModified();
+    long fileLength = storeFile.length();
+    PageTable pageTable = pageTables.get(storeFile);
+    if (pageTable != null && pageTable.lastModified == lastModified && pageTable.fileLength == fileLength)
+      return pageTable;
+
+    if (fileLength < HEADER_SIZE + TRAILER_SIZE)
+      throw new IOException("Page image store truncated: " + storeFile.getAbsolutePath());
+
+    Map<Integer, PageEntry> entries = new HashMap<>();
+    try (RandomAccessFile file = new RandomAccessFile(storeFile, "r")) {
+      file.seek(0);
+      int magic = file.readInt();
+      int version = file.readInt();
+      if (magic != MAGIC || version != VERSION)
+        throw new IOException("Unsupported page image store format in " + storeFile.getAbsolutePath() + ": version " + version);
+
+      file.seek(fileLength - TRAILER_SIZE);
+      long tableOffset = file.readLong();
+      int pageCount = file.readInt();
+
+      file.seek(tableOffset);
+      byte[] table = new byte[pageCount * TABLE_ENTRY_SIZE];
+      file.readFully(table);
+      for (int i = 0; i < pageCount; i++) {
+        int pos = i * TABLE_ENTRY_SIZE;
+        int pageNumber = readInt(table, pos);
+        long offset = ((long) readInt(table, pos + 4) << 32) | (readInt(table, pos + 8) & 0xFFFFFFFFL);
+        int length = readInt(table, pos + 12);
+        entries.put(pageNumber, new PageEntry(pageNumber, offset, length));
+      }
+    }
+    pageTable = new PageTable(lastModified, fileLength, entries);
+    pageTables.put(storeFile, pageTable);
+    return pageTable;
+  }
+
+  private static int readInt(byte[] bytes, int pos) {
+    return ((bytes[pos] & 0xFF) << 24) | ((bytes[pos + 1] & 0xFF) << 16) | ((bytes[pos + 2] & 0xFF) << 8) | (bytes[pos + 3] & 0xFF);
+  }
+
+  /**
+   * Decode every page of the PDF file and write the page images to the store,
+   * replacing any previous version.
+   */
+  public void write() throws IOException {
+    LOG.info("Writing page images for " + pdfFile.getName() + " to " + storeFile.getName());
+    File tempFile = new File(storeFile.getParentFile(), storeFile.getName() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+
+      PageImageWriter pageImageWriter = new PageImageWriter(out);
+      PdfImageVisitor pdfImageVisitor = new PdfImageVisitor(pdfFile);
+      pdfImageVisitor.addImageObserver(pageImageWriter);
+      pdfImageVisitor.visitImages();
+      pageImageWriter.finish();
+    }
+    Files.move(tempFile.toPath(), storeFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    pageTables.remove(storeFile);
+  }
+
+  /**
+   * The image as stored for a page: black and white and greyscale images are
+   * returned as is, and any other image is converted to greyscale, with
+   * transparent areas shown as white. The luminance is computed from the sRGB
+   * values, so that the result doesn't depend on the source image type, and
+   * the same grey pixels stored in a colour image are converted back exactly.
+   */
+  static BufferedImage toPageImage(BufferedImage image) {
+    int type = image.getType();
+    if (type == BufferedImage.TYPE_BYTE_BINARY || type == BufferedImage.TYPE_BYTE_GRAY)
+      return image;
+    int width = image.getWidth();
+    int height = image.getHeight();
+    BufferedImage greyImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+    WritableRaster raster = greyImage.getRaster();
+    int[] row = new int[width];
+    for (int y = 0; y < height; y++) {
+      image.getRGB(0, y, width, 1, row, 0, width);
+      for (int x = 0; x < width; x++) {
+        int argb = row[x];
+        int alpha = argb >>> 24;
+        int grey = (299 * ((argb >> 16) & 0xFF) + 587 * ((argb >> 8) & 0xFF) + 114 * (argb & 0xFF) + 500) / 1000;
+        grey = (grey * alpha + 255 * (255 - alpha) + 127) / 255;
+        raster.setSample(x, y, 0, greySamples[grey]);
+      }
+    }
+    return greyImage;
+  }
+
+  private static final class PageImageWriter implements PdfImageObserver {
+    private final DataOutputStream out;
+    private final List<PageEntry> entries = new ArrayList<>();
+    private long position = HEADER_SIZE;
+    private int currentPage = -1;
+    private BufferedImage currentImage = null;
+
+    public PageImageWriter(DataOutputStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void visitImage(BufferedImage image, String imageName, int pageIndex, int imageIndex) {
+      if (pageIndex != currentPage) {
+        this.writeCurrentPage();
+        currentPage = pageIndex;
+        currentImage = image;
+      } else {
+        // If there are multiple images we take the biggest one
+        long imageSize = (long) image.getHeight() * image.getWidth();
+        long currentImageSize = (long) currentImage.getHeight() * currentImage.getWidth();
+        if (imageSize > currentImageSize)
+          currentImage = image;
+      }
+    }
+
+    private void writeCurrentPage() {
+      if (currentImage == null)
+        return;
+      try {
+        BufferedImage image = toPageImage(currentImage);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+        entries.add(new PageEntry(currentPage, position, bytes.size()));
+        bytes.writeTo(out);
+        position += bytes.size();
+        currentImage = null;
+      } catch (IOException e) {
+        LOG.error("Failed to write image for page " + currentPage, e);
+        throw new RuntimeException(e);
+      }
+    }
+
+    public void finish() throws IOException {
+      this.writeCurrentPage();
+      long tableOffset = position;
+      for (PageEntry entry : entries) {
+        out.writeInt(entry.pageNumber);
+        out.writeLong(entry.offset);
+        out.writeInt(entry.length);
+      }
+      out.writeLong(tableOffset);
+      out.writeInt(entries.size());
+    }
+  }
+
+  private static final class PageTable {
+    private final long lastModified;
+    private final long fileLength;
+    private final Map<Integer, PageEntry> entries;
+
+    public PageTable(long lastModified, long fileLength, Map<Integer, PageEntry> entries) {
+      this.lastModified = lastModified;
+      this.fileLength = fileLength;
+      this.entries = entries;
+    }
+  }
+
+  private static final class PageEntry {
+    private final int pageNumber;
+    private final long offset;
+    private final int length;
+
+    public PageEntry(int pageNumber, long offset, int length) {
+      this.pageNumber = pageNumber;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+}
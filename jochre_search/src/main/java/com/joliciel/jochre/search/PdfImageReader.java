@@ -20,13 +20,18 @@ package com.joliciel.jochre.search;
 
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.Set;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.joliciel.jochre.utils.pdf.PdfImageObserver;
 import com.joliciel.jochre.utils.pdf.PdfImageVisitor;
 
 public class PdfImageReader {
+  private static final Logger LOG = LoggerFactory.getLogger(PdfImageReader.class);
   private final File pdfFile;
 
   public PdfImageReader(File pdfFile) {
@@ -34,6 +39,18 @@ public class PdfImageReader {
   }
 
   public BufferedImage readImage(int pageNumber) {
+    // use pre-extracted page images if they were written at index time
+    PageImageStore pageImageStore = new PageImageStore(this.pdfFile);
+    if (pageImageStore.isUpToDate()) {
+      try {
+        BufferedImage image = pageImageStore.readImage(pageNumber);
+        if (image != null)
+          return image;
+      } catch (IOException e) {
+        LOG.error("Failed to read page " + pageNumber + " from " + pageImageStore.getStoreFile().getAbsolutePath() + ", reading PDF instead", e);
+      }
+    }
+
     // assuming only one image per PDF page
     Set<Integer> pages = new HashSet<>();
     pages.add(pageNumber);
@@ -42,6 +59,10 @@ public class PdfImageReader {
     pdfImageVisitor.addImageObserver(imageReader);
     pdfImageVisitor.visitImages();
     BufferedImage image = imageReader.getImage();
+    // as stored by the page image store, so that the page doesn't depend on
+    // whether the store is up to date
+    if (image != null)
+      image = PageImageStore.toPageImage(image);
     return image;
   }
 
@@ -0,0 +1,202 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2016 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.search;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.ByteArrayDataOutput;
+import org.apache.lucene.util.BytesRef;
+
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+
+/**
+ * The geometry of the rows in a single index document: for each page the
+ * number of rows, and for each row its rectangle and the content index of its
+ * first character. It is stored as a single binary doc value per document,
+ * {@link JochreIndexField#rowGeometry}, and decoded into primitive arrays.<br>
+ * <br>
+ * The encoding is a version number and a page count, followed for each page by
+ * the page index, the row count, and the number of rows stored. Each row then
+ * has its row index (as a delta from the previous row), its rectangle with the
+ * top as a delta from the previous row's top, and its start index as a delta
+ * from the previous row's start index, all as variable-length integers.
+ *
+ * @author Assaf Urieli
+ *
+ */
+public class RowGeometry {
+  private static final int VERSION = 1;
+
+  private final TIntObjectMap<PageRows> pages;
+
+  private static final class PageRows {
+    private final int rowCount;
+    /** x, y, width, height for each row index */
+    private final int[] rectangles;
+    /** start index for each row index, or -1 if the row wasn't stored */
+    private final int[] startIndexes;
+
+    private PageRows(int rowCount, int rowSlots) {
+      this.rowCount = rowCount;
+      this.rectangles = new int[rowSlots * 4];
+      this.startIndexes = new int[rowSlots];
+      Arrays.fill(this.startIndexes, -1);
+    }
+  }
+
+  /**
+   * Decode row geometry read from the index.
+   */
+  public RowGeometry(BytesRef bytesRef) {
+    ByteArrayDataInput in = new ByteArrayDataInput(bytesRef.bytes, bytesRef.offset, bytesRef.length);
+    int version = in.readVInt();
+    if (version != VERSION)
+      throw new JochreSearchException("Unsupported row geometry version: " + version);
+
+    int pageCount = in.readVInt();
+    pages = new TIntObjectHashMap<>(pageCount);
+    for (int i = 0; i < pageCount; i++) {
+      int pageIndex = in.readVInt();
+      int rowCount = in.readVInt();
+      int storedRows = in.readVInt();
+      int[] rowIndexes = new int[storedRows];
+      int[] rows = new int[storedRows * 5];
+      int rowIndex = -1;
+      int top = 0;
+      int startIndex = 0;
+      int maxRowIndex = -1;
+      for (int j = 0; j < storedRows; j++) {
+        rowIndex += in.readVInt();
+        top += zigZagDecode(in.readVInt());
+        startIndex += zigZagDecode(in.readVInt());
+        rowIndexes[j] = rowIndex;
+        rows[j * 5] = zigZagDecode(in.readVInt());
+        rows[j * 5 + 1] = top;
+        rows[j * 5 + 2] = in.readVInt();
+        rows[j * 5 + 3] = in.readVInt();
+        rows[j * 5 + 4] = startIndex;
+        maxRowIndex = rowIndex;
+      }
+      PageRows pageRows = new PageRows(rowCount, maxRowIndex + 1);
+      for (int j = 0; j < storedRows; j++) {
+        int r = rowIndexes[j];
+        System.arraycopy(rows, j * 5, pageRows.rectangles, r * 4, 4);
+        pageRows.startIndexes[r] = rows[j * 5 + 4];
+      }
+      pages.put(pageIndex, pageRows);
+    }
+  }
+
+  /**
+   * Encode row geometry for storage in the index.
+   */
+  public static byte[] encode(TIntIntMap rowCounts, TIntObjectMap<TIntObjectMap<Rectangle>> rectangles, TIntObjectMap<TIntIntMap> startIndexes) {
+    int[] pageIndexes = rowCounts.keys();
+    Arrays.sort(pageIndexes);
+
+    // at most 5 bytes per variable-length integer
+    int valueCount = 2;
+    for (int pageIndex : pageIndexes) {
+      TIntObjectMap<Rectangle> rowRectangles = rectangles.get(pageIndex);
+      valueCount += 3 + (rowRectangles == null ? 0 : rowRectangles.size() * 6);
+    }
+    byte[] bytes = new byte[valueCount * 5];
+    ByteArrayDataOutput out = new ByteArrayDataOutput(bytes);
+
+    out.writeVInt(VERSION);
+    out.writeVInt(pageIndexes.length);
+    for (int pageIndex : pageIndexes) {
+      out.writeVInt(pageIndex);
+      out.writeVInt(rowCounts.get(pageIndex));
+      TIntObjectMap<Rectangle> rowRectangles = rectangles.get(pageIndex);
+      TIntIntMap rowStartIndexes = startIndexes.get(pageIndex);
+      if (rowRectangles == null || rowStartIndexes == null) {
+        out.writeVInt(0);
+        continue;
+      }
+      int[] rowIndexes = rowRectangles.keys();
+      Arrays.sort(rowIndexes);
+      out.writeVInt(rowIndexes.length);
+
+      int lastRowIndex = -1;
+      int lastTop = 0;
+      int lastStartIndex = 0;
+      for (int rowIndex : rowIndexes) {
+        Rectangle rect = rowRectangles.get(rowIndex);
+        int startIndex = rowStartIndexes.get(rowIndex);
+        out.writeVInt(rowIndex - lastRowIndex);
+        out.writeVInt(zigZagEncode(rect.y - lastTop));
+        out.writeVInt(zigZagEncode(startIndex - lastStartIndex));
+        out.writeVInt(zigZagEncode(rect.x));
+        out.writeVInt(rect.width);
+        out.writeVInt(rect.height);
+        lastRowIndex = rowIndex;
+        lastTop = rect.y;
+        lastStartIndex = startIndex;
+      }
+    }
+    return Arrays.copyOf(bytes, out.getPosition());
+  }
+
+  private static int zigZagEncode(int value) {
+    return (value << 1) ^ (value >> 31);
+  }
+
+  private static int zigZagDecode(int value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /**
+   * The number of rows on a given page, or -1 if the page isn't in this
+   * document.
+   */
+  public int getRowCount(int pageIndex) {
+    PageRows pageRows = pages.get(pageIndex);
+    if (pageRows == null)
+      return -1;
+    return pageRows.rowCount;
+  }
+
+  /**
+   * The rectangle enclosing a given row, or null if the row isn't in this
+   * document.
+   */
+  public Rectangle getRectangle(int pageIndex, int rowIndex) {
+    PageRows pageRows = pages.get(pageIndex);
+    if (pageRows == null || rowIndex < 0 || rowIndex >= pageRows.startIndexes.length || pageRows.startIndexes[rowIndex] < 0)
+      return null;
+    int i = rowIndex * 4;
+    return new Rectangle(pageRows.rectangles[i], pageRows.rectangles[i + 1], pageRows.rectangles[i + 2], pageRows.rectangles[i + 3]);
+  }
+
+  /**
+   * The content index of the first character on a given row, or -1 if the row
+   * isn't in this document.
+   */
+  public int getStartIndex(int pageIndex, int rowIndex) {
+    PageRows pageRows = pages.get(pageIndex);
+    if (pageRows == null || rowIndex < 0 || rowIndex >= pageRows.startIndexes.length)
+      return -1;
+    return pageRows.startIndexes[rowIndex];
+  }
+}
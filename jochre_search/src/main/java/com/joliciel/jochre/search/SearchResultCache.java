@@ -0,0 +1,221 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2016 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.search;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded cache of search results and highlighting output, so that a user
+ * paging through the results of the same query, or asking again for the same
+ * snippets, doesn't require the query to be run again.<br>
+ * <br>
+ * Results are keyed by the index reader they were computed with, so that a
+ * searcher opened after a refresh never sees results from a previous reader.
+ * The cache is cleared whenever {@link JochreSearchManager} refreshes its
+ * searcher, and entries older than the configured time-to-live are never
+ * returned. The least recently used entries are evicted first.<br>
+ * <br>
+ * Cached values are shared between requests, and must not be modified by
+ * callers.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public class SearchResultCache {
+  private static final Logger LOG = LoggerFactory.getLogger(SearchResultCache.class);
+  private static final Map<String, SearchResultCache> instances = new HashMap<>();
+
+  private final int maxEntries;
+  private final long ttlMillis;
+  private final LongSupplier clock;
+  private final LinkedHashMap<ResultKey, CachedResult> results = new LinkedHashMap<>(16, 0.75f, true);
+  private long hitCount = 0;
+  private long missCount = 0;
+
+  public static synchronized SearchResultCache getInstance(String configId) {
+    SearchResultCache instance = instances.get(configId);
+    if (instance == null) {
+      JochreSearchConfig config = JochreSearchConfig.getInstance(configId);
+      int maxEntries = config.getConfig().getInt("search-result-cache.max-size");
+      long ttlMillis = config.getConfig().getDuration("search-result-cache.ttl", TimeUnit.MILLISECONDS);
+      instance = new SearchResultCache(maxEntries, ttlMillis, System::currentTimeMillis);
+      instances.put(configId, instance);
+    }
+    return instance;
+  }
+
+  SearchResultCache(int maxEntries, long ttlMillis, LongSupplier clock) {
+    this.maxEntries = maxEntries;
+    this.ttlMillis = ttlMillis;
+    this.clock = clock;
+  }
+
+  /**
+   * Get a cached result, or null if there is none or if it has expired.
+   */
+  public synchronized Object get(ResultKey key) {
+    CachedResult result = results.get(key);
+    if (result != null && ttlMillis > 0 && clock.getAsLong() - result.created >= ttlMillis) {
+      results.remove(key);
+      result = null;
+    }
+    if (result == null) {
+      missCount++;
+      return null;
+    }
+    hitCount++;
+    return result.value;
+  }
+
+  public synchronized void put(ResultKey key, Object value) {
+    if (maxEntries <= 0)
+      return;
+    results.put(key, new CachedResult(value, clock.getAsLong()));
+
+    Iterator<ResultKey> iterator = results.keySet().iterator();
+    while (results.size() > maxEntries && iterator.hasNext()) {
+      ResultKey eldest = iterator.next();
+      if (LOG.isDebugEnabled())
+        LOG.debug("Evicting search result " + eldest);
+      iterator.remove();
+    }
+  }
+
+  /**
+   * Remove all results, typically because the index reader has changed.
+   */
+  public synchronized void clear() {
+    results.clear();
+  }
+
+  /**
+   * The number of results currently cached.
+   */
+  public synchronized int size() {
+    return results.size();
+  }
+
+  /**
+   * The number of requests for which a result was found.
+   */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * The number of requests for which no result was found.
+   */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * The proportion of requests for which a result was found, or 0 if there
+   * haven't been any requests.
+   */
+  public synchronized double getHitRate() {
+    long total = hitCount + missCount;
+    if (total == 0)
+      return 0.0;
+    return (double) hitCount / total;
+  }
+
+  private static final class CachedResult {
+    private final Object value;
+    private final long created;
+
+    private CachedResult(Object value, long created) {
+      this.value = value;
+      this.created = created;
+    }
+  }
+
+  /**
+   * The key for a cached result: the index reader, the command, the query in
+   * its parsed Lucene form along with its sort order, and any other parameters
+   * affecting the result. Two queries with the same Lucene query are equal,
+   * even if they were typed differently.
+   */
+  public static final class ResultKey {
+    private final Object readerKey;
+    private final String command;
+    private final Query query;
+    private final List<Object> params;
+
+    public ResultKey(IndexSearcher indexSearcher, String command, JochreQuery jochreQuery, Object... params) {
+      this(getReaderKey(indexSearcher.getIndexReader()), command, jochreQuery.getLuceneQuery(), params(jochreQuery, params));
+    }
+
+    ResultKey(Object readerKey, String command, Query query, List<Object> params) {
+      this.readerKey = readerKey;
+      this.command = command;
+      this.query = query;
+      this.params = params;
+    }
+
+    private static Object getReaderKey(IndexReader reader) {
+      IndexReader.CacheHelper cacheHelper = reader.getReaderCacheHelper();
+      if (cacheHelper == null)
+        return reader;
+      return cacheHelper.getKey();
+    }
+
+    private static List<Object> params(JochreQuery jochreQuery, Object... params) {
+      Object[] allParams = Arrays.copyOf(params, params.length + 2);
+      allParams[params.length] = jochreQuery.getSortBy();
+      allParams[params.length + 1] = jochreQuery.isSortAscending();
+      return Arrays.asList(allParams);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(readerKey, command, query, params);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof ResultKey))
+        return false;
+      ResultKey other = (ResultKey) obj;
+      return readerKey.equals(other.readerKey) && command.equals(other.command) && query.equals(other.query)
+          && params.equals(other.params);
+    }
+
+    @Override
+    public String toString() {
+      return command + ": " + query + " " + params;
+    }
+  }
+}
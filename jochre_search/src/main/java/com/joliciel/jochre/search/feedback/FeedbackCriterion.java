@@ -42,7 +42,13 @@ public enum FeedbackCriterion {
   reference(10);
 
   private final int id;
-  private static Map<Integer, FeedbackCriterion> idMap = null;
+  private static final Map<Integer, FeedbackCriterion> idMap = new HashMap<>();
+
+  static {
+    for (FeedbackCriterion crit : FeedbackCriterion.values()) {
+      idMap.put(crit.id, crit);
+    }
+  }
 
   FeedbackCriterion(int id) {
     this.id = id;
@@ -53,12 +59,6 @@ public enum FeedbackCriterion {
   }
 
   public static FeedbackCriterion forId(int id) {
-    if (idMap == null) {
-      idMap = new HashMap<>();
-      for (FeedbackCriterion crit : FeedbackCriterion.values()) {
-        idMap.put(crit.id, crit);
-      }
-    }
     FeedbackCriterion criterion = idMap.get(id);
     if (criterion == null)
       throw new JochreSearchException("Unknown criterion for id: " + id);
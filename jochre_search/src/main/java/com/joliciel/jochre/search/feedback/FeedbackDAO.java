@@ -34,7 +34,7 @@ class FeedbackDAO {
   private static final Logger LOG = LoggerFactory.getLogger(FeedbackDAO.class);
   private static Map<String, FeedbackDAO> instances = new HashMap<>();
 
-  public static FeedbackDAO getInstance(String configId) {
+  public static synchronized FeedbackDAO getInstance(String configId) {
     FeedbackDAO feedbackDAO = instances.get(configId);
     if (feedbackDAO == null) {
       feedbackDAO = new FeedbackDAO(configId);
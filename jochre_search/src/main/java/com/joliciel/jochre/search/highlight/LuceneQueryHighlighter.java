@@ -8,9 +8,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.NavigableSet;
 import java.util.Set;
+import java.util.SortedSet;
 import java.util.TreeSet;
 
-import org.apache.lucene.document.Document;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexReaderContext;
 import org.apache.lucene.index.LeafReader;
@@ -41,6 +41,7 @@ import org.apache.lucene.util.automaton.CompiledAutomaton;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.joliciel.jochre.search.JochreIndexTermLister;
 import com.joliciel.jochre.search.JochrePayload;
 import com.joliciel.jochre.search.JochreQuery;
 
@@ -88,27 +89,13 @@ public class LuceneQueryHighlighter implements Highlighter {
       List<LeafReaderContext> leaves = readerContext.leaves();
 
       Map<Integer, NavigableSet<HighlightTerm>> termMap = new HashMap<>();
-      Map<Integer, Map<String, List<HighlightPassage>>> docPassages = new HashMap<>();
-
+      Map<Integer, SortedSet<Integer>> myLeaves = new HashMap<>();
       for (int docId : docIds) {
         termMap.put(docId, new TreeSet<HighlightTerm>());
-
-        Map<String, List<HighlightPassage>> fieldPassages = new HashMap<>();
-        docPassages.put(docId, fieldPassages);
-        for (String field : fields) {
-          fieldPassages.put(field, new ArrayList<>());
-        }
-      }
-
-      Map<Integer, Document> luceneIdToLuceneDocMap = new HashMap<>();
-      Map<Integer, Set<Integer>> myLeaves = new HashMap<>();
-      for (int docId : docIds) {
-        Document luceneDoc = indexSearcher.doc(docId);
-        luceneIdToLuceneDocMap.put(docId, luceneDoc);
         int leaf = ReaderUtil.subIndex(docId, leaves);
-        Set<Integer> docsPerLeaf = myLeaves.get(leaf);
+        SortedSet<Integer> docsPerLeaf = myLeaves.get(leaf);
         if (docsPerLeaf == null) {
-          docsPerLeaf = new HashSet<>();
+          docsPerLeaf = new TreeSet<>();
           myLeaves.put(leaf, docsPerLeaf);
         }
         docsPerLeaf.add(docId);
@@ -120,25 +107,38 @@ public class LuceneQueryHighlighter implements Highlighter {
       List<TermsEnumExtractor> extractors = new ArrayList<>();
       this.extractWeights(query, weights, extractors);
 
+      List<Set<Term>> weightTerms = new ArrayList<>(weights.size());
+      for (Weight weight : weights) {
+        Set<Term> terms = new HashSet<>();
+        weight.extractTerms(terms);
+        weightTerms.add(terms);
+      }
+
       for (int leaf : myLeaves.keySet()) {
         if (LOG.isTraceEnabled())
           LOG.trace("Searching leaf " + leaf);
-        Set<Integer> docsPerLeaf = myLeaves.get(leaf);
+        SortedSet<Integer> docsPerLeaf = myLeaves.get(leaf);
         LeafReaderContext subContext = leaves.get(leaf);
         LeafReader atomicReader = subContext.reader();
 
+        Map<Integer, Map<String, List<HighlightPassage>>> docPassages = new HashMap<>();
         for (int docId : docsPerLeaf) {
-          Map<String, List<HighlightPassage>> fieldPassages = docPassages.get(docId);
-          for (Weight weight : weights) {
-            Set<Term> terms = new HashSet<>();
-            weight.extractTerms(terms);
-            Matches matches = weight.matches(subContext, docId - subContext.docBase);
+          Map<String, List<HighlightPassage>> fieldPassages = new HashMap<>();
+          for (String field : fields) {
+            fieldPassages.put(field, new ArrayList<>());
+          }
+          docPassages.put(docId, fieldPassages);
+
+          for (int i = 0; i < weights.size(); i++) {
+            Matches matches = weights.get(i).matches(subContext, docId - subContext.docBase);
             if (matches != null) {
               for (String field : fields) {
                 List<HighlightPassage> passages = fieldPassages.get(field);
                 MatchesIterator iMatches = matches.getMatches(field);
+                if (iMatches == null)
+                  continue;
                 while (iMatches.next()) {
-                  HighlightPassage passage = new HighlightPassage(iMatches.startOffset(), iMatches.endOffset(), terms);
+                  HighlightPassage passage = new HighlightPassage(iMatches.startOffset(), iMatches.endOffset(), weightTerms.get(i));
                   passages.add(passage);
                 }
               }
@@ -150,65 +150,97 @@ public class LuceneQueryHighlighter implements Highlighter {
           if (LOG.isTraceEnabled())
             LOG.trace("Field : " + field);
 
+          // Where a document has a full term vector, all of its highlights are
+          // read from the vector, which only contains this document's terms.
+          List<Integer> docsWithoutVectors = new ArrayList<>();
+          for (int docId : docsPerLeaf) {
+            int relativeId = docId - subContext.docBase;
+            Terms termVector = JochreIndexTermLister.getTermVector(atomicReader, relativeId, field);
+            if (termVector == null) {
+              docsWithoutVectors.add(docId);
+              continue;
+            }
+            if (LOG.isTraceEnabled())
+              LOG.trace("Reading term vector for docId " + docId);
+
+            List<HighlightTerm> highlights = new ArrayList<>();
+            for (TermsEnumExtractor extractor : extractors) {
+              TermsEnum extractorEnum = extractor.getTermsEnum(termVector);
+              PostingsEnum postingsEnum = null;
+              while (extractorEnum.next() != null) {
+                postingsEnum = extractorEnum.postings(postingsEnum, PostingsEnum.OFFSETS | PostingsEnum.POSITIONS | PostingsEnum.PAYLOADS);
+                if (postingsEnum.nextDoc() != DocIdSetIterator.NO_MORE_DOCS)
+                  this.findHighlights(field, extractorEnum.term(), postingsEnum, docId, null, highlights);
+              }
+            }
+
+            TermsEnum termsEnum = termVector.iterator();
+            PostingsEnum postingsEnum = null;
+            for (HighlightPassage passage : docPassages.get(docId).get(field)) {
+              if (LOG.isTraceEnabled())
+                LOG.trace("Checking passage: " + passage);
+              for (Term term : passage.terms) {
+                if (!termsEnum.seekExact(term.bytes()))
+                  continue; // term not found
+                postingsEnum = termsEnum.postings(postingsEnum, PostingsEnum.OFFSETS | PostingsEnum.POSITIONS | PostingsEnum.PAYLOADS);
+                if (postingsEnum.nextDoc() != DocIdSetIterator.NO_MORE_DOCS)
+                  this.findHighlights(field, termsEnum.term(), postingsEnum, docId, passage, highlights);
+              }
+            }
+            termMap.get(docId).addAll(highlights);
+          }
+
+          if (docsWithoutVectors.isEmpty())
+            continue;
+
+          // Otherwise, read the postings, jumping directly to each document.
           Terms atomicReaderTerms = atomicReader.terms(field);
           if (atomicReaderTerms == null) {
             continue; // nothing to do
           }
 
+          List<HighlightTerm> highlights = new ArrayList<>();
           for (TermsEnumExtractor extractor : extractors) {
             if (LOG.isTraceEnabled())
               LOG.trace("Matching extractor " + (extractor.getTerm() == null ? "" : extractor.getTerm().utf8ToString())
                   + " in field " + field);
             TermsEnum extractorEnum = extractor.getTermsEnum(atomicReaderTerms);
-            BytesRef nextBytesRef = extractorEnum.next();
-            while (nextBytesRef != null) {
-              List<HighlightTerm> highlights = this.findHighlights(field, extractorEnum, subContext,
-                  luceneIdToLuceneDocMap, docsPerLeaf);
-              for (HighlightTerm highlightTerm : highlights) {
-                termMap.get(highlightTerm.getDocId()).add(highlightTerm);
+            PostingsEnum postingsEnum = null;
+            while (extractorEnum.next() != null) {
+              postingsEnum = extractorEnum.postings(postingsEnum, PostingsEnum.OFFSETS | PostingsEnum.POSITIONS | PostingsEnum.PAYLOADS);
+              for (int docId : docsWithoutVectors) {
+                int relativeId = docId - subContext.docBase;
+                int currentId = postingsEnum.docID();
+                if (currentId < relativeId)
+                  currentId = postingsEnum.advance(relativeId);
+                if (currentId == DocIdSetIterator.NO_MORE_DOCS)
+                  break;
+                if (currentId == relativeId)
+                  this.findHighlights(field, extractorEnum.term(), postingsEnum, docId, null, highlights);
               }
-              nextBytesRef = extractorEnum.next();
             }
           }
 
-          for (int docId : docsPerLeaf) {
-            List<HighlightPassage> fieldPassages = docPassages.get(docId).get(field);
-            if (fieldPassages != null) {
-              for (HighlightPassage passage : fieldPassages) {
-                if (LOG.isTraceEnabled())
-                  LOG.trace("Checking passage: " + passage);
-                int termCounter = 0;
-                TermsEnum termsEnum = atomicReaderTerms.iterator();
-                for (Term term : passage.terms) {
-                  termCounter++;
-                  if (LOG.isTraceEnabled())
-                    LOG.trace("Searching for term " + termCounter + ": " + term.bytes().utf8ToString() + " in field "
-                        + field);
-
-                  if (!termsEnum.seekExact(term.bytes())) {
-                    continue; // term not found
-                  }
-
-                  Set<Integer> singleDocIdSet = new HashSet<>();
-                  singleDocIdSet.add(docId);
-                  List<HighlightTerm> highlights = this.findHighlights(field, termsEnum, subContext,
-                      luceneIdToLuceneDocMap, singleDocIdSet);
-                  for (HighlightTerm highlightTerm : highlights) {
-                    if (highlightTerm.getStartOffset() >= passage.start
-                        && highlightTerm.getEndOffset() <= passage.end) {
-                      if (LOG.isTraceEnabled())
-                        LOG.trace("Adding term: " + highlightTerm);
-                      termMap.get(highlightTerm.getDocId()).add(highlightTerm);
-                    } else {
-                      if (LOG.isTraceEnabled())
-                        LOG.trace("Term out of range: " + highlightTerm);
-                    }
-                  }
-                } // next term
+          TermsEnum termsEnum = atomicReaderTerms.iterator();
+          PostingsEnum postingsEnum = null;
+          for (int docId : docsWithoutVectors) {
+            int relativeId = docId - subContext.docBase;
+            for (HighlightPassage passage : docPassages.get(docId).get(field)) {
+              if (LOG.isTraceEnabled())
+                LOG.trace("Checking passage: " + passage);
+              for (Term term : passage.terms) {
+                if (!termsEnum.seekExact(term.bytes()))
+                  continue; // term not found
+                postingsEnum = termsEnum.postings(postingsEnum, PostingsEnum.OFFSETS | PostingsEnum.POSITIONS | PostingsEnum.PAYLOADS);
+                if (postingsEnum.advance(relativeId) == relativeId)
+                  this.findHighlights(field, termsEnum.term(), postingsEnum, docId, passage, highlights);
               }
             }
           }
 
+          for (HighlightTerm highlightTerm : highlights) {
+            termMap.get(highlightTerm.getDocId()).add(highlightTerm);
+          }
         } // next field
       } // next leaf
 
@@ -325,46 +357,44 @@ public class LuceneQueryHighlighter implements Highlighter {
     }
   }
 
-  private List<HighlightTerm> findHighlights(String field, TermsEnum termsEnum, LeafReaderContext subContext,
-      Map<Integer, Document> luceneIdToLuceneDocMap, Set<Integer> docsPerLeaf) throws IOException {
-    List<HighlightTerm> highlights = new ArrayList<>();
-
-    Term term = new Term(field, BytesRef.deepCopyOf(termsEnum.term()));
+  /**
+   * Add the occurrences of a term in a single document to the highlights, with
+   * the postings enum already positioned on this document. If a passage is
+   * provided, only occurrences inside the passage are added.
+   */
+  private void findHighlights(String field, BytesRef termBytes, PostingsEnum postingsEnum, int luceneId,
+      HighlightPassage passage, List<HighlightTerm> highlights) throws IOException {
+    Term term = new Term(field, BytesRef.deepCopyOf(termBytes));
 
-    PostingsEnum postingsEnum = termsEnum.postings(null,
-        PostingsEnum.OFFSETS | PostingsEnum.POSITIONS | PostingsEnum.PAYLOADS);
-    int relativeId = postingsEnum.nextDoc();
-    while (relativeId != DocIdSetIterator.NO_MORE_DOCS) {
-      int luceneId = subContext.docBase + relativeId;
-      if (docsPerLeaf.contains(luceneId)) {
-        // Retrieve the term frequency in the current document
-        int freq = postingsEnum.freq();
+    // Retrieve the term frequency in the current document
+    int freq = postingsEnum.freq();
 
-        if (LOG.isTraceEnabled()) {
-          LOG.trace(
-              "Found " + freq + " matches for term " + term.toString() + ", luceneId " + luceneId + ", field " + field);
-        }
-        for (int i = 0; i < freq; i++) {
-          int position = postingsEnum.nextPosition();
-          int start = postingsEnum.startOffset();
-          int end = postingsEnum.endOffset();
+    if (LOG.isTraceEnabled()) {
+      LOG.trace("Found " + freq + " matches for term " + term.toString() + ", luceneId " + luceneId + ", field " + field);
+    }
+    for (int i = 0; i < freq; i++) {
+      int position = postingsEnum.nextPosition();
+      int start = postingsEnum.startOffset();
+      int end = postingsEnum.endOffset();
 
-          if (LOG.isTraceEnabled())
-            LOG.trace("Found match " + position + " at luceneId " + luceneId + ", field " + field + " start=" + start
-                + ", end=" + end);
+      if (LOG.isTraceEnabled())
+        LOG.trace("Found match " + position + " at luceneId " + luceneId + ", field " + field + " start=" + start
+            + ", end=" + end);
 
-          BytesRef bytesRef = postingsEnum.getPayload();
-          JochrePayload payload = new JochrePayload(bytesRef);
-          if (LOG.isTraceEnabled())
-            LOG.trace("Payload: " + payload.toString());
-          double weight = this.weigh(term);
-          HighlightTerm highlight = new HighlightTerm(luceneId, field, start, end, position, weight, payload);
-          highlights.add(highlight);
-        }
+      if (passage != null && (start < passage.start || end > passage.end)) {
+        if (LOG.isTraceEnabled())
+          LOG.trace("Term out of range: " + term.toString() + " at " + start);
+        continue;
       }
-      relativeId = postingsEnum.nextDoc();
+
+      BytesRef bytesRef = postingsEnum.getPayload();
+      JochrePayload payload = new JochrePayload(bytesRef);
+      if (LOG.isTraceEnabled())
+        LOG.trace("Payload: " + payload.toString());
+      double weight = this.weigh(term);
+      HighlightTerm highlight = new HighlightTerm(luceneId, field, start, end, position, weight, payload);
+      highlights.add(highlight);
     }
-    return highlights;
   }
 
   /**
@@ -0,0 +1,78 @@
+package com.joliciel.jochre.search;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.lucene.util.BytesRef;
+import org.junit.Test;
+
+import com.joliciel.jochre.search.FieldTermPrefixIndex.TermTable;
+
+public class FieldTermPrefixIndexTest {
+
+  /**
+   * A segment table with the given terms (already sorted), and the given
+   * weights, the first document for each term being its position.
+   */
+  private static TermTable getSegmentTable(String[] terms, int[] weights) {
+    BytesRef[] termRefs = new BytesRef[terms.length];
+    int[] docIds = new int[terms.length];
+    for (int i = 0; i < terms.length; i++) {
+      termRefs[i] = new BytesRef(terms[i]);
+      docIds[i] = i;
+    }
+    return new TermTable(termRefs, weights, docIds, null);
+  }
+
+  private static List<String> getTopTerms(TermTable table, String prefix, int maxResults) {
+    List<String> results = new ArrayList<>();
+    for (int i : FieldTermPrefixIndex.getTopTerms(table, new BytesRef(prefix), maxResults))
+      results.add(table.terms[i].utf8ToString());
+    Collections.sort(results);
+    return results;
+  }
+
+  @Test
+  public void testMerge() {
+    TermTable segment0 = getSegmentTable(new String[] { "apple", "artichoke", "banana" }, new int[] { 2, 1, 4 });
+    TermTable segment1 = getSegmentTable(new String[] { "apple pie", "artichoke" }, new int[] { 1, 2 });
+    TermTable segment2 = getSegmentTable(new String[] {}, new int[] {});
+    TermTable segment3 = getSegmentTable(new String[] { "apple", "avocado", "cherry" }, new int[] { 3, 1, 1 });
+
+    TermTable merged = FieldTermPrefixIndex.merge(Arrays.asList(segment0, segment1, segment2, segment3));
+
+    assertEquals(6, merged.size());
+    List<String> terms = new ArrayList<>();
+    for (BytesRef term : merged.terms)
+      terms.add(term.utf8ToString());
+    assertEquals(Arrays.asList("apple", "apple pie", "artichoke", "avocado", "banana", "cherry"), terms);
+    // weights are summed across segments
+    assertArrayEquals(new int[] { 5, 1, 3, 1, 4, 1 }, merged.weights);
+    // the first document is taken from the first segment containing the term
+    assertArrayEquals(new int[] { 0, 1, 0, 3, 0, 3 }, merged.segments);
+    assertArrayEquals(new int[] { 0, 0, 1, 1, 2, 2 }, merged.docIds);
+  }
+
+  @Test
+  public void testTopTerms() {
+    TermTable table = getSegmentTable(new String[] { "apple", "apple pie", "apricot", "artichoke", "avocado", "banana" },
+        new int[] { 5, 1, 1, 3, 2, 9 });
+
+    // the highest weights, sorted alphabetically
+    assertEquals(Arrays.asList("apple", "artichoke"), getTopTerms(table, "a", 2));
+    assertEquals(Arrays.asList("apple", "artichoke", "avocado"), getTopTerms(table, "a", 3));
+    // for equal weights, the earlier term is kept
+    assertEquals(Arrays.asList("apple", "apple pie", "artichoke", "avocado"), getTopTerms(table, "a", 4));
+    // 0 returns all terms with the prefix
+    assertEquals(Arrays.asList("apple", "apple pie", "apricot", "artichoke", "avocado"), getTopTerms(table, "a", 0));
+    assertEquals(Arrays.asList("apple", "apple pie"), getTopTerms(table, "appl", 5));
+    assertEquals(Arrays.asList("banana"), getTopTerms(table, "b", 5));
+    assertEquals(Collections.emptyList(), getTopTerms(table, "c", 5));
+    assertEquals(Collections.emptyList(), getTopTerms(table, "aa", 5));
+  }
+}
@@ -0,0 +1,116 @@
+package com.joliciel.jochre.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import com.joliciel.jochre.search.JochreQuery.SortBy;
+import com.typesafe.config.ConfigFactory;
+
+public class JochreIndexSearcherTest {
+  private static final int DOC_COUNT = 25;
+
+  @Test
+  public void testSearchAfterByScore() throws IOException {
+    this.testSearchAfter(SortBy.Score, true);
+  }
+
+  @Test
+  public void testSearchAfterByYear() throws IOException {
+    this.testSearchAfter(SortBy.Year, true);
+    this.testSearchAfter(SortBy.Year, false);
+  }
+
+  private void testSearchAfter(SortBy sortBy, boolean sortAscending) throws IOException {
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+    String configId = "yiddish";
+
+    Directory directory = new RAMDirectory();
+    IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()));
+    for (int i = 0; i < DOC_COUNT; i++) {
+      // years in a different order from the documents, with some duplicates
+      int year = 1900 + (i * 7) % 20;
+      Document doc = new Document();
+      doc.add(new IntPoint(JochreIndexField.year.name(), year));
+      doc.add(new SortedNumericDocValuesField(JochreIndexField.yearSort.name(), year));
+      indexWriter.addDocument(doc);
+    }
+    indexWriter.commit();
+    indexWriter.close();
+
+    try (DirectoryReader reader = DirectoryReader.open(directory)) {
+      IndexSearcher indexSearcher = new IndexSearcher(reader);
+      JochreIndexSearcher searcher = new JochreIndexSearcher(indexSearcher, configId);
+      JochreQuery query = new JochreQuery(configId, null, new ArrayList<>(), true, null, 1900, 2000, true, sortBy,
+          sortAscending, null);
+
+      Pair<TopDocs, Integer> all = searcher.search(query, 0, DOC_COUNT);
+      assertEquals(DOC_COUNT, all.getRight().intValue());
+      List<Integer> expected = new ArrayList<>();
+      for (ScoreDoc scoreDoc : all.getLeft().scoreDocs)
+        expected.add(scoreDoc.doc);
+
+      // page numbers
+      List<Integer> paged = new ArrayList<>();
+      for (int page = 0; page < 3; page++) {
+        Pair<TopDocs, Integer> results = searcher.search(query, page, 10);
+        assertEquals(DOC_COUNT, results.getRight().intValue());
+        for (ScoreDoc scoreDoc : results.getLeft().scoreDocs)
+          paged.add(scoreDoc.doc);
+      }
+      assertEquals(expected, paged);
+
+      // search after tokens
+      List<Integer> cursor = new ArrayList<>();
+      String searchAfter = null;
+      for (int page = 0; page < 3; page++) {
+        Pair<TopDocs, Integer> results = searcher.search(query, searchAfter, 10);
+        assertEquals(DOC_COUNT, results.getRight().intValue());
+        ScoreDoc[] scoreDocs = results.getLeft().scoreDocs;
+        assertTrue(scoreDocs.length > 0);
+        for (ScoreDoc scoreDoc : scoreDocs)
+          cursor.add(scoreDoc.doc);
+        searchAfter = searcher.getSearchAfter(scoreDocs[scoreDocs.length - 1]);
+      }
+      assertEquals(expected, cursor);
+    }
+  }
+
+  @Test(expected = JochreSearchException.class)
+  public void testInvalidSearchAfter() throws IOException {
+    System.setProperty("config.file", "src/test/resources/test.conf");
+    ConfigFactory.invalidateCaches();
+    String configId = "yiddish";
+
+    Directory directory = new RAMDirectory();
+    IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()));
+    indexWriter.addDocument(new Document());
+    indexWriter.close();
+
+    try (DirectoryReader reader = DirectoryReader.open(directory)) {
+      JochreIndexSearcher searcher = new JochreIndexSearcher(new IndexSearcher(reader), configId);
+      JochreQuery query = new JochreQuery(configId, null, new ArrayList<>(), true, null, 1900, 2000, true, SortBy.Year,
+          true, null);
+      searcher.search(query, "not-a-token", 10);
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package com.joliciel.jochre.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Rectangle;
+
+import org.apache.lucene.util.BytesRef;
+import org.junit.Test;
+
+public class JochrePayloadTest {
+
+  @Test
+  public void testRoundTrip() {
+    Rectangle rect = new Rectangle(2345, 4321, 120, 48);
+    JochrePayload payload = new JochrePayload(rect, null, 12, 3, 25);
+    assertTrue(payload.getBytesRef().length < 14);
+
+    JochrePayload decoded = new JochrePayload(payload.getBytesRef());
+    assertEquals(rect, decoded.getRectangle());
+    assertNull(decoded.getSecondaryRectangle());
+    assertEquals(12, decoded.getPageIndex());
+    assertEquals(3, decoded.getParagraphIndex());
+    assertEquals(25, decoded.getRowIndex());
+  }
+
+  @Test
+  public void testRoundTripWithSecondaryRectangle() {
+    Rectangle rect = new Rectangle(100, 4321, 120, 48);
+    Rectangle secondaryRect = new Rectangle(3100, 4390, 80, 45);
+    JochrePayload payload = new JochrePayload(rect, secondaryRect, 300, 1000, 70000);
+
+    JochrePayload decoded = new JochrePayload(payload.getBytesRef());
+    assertEquals(rect, decoded.getRectangle());
+    assertEquals(secondaryRect, decoded.getSecondaryRectangle());
+    assertEquals(300, decoded.getPageIndex());
+    assertEquals(1000, decoded.getParagraphIndex());
+    assertEquals(70000, decoded.getRowIndex());
+  }
+
+  @Test
+  public void testNoLegacyLength() {
+    // large values which would encode to exactly 14 bytes are padded
+    Rectangle rect = new Rectangle(100000, 100000, 200, 200);
+    JochrePayload payload = new JochrePayload(rect, null, 1, 1, 1);
+    assertEquals(15, payload.getBytesRef().length);
+
+    JochrePayload decoded = new JochrePayload(payload.getBytesRef());
+    assertEquals(rect, decoded.getRectangle());
+    assertEquals(1, decoded.getPageIndex());
+  }
+
+  @Test
+  public void testLegacyFormat() {
+    byte[] bytes = new byte[] { 9, 41, 16, -31, 0, 120, 0, 48, 0, 12, 0, 3, 0, 25, 12, 28, 17, 38, 0, 80, 0, 45 };
+    BytesRef bytesRef = new BytesRef(bytes);
+    bytesRef.length = 14;
+    JochrePayload payload = new JochrePayload(bytesRef);
+    assertEquals(new Rectangle(2345, 4321, 120, 48), payload.getRectangle());
+    assertNull(payload.getSecondaryRectangle());
+    assertEquals(12, payload.getPageIndex());
+    assertEquals(3, payload.getParagraphIndex());
+    assertEquals(25, payload.getRowIndex());
+
+    payload = new JochrePayload(new BytesRef(bytes));
+    assertEquals(new Rectangle(3100, 4390, 80, 45), payload.getSecondaryRectangle());
+  }
+}
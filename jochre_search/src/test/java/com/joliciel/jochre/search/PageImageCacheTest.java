@@ -0,0 +1,53 @@
+package com.joliciel.jochre.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.Test;
+
+import com.joliciel.jochre.search.PageImageCache.PageKey;
+
+public class PageImageCacheTest {
+
+  @Test
+  public void testEvictLeastRecentlyUsed() {
+    // three 100x100 greyscale pages take 10,000 bytes each
+    PageImageCache cache = new PageImageCache(25000);
+    PageKey key1 = new PageKey("book.pdf", 0L, 1);
+    PageKey key2 = new PageKey("book.pdf", 0L, 2);
+    PageKey key3 = new PageKey("book.pdf", 0L, 3);
+    BufferedImage image1 = new BufferedImage(100, 100, BufferedImage.TYPE_BYTE_GRAY);
+    BufferedImage image2 = new BufferedImage(100, 100, BufferedImage.TYPE_BYTE_GRAY);
+    BufferedImage image3 = new BufferedImage(100, 100, BufferedImage.TYPE_BYTE_GRAY);
+
+    cache.put(key1, image1);
+    cache.put(key2, image2);
+    assertEquals(20000, cache.getCurrentBytes());
+
+    // touch page 1 so that page 2 is the least recently used
+    assertSame(image1, cache.get(key1));
+    cache.put(key3, image3);
+
+    assertEquals(2, cache.size());
+    assertEquals(20000, cache.getCurrentBytes());
+    assertNotNull(cache.get(key1));
+    assertNull(cache.get(key2));
+    assertNotNull(cache.get(key3));
+
+    // a modified file is a different key
+    assertNull(cache.get(new PageKey("book.pdf", 1L, 1)));
+  }
+
+  @Test
+  public void testImageTooLarge() {
+    PageImageCache cache = new PageImageCache(1000);
+    PageKey key = new PageKey("book.pdf", 0L, 1);
+    cache.put(key, new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB));
+    assertNull(cache.get(key));
+    assertEquals(0, cache.getCurrentBytes());
+  }
+}
@@ -0,0 +1,156 @@
+package com.joliciel.jochre.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.junit.Test;
+
+public class PageImageStoreTest {
+
+  private static BufferedImage greyImage() {
+    BufferedImage image = new BufferedImage(60, 40, BufferedImage.TYPE_BYTE_GRAY);
+    for (int y = 0; y < image.getHeight(); y++)
+      for (int x = 0; x < image.getWidth(); x++) {
+        int grey = (x * 4 + y * 3) % 256;
+        image.setRGB(x, y, (grey << 16) | (grey << 8) | grey);
+      }
+    return image;
+  }
+
+  private static BufferedImage colourImage() {
+    BufferedImage image = new BufferedImage(30, 50, BufferedImage.TYPE_INT_RGB);
+    for (int y = 0; y < image.getHeight(); y++)
+      for (int x = 0; x < image.getWidth(); x++)
+        image.setRGB(x, y, ((x * 8) << 16) | ((y * 5) << 8) | 200);
+    return image;
+  }
+
+  /**
+   * A colour scan of a page: yellowish paper with lines of dark text.
+   */
+  private static BufferedImage scanImage() {
+    Random random = new Random(42);
+    BufferedImage image = new BufferedImage(600, 800, BufferedImage.TYPE_3BYTE_BGR);
+    Graphics2D graphics = image.createGraphics();
+    graphics.setColor(new Color(0xF0E6C8));
+    graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+    graphics.setColor(new Color(0x201810));
+    for (int y = 60; y < 740; y += 30) {
+      for (int x = 50; x < 550;) {
+        int width = 4 + random.nextInt(12);
+        graphics.fillRect(x, y + random.nextInt(4), width, 8 + random.nextInt(6));
+        x += width + 2 + random.nextInt(8);
+      }
+    }
+    graphics.dispose();
+    return image;
+  }
+
+  private static void addPage(PDDocument doc, BufferedImage image) throws Exception {
+    addPage(doc, LosslessFactory.createFromImage(doc, image), image);
+  }
+
+  private static void addPage(PDDocument doc, PDImageXObject pdImage, BufferedImage image) throws Exception {
+    PDPage page = new PDPage(new PDRectangle(image.getWidth(), image.getHeight()));
+    doc.addPage(page);
+    try (PDPageContentStream contents = new PDPageContentStream(doc, page)) {
+      contents.drawImage(pdImage, 0, 0, image.getWidth(), image.getHeight());
+    }
+  }
+
+  private static void assertSamePixels(BufferedImage expected, BufferedImage actual) {
+    assertEquals(expected.getWidth(), actual.getWidth());
+    assertEquals(expected.getHeight(), actual.getHeight());
+    for (int y = 0; y < expected.getHeight(); y++)
+      for (int x = 0; x < expected.getWidth(); x++)
+        assertEquals("pixel " + x + "," + y, expected.getRGB(x, y), actual.getRGB(x, y));
+  }
+
+  @Test
+  public void testWriteAndRead() throws Exception {
+    File dir = Files.createTempDirectory("pageImageStore").toFile();
+    File pdfFile = new File(dir, "book.pdf");
+    BufferedImage greyImage = greyImage();
+    BufferedImage colourImage = colourImage();
+    try (PDDocument doc = new PDDocument()) {
+      addPage(doc, greyImage);
+      addPage(doc, colourImage);
+      doc.save(pdfFile);
+    }
+
+    PageImageStore store = new PageImageStore(pdfFile);
+    assertEquals(new File(dir, "book" + PageImageStore.EXTENSION), store.getStoreFile());
+    store.write();
+    assertTrue(store.isUpToDate());
+
+    assertSamePixels(greyImage, store.readImage(1));
+    // colour pages are stored in greyscale
+    BufferedImage colourPage = store.readImage(2);
+    assertEquals(BufferedImage.TYPE_BYTE_GRAY, colourPage.getType());
+    assertSamePixels(PageImageStore.toPageImage(colourImage), colourPage);
+    assertNull(store.readImage(3));
+
+    // a second store on the same file reads the same pages
+    PageImageStore store2 = new PageImageStore(pdfFile);
+    assertSamePixels(colourPage, store2.readImage(2));
+    assertSamePixels(greyImage, store2.readImage(1));
+
+    // reading the PDF directly gives the same pages
+    store.getStoreFile().delete();
+    PdfImageReader pdfImageReader = new PdfImageReader(pdfFile);
+    assertSamePixels(greyImage, pdfImageReader.readImage(1));
+    assertSamePixels(colourPage, pdfImageReader.readImage(2));
+
+    for (File file : dir.listFiles())
+      file.delete();
+    dir.delete();
+  }
+
+  @Test
+  public void testColourScanSize() throws Exception {
+    File dir = Files.createTempDirectory("pageImageStore").toFile();
+    File pdfFile = new File(dir, "scan.pdf");
+    BufferedImage scanImage = scanImage();
+    BufferedImage decodedImage;
+    try (PDDocument doc = new PDDocument()) {
+      PDImageXObject pdImage = JPEGFactory.createFromImage(doc, scanImage);
+      decodedImage = pdImage.getImage();
+      addPage(doc, pdImage, scanImage);
+      doc.save(pdfFile);
+    }
+
+    PageImageStore store = new PageImageStore(pdfFile);
+    store.write();
+    BufferedImage page = store.readImage(1);
+    assertEquals(BufferedImage.TYPE_BYTE_GRAY, page.getType());
+    assertEquals(scanImage.getWidth(), page.getWidth());
+    assertEquals(scanImage.getHeight(), page.getHeight());
+    // the page takes much less space than a colour PNG of the decoded scan
+    ByteArrayOutputStream colourPng = new ByteArrayOutputStream();
+    ImageIO.write(decodedImage, "png", colourPng);
+    long storeLength = store.getStoreFile().length();
+    assertTrue("store " + storeLength + ", colour PNG " + colourPng.size(), storeLength * 2 < colourPng.size());
+
+    for (File file : dir.listFiles())
+      file.delete();
+    dir.delete();
+  }
+}
@@ -0,0 +1,53 @@
+package com.joliciel.jochre.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.awt.Rectangle;
+
+import org.apache.lucene.util.BytesRef;
+import org.junit.Test;
+
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+
+public class RowGeometryTest {
+
+  @Test
+  public void testEncodeDecode() {
+    TIntIntMap rowCounts = new TIntIntHashMap();
+    TIntObjectMap<TIntObjectMap<Rectangle>> rectangles = new TIntObjectHashMap<>();
+    TIntObjectMap<TIntIntMap> startIndexes = new TIntObjectHashMap<>();
+
+    for (int pageIndex = 5; pageIndex <= 7; pageIndex++) {
+      TIntObjectMap<Rectangle> rowRectangles = new TIntObjectHashMap<>();
+      TIntIntMap rowStartIndexes = new TIntIntHashMap();
+      rectangles.put(pageIndex, rowRectangles);
+      startIndexes.put(pageIndex, rowStartIndexes);
+      // page 6 is empty
+      int rowCount = pageIndex == 6 ? 0 : 40;
+      rowCounts.put(pageIndex, rowCount);
+      for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+        rowRectangles.put(rowIndex, new Rectangle(200 + (rowIndex % 3), 300 + rowIndex * 100, 3000, 90 + pageIndex));
+        rowStartIndexes.put(rowIndex, pageIndex * 10000 + rowIndex * 55);
+      }
+    }
+
+    byte[] bytes = RowGeometry.encode(rowCounts, rectangles, startIndexes);
+    RowGeometry rowGeometry = new RowGeometry(new BytesRef(bytes));
+
+    assertEquals(40, rowGeometry.getRowCount(5));
+    assertEquals(0, rowGeometry.getRowCount(6));
+    assertEquals(-1, rowGeometry.getRowCount(8));
+    for (int pageIndex : new int[] { 5, 7 }) {
+      for (int rowIndex = 0; rowIndex < 40; rowIndex++) {
+        assertEquals(rectangles.get(pageIndex).get(rowIndex), rowGeometry.getRectangle(pageIndex, rowIndex));
+        assertEquals(startIndexes.get(pageIndex).get(rowIndex), rowGeometry.getStartIndex(pageIndex, rowIndex));
+      }
+    }
+    assertNull(rowGeometry.getRectangle(5, 40));
+    assertEquals(-1, rowGeometry.getStartIndex(6, 0));
+  }
+}
@@ -0,0 +1,86 @@
+package com.joliciel.jochre.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.junit.Test;
+
+import com.joliciel.jochre.search.SearchResultCache.ResultKey;
+
+public class SearchResultCacheTest {
+  private final Object reader1 = new Object();
+  private final Object reader2 = new Object();
+
+  private ResultKey key(Object readerKey, String text, int page) {
+    Query query = new TermQuery(new Term(JochreIndexField.text.name(), text));
+    return new ResultKey(readerKey, "search", query, Arrays.asList(page, 10));
+  }
+
+  @Test
+  public void testEvictLeastRecentlyUsed() {
+    SearchResultCache cache = new SearchResultCache(2, 0, () -> 0L);
+    Object result1 = new Object();
+    Object result2 = new Object();
+    Object result3 = new Object();
+
+    cache.put(key(reader1, "a", 0), result1);
+    cache.put(key(reader1, "a", 1), result2);
+
+    // an equal key built from a separate query finds the same result
+    assertSame(result1, cache.get(key(reader1, "a", 0)));
+    cache.put(key(reader1, "b", 0), result3);
+
+    assertEquals(2, cache.size());
+    assertNotNull(cache.get(key(reader1, "a", 0)));
+    assertNull(cache.get(key(reader1, "a", 1)));
+    assertNotNull(cache.get(key(reader1, "b", 0)));
+  }
+
+  @Test
+  public void testReaderKey() {
+    SearchResultCache cache = new SearchResultCache(10, 0, () -> 0L);
+    cache.put(key(reader1, "a", 0), new Object());
+    assertNull(cache.get(key(reader2, "a", 0)));
+  }
+
+  @Test
+  public void testTimeToLive() {
+    AtomicLong time = new AtomicLong(1000L);
+    SearchResultCache cache = new SearchResultCache(10, 500, time::get);
+    cache.put(key(reader1, "a", 0), new Object());
+
+    time.set(1499L);
+    assertNotNull(cache.get(key(reader1, "a", 0)));
+    time.set(1500L);
+    assertNull(cache.get(key(reader1, "a", 0)));
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testHitRate() {
+    SearchResultCache cache = new SearchResultCache(10, 0, () -> 0L);
+    assertEquals(0.0, cache.getHitRate(), 0.0001);
+
+    assertNull(cache.get(key(reader1, "a", 0)));
+    cache.put(key(reader1, "a", 0), new Object());
+    cache.get(key(reader1, "a", 0));
+    cache.get(key(reader1, "a", 0));
+    cache.get(key(reader1, "a", 0));
+
+    assertEquals(3, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(0.75, cache.getHitRate(), 0.0001);
+
+    cache.clear();
+    assertEquals(0, cache.size());
+    assertNull(cache.get(key(reader1, "a", 0)));
+  }
+}
@@ -0,0 +1,310 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.utils.graphics;
+
+import java.util.BitSet;
+
+/**
+ * A black-and-white image packed 64 pixels per long, where a set bit is a
+ * black pixel. Each row starts on a new long, with bit x of a row stored at
+ * bit <code>x % 64</code> of word <code>x / 64</code>. Bits beyond the width
+ * are always clear, so that rows can be scanned and combined a word at a
+ * time.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public final class BitPlane {
+  private final int width;
+  private final int height;
+  private final int wordsPerRow;
+  private final long[] words;
+
+  /**
+   * An empty (all white) plane.
+   */
+  public BitPlane(int width, int height) {
+    this.width = width;
+    this.height = height;
+    this.wordsPerRow = (width + 63) >>> 6;
+    this.words = new long[wordsPerRow * height];
+  }
+
+  /**
+   * A plane in which a pixel is black if the raster's brightness for this pixel
+   * is marked as black in the lookup table.
+   * 
+   * @param blackValues
+   *          for each brightness from 0 to 255, whether or not it is
+   *          considered black
+   */
+  public BitPlane(GreyscaleRaster raster, boolean[] blackValues) {
+    this(raster.getWidth(), raster.getHeight());
+    byte[] pixels = raster.getPixels();
+    int stride = raster.getStride();
+    for (int y = 0; y < height; y++) {
+      int pixelIndex = (raster.getOffsetY() + y) * stride + raster.getOffsetX();
+      int rowStart = y * wordsPerRow;
+      for (int w = 0; w < wordsPerRow; w++) {
+        long word = 0;
+        int xStart = w << 6;
+        int xEnd = Math.min(xStart + 64, width);
+        for (int x = xStart; x < xEnd; x++) {
+          if (blackValues[pixels[pixelIndex + x] & 0xFF])
+            word |= 1L << (x & 63);
+        }
+        words[rowStart + w] = word;
+      }
+    }
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Is the pixel black? Pixels outside the plane are always white.
+   */
+  public boolean get(int x, int y) {
+    if (x < 0 || y < 0 || x >= width || y >= height)
+      return false;
+    return (words[y * wordsPerRow + (x >>> 6)] & (1L << (x & 63))) != 0;
+  }
+
+  /**
+   * Set a pixel to black (true) or white (false). Pixels outside the plane are
+   * ignored.
+   */
+  public void set(int x, int y, boolean black) {
+    if (x < 0 || y < 0 || x >= width || y >= height)
+      return;
+    int index = y * wordsPerRow + (x >>> 6);
+    if (black)
+      words[index] |= 1L << (x & 63);
+    else
+      words[index] &= ~(1L << (x & 63));
+  }
+
+  /**
+   * Set all pixels from xStart (inclusive) to xEnd (exclusive) on row y to
+   * black.
+   */
+  public void setRange(int xStart, int xEnd, int y) {
+    if (y < 0 || y >= height)
+      return;
+    xStart = Math.max(xStart, 0);
+    xEnd = Math.min(xEnd, width);
+    if (xStart >= xEnd)
+      return;
+    int rowStart = y * wordsPerRow;
+    int firstWord = xStart >>> 6;
+    int lastWord = (xEnd - 1) >>> 6;
+    long firstMask = -1L << (xStart & 63);
+    long lastMask = -1L >>> (63 - ((xEnd - 1) & 63));
+    if (firstWord == lastWord) {
+      words[rowStart + firstWord] |= firstMask & lastMask;
+    } else {
+      words[rowStart + firstWord] |= firstMask;
+      for (int w = firstWord + 1; w < lastWord; w++)
+        words[rowStart + w] = -1L;
+      words[rowStart + lastWord] |= lastMask;
+    }
+  }
+
+  /**
+   * The first black pixel on row y at or after x, or -1 if there is none.
+   */
+  public int nextBlack(int x, int y) {
+    return this.nextBlack(x, y, null);
+  }
+
+  /**
+   * The first pixel on row y at or after x which is black in this plane and
+   * white in the mask, or -1 if there is none. The mask must have the same
+   * dimensions as this plane, and is ignored if null.
+   */
+  public int nextBlack(int x, int y, BitPlane mask) {
+    if (y < 0 || y >= height || x >= width)
+      return -1;
+    if (x < 0)
+      x = 0;
+    int rowStart = y * wordsPerRow;
+    int w = x >>> 6;
+    long word = words[rowStart + w];
+    if (mask != null)
+      word &= ~mask.words[rowStart + w];
+    word &= -1L << (x & 63);
+    while (true) {
+      if (word != 0)
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+      if (++w == wordsPerRow)
+        return -1;
+      word = words[rowStart + w];
+      if (mask != null)
+        word &= ~mask.words[rowStart + w];
+    }
+  }
+
+  /**
+   * The first white pixel on row y at or after x, or the plane's width if there
+   * is none.
+   */
+  public int nextWhite(int x, int y) {
+    if (y < 0 || y >= height || x >= width)
+      return Math.max(x, width);
+    if (x < 0)
+      return x;
+    int rowStart = y * wordsPerRow;
+    int w = x >>> 6;
+    long word = ~words[rowStart + w] & (-1L << (x & 63));
+    while (true) {
+      if (word != 0)
+        return Math.min((w << 6) + Long.numberOfTrailingZeros(word), width);
+      if (++w == wordsPerRow)
+        return width;
+      word = ~words[rowStart + w];
+    }
+  }
+
+  /**
+   * The last white pixel on row y at or before x, or -1 if there is none.
+   */
+  public int previousWhite(int x, int y) {
+    if (y < 0 || y >= height || x < 0)
+      return Math.min(x, -1);
+    if (x >= width)
+      return x;
+    int rowStart = y * wordsPerRow;
+    int w = x >>> 6;
+    long word = ~words[rowStart + w] & (-1L >>> (63 - (x & 63)));
+    while (true) {
+      if (word != 0)
+        return (w << 6) + 63 - Long.numberOfLeadingZeros(word);
+      if (--w < 0)
+        return -1;
+      word = ~words[rowStart + w];
+    }
+  }
+
+  /**
+   * The number of black pixels on row y.
+   */
+  public int countBlack(int y) {
+    int count = 0;
+    int rowStart = y * wordsPerRow;
+    for (int w = 0; w < wordsPerRow; w++)
+      count += Long.bitCount(words[rowStart + w]);
+    return count;
+  }
+
+  /**
+   * A copy of a rectangle within this plane, whose coordinates are relative to
+   * the rectangle's top-left corner. Any part of the rectangle outside this
+   * plane is white.
+   */
+  public BitPlane getRegion(int left, int top, int regionWidth, int regionHeight) {
+    BitPlane region = new BitPlane(regionWidth, regionHeight);
+    int shift = left & 63;
+    for (int y = 0; y < regionHeight; y++) {
+      int sourceY = top + y;
+      if (sourceY < 0 || sourceY >= height)
+        continue;
+      int sourceRowStart = sourceY * wordsPerRow;
+      int targetRowStart = y * region.wordsPerRow;
+      for (int w = 0; w < region.wordsPerRow; w++) {
+        // bits [left + 64w, left + 64w + 64) in the source row
+        int sourceWord = (left >> 6) + w;
+        long low = this.getWord(sourceRowStart, sourceWord);
+        long word;
+        if (shift == 0) {
+          word = low;
+        } else {
+          long high = this.getWord(sourceRowStart, sourceWord + 1);
+          word = (low >>> shift) | (high << (64 - shift));
+        }
+        region.words[targetRowStart + w] = word;
+      }
+      region.clearTail(targetRowStart);
+    }
+    return region;
+  }
+
+  private long getWord(int rowStart, int w) {
+    if (w < 0 || w >= wordsPerRow)
+      return 0;
+    return words[rowStart + w];
+  }
+
+  private void clearTail(int rowStart) {
+    int tail = width & 63;
+    if (tail != 0)
+      words[rowStart + wordsPerRow - 1] &= -1L >>> (64 - tail);
+  }
+
+  /**
+   * The outline of this plane: all black pixels which do not have four black
+   * neighbours (left, right, above and below), considering pixels outside the
+   * plane as white.
+   */
+  public BitPlane getOutline() {
+    BitPlane outline = new BitPlane(width, height);
+    for (int y = 0; y < height; y++) {
+      int rowStart = y * wordsPerRow;
+      for (int w = 0; w < wordsPerRow; w++) {
+        long current = words[rowStart + w];
+        if (current == 0)
+          continue;
+        long previous = w > 0 ? words[rowStart + w - 1] : 0;
+        long next = w < wordsPerRow - 1 ? words[rowStart + w + 1] : 0;
+        long leftNeighbours = (current << 1) | (previous >>> 63);
+        long rightNeighbours = (current >>> 1) | (next << 63);
+        long above = y > 0 ? words[rowStart - wordsPerRow + w] : 0;
+        long below = y < height - 1 ? words[rowStart + wordsPerRow + w] : 0;
+        long inner = current & leftNeighbours & rightNeighbours & above & below;
+        outline.words[rowStart + w] = current & ~inner;
+      }
+    }
+    return outline;
+  }
+
+  /**
+   * This plane as a BitSet, structured from top-left to bottom-right,
+   * travelling horizontally first.
+   */
+  public BitSet toBitSet() {
+    BitSet bitSet = new BitSet(width * height);
+    for (int y = 0; y < height; y++) {
+      int rowStart = y * wordsPerRow;
+      int bitStart = y * width;
+      for (int w = 0; w < wordsPerRow; w++) {
+        long word = words[rowStart + w];
+        while (word != 0) {
+          int bit = Long.numberOfTrailingZeros(word);
+          bitSet.set(bitStart + (w << 6) + bit);
+          word &= word - 1;
+        }
+      }
+    }
+    return bitSet;
+  }
+}
@@ -0,0 +1,162 @@
+///////////////////////////////////////////////////////////////////////////////
+//Copyright (C) 2012 Assaf Urieli
+//
+//This file is part of Jochre.
+//
+//Jochre is free software: you can redistribute it and/or modify
+//it under the terms of the GNU Affero General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//Jochre is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU Affero General Public License for more details.
+//
+//You should have received a copy of the GNU Affero General Public License
+//along with Jochre.  If not, see <http://www.gnu.org/licenses/>.
+//////////////////////////////////////////////////////////////////////////////
+package com.joliciel.jochre.utils.graphics;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.Raster;
+
+/**
+ * An {@link ImagePixelGrabber} backed by a packed greyscale byte array, one
+ * byte per pixel, holding the same brightness values as
+ * {@link ImagePixelGrabberImpl#getPixelBrightness(int, int)}.<br>
+ * The array is built once for an entire image: rectangular regions of the
+ * image are read through views sharing the same array, so that no pixels are
+ * copied or re-grabbed per region.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public final class GreyscaleRaster implements ImagePixelGrabber {
+  private final byte[] pixels;
+  private final int stride;
+  private final int offsetX;
+  private final int offsetY;
+  private final int width;
+  private final int height;
+
+  /**
+   * Build a raster containing the brightness of every pixel in the image.
+   */
+  public GreyscaleRaster(BufferedImage image) {
+    this.width = image.getWidth();
+    this.height = image.getHeight();
+    this.stride = width;
+    this.offsetX = 0;
+    this.offsetY = 0;
+    this.pixels = new byte[width * height];
+
+    int[] row = new int[width];
+    if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+      // read the samples directly, converting each grey level once
+      ColorModel colorModel = image.getColorModel();
+      byte[] brightness = new byte[256];
+      for (int i = 0; i < 256; i++)
+        brightness[i] = (byte) getBrightness(colorModel.getRGB(new byte[] { (byte) i }));
+      Raster raster = image.getRaster();
+      for (int y = 0; y < height; y++) {
+        raster.getSamples(0, y, width, 1, 0, row);
+        int index = y * stride;
+        for (int x = 0; x < width; x++)
+          pixels[index + x] = brightness[row[x]];
+      }
+    } else {
+      for (int y = 0; y < height; y++) {
+        image.getRGB(0, y, width, 1, row, 0, width);
+        int index = y * stride;
+        for (int x = 0; x < width; x++)
+          pixels[index + x] = (byte) getBrightness(row[x]);
+      }
+    }
+  }
+
+  private static int getBrightness(int rgb) {
+    int red = (rgb >> 16) & 0xFF;
+    int green = (rgb >> 8) & 0xFF;
+    int blue = rgb & 0xFF;
+    return (11 * red + 16 * green + 5 * blue) / 32;
+  }
+
+  private GreyscaleRaster(GreyscaleRaster parent, int left, int top, int width, int height) {
+    this.pixels = parent.pixels;
+    this.stride = parent.stride;
+    this.offsetX = parent.offsetX + left;
+    this.offsetY = parent.offsetY + top;
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * A view on a rectangle within this raster, whose coordinates are relative
+   * to the rectangle's top-left corner. The underlying pixels are shared, not
+   * copied.
+   */
+  public GreyscaleRaster getView(int left, int top, int width, int height) {
+    if (left < 0 || top < 0 || left + width > this.width || top + height > this.height)
+      throw new IllegalArgumentException("View [" + left + "," + top + "," + width + "," + height + "] outside of raster [" + this.width + "," + this.height + "]");
+    return new GreyscaleRaster(this, left, top, width, height);
+  }
+
+  /**
+   * The packed brightness values, shared by this raster and all of its views.
+   * Pixel (x,y) of this raster is found at index
+   * <code>(offsetY + y) * stride + offsetX + x</code>.
+   */
+  @Override
+  public byte[] getPixels() {
+    return pixels;
+  }
+
+  public int getStride() {
+    return stride;
+  }
+
+  public int getOffsetX() {
+    return offsetX;
+  }
+
+  public int getOffsetY() {
+    return offsetY;
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getNumColors() {
+    return 256;
+  }
+
+  @Override
+  public int getRed(int pixel) {
+    return pixel & 0xFF;
+  }
+
+  @Override
+  public int getGreen(int pixel) {
+    return pixel & 0xFF;
+  }
+
+  @Override
+  public int getBlue(int pixel) {
+    return pixel & 0xFF;
+  }
+
+  @Override
+  public int getPixelBrightness(int x, int y) {
+    return pixels[(offsetY + y) * stride + offsetX + x] & 0xFF;
+  }
+}
@@ -3,6 +3,7 @@ package com.joliciel.jochre.utils.graphics;
 import java.awt.*;
 import java.awt.geom.AffineTransform;
 import java.awt.image.*;
+import java.util.Arrays;
 
 public class ImageUtils {
   public static BufferedImage indexedToRGB(BufferedImage indexed) {
@@ -79,6 +80,95 @@ public class ImageUtils {
     return blackWhiteImage;
   }
 
+  /**
+   * Convert an image to an 8-bit greyscale image with an equalised histogram,
+   * after brightening each colour component c to <code>c * scale + offset</code>.
+   * <br>
+   * Gives the same result as {@link #indexedToRGB(BufferedImage)}, a
+   * {@link RescaleOp}, {@link #toGreyscale(BufferedImage)} and OpenCV's
+   * equalizeHist applied one after the other, but reads the source image once
+   * and writes a single greyscale buffer, which is equalised in place.
+   */
+  public static BufferedImage toEqualisedGreyscale(BufferedImage image, float scale, float offset) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    BufferedImage greyImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+    byte[] pixels = ((DataBufferByte) greyImage.getRaster().getDataBuffer()).getData();
+
+    int[] brighter = new int[256];
+    for (int i = 0; i < 256; i++)
+      brighter[i] = Math.max(0, Math.min(255, (int) (i * scale + offset)));
+
+    int[] histogram = new int[256];
+    int[] row = new int[width];
+    if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+      Raster raster = image.getRaster();
+      for (int y = 0; y < height; y++) {
+        raster.getSamples(0, y, width, 1, 0, row);
+        int index = y * width;
+        for (int x = 0; x < width; x++) {
+          int grey = brighter[row[x]];
+          pixels[index + x] = (byte) grey;
+          histogram[grey]++;
+        }
+      }
+    } else {
+      // transparent pixels are drawn onto black: indexed images are drawn
+      // before brightening, other images after
+      boolean hasAlpha = image.getColorModel().hasAlpha();
+      boolean indexed = image.getColorModel() instanceof IndexColorModel;
+      for (int y = 0; y < height; y++) {
+        image.getRGB(0, y, width, 1, row, 0, width);
+        int index = y * width;
+        for (int x = 0; x < width; x++) {
+          int argb = row[x];
+          int red = (argb >> 16) & 0xFF;
+          int green = (argb >> 8) & 0xFF;
+          int blue = argb & 0xFF;
+          if (hasAlpha && indexed) {
+            int alpha = argb >>> 24;
+            red = brighter[(red * alpha + 127) / 255];
+            green = brighter[(green * alpha + 127) / 255];
+            blue = brighter[(blue * alpha + 127) / 255];
+          } else if (hasAlpha) {
+            int alpha = argb >>> 24;
+            red = (brighter[red] * alpha + 127) / 255;
+            green = (brighter[green] * alpha + 127) / 255;
+            blue = (brighter[blue] * alpha + 127) / 255;
+          } else {
+            red = brighter[red];
+            green = brighter[green];
+            blue = brighter[blue];
+          }
+          int grey = (77 * red + 150 * green + 29 * blue + 128) >> 8;
+          pixels[index + x] = (byte) grey;
+          histogram[grey]++;
+        }
+      }
+    }
+
+    // equalise the histogram, as per OpenCV's equalizeHist
+    int total = width * height;
+    int darkest = 0;
+    while (darkest < 255 && histogram[darkest] == 0)
+      darkest++;
+    int[] lookup = new int[256];
+    if (histogram[darkest] == total) {
+      Arrays.fill(lookup, darkest);
+    } else {
+      float lookupScale = 255f / (total - histogram[darkest]);
+      int sum = 0;
+      for (int i = darkest + 1; i < 256; i++) {
+        sum += histogram[i];
+        lookup[i] = Math.max(0, Math.min(255, (int) Math.rint(sum * lookupScale)));
+      }
+    }
+    for (int i = 0; i < total; i++)
+      pixels[i] = (byte) lookup[pixels[i] & 0xFF];
+
+    return greyImage;
+  }
+
   public static BufferedImage deepCopy(BufferedImage bi) {
     ColorModel cm = bi.getColorModel();
     boolean isAlphaPremultiplied = cm.isAlphaPremultiplied();
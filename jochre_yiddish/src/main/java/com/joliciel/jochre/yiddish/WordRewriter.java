@@ -0,0 +1,182 @@
+package com.joliciel.jochre.yiddish;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * An ordered list of rewrite rules applied to a word, each rule replacing all
+ * non-overlapping matches in the result of the previous rule, exactly as a
+ * sequence of calls to {@link String#replaceAll(String, String)} would, but
+ * without compiling or running a regular expression.<br>
+ * <br>
+ * Each rule is a literal string, optionally preceded by any character,
+ * optionally followed by a character satisfying a condition, and optionally
+ * anchored to the start or end of the word. The rule looks for its literal
+ * with {@link String#indexOf(String)}, so that rules which don't apply to a
+ * word, i.e. most of them, return the same word without allocating anything.
+ *
+ * @author Assaf Urieli
+ *
+ */
+public class WordRewriter {
+  /**
+   * Any character other than a line terminator, like the regex ".".
+   */
+  public static final IntPredicate ANY_CHAR = c -> !isLineTerminator(c);
+
+  private final List<Rule> rules = new ArrayList<>();
+
+  /**
+   * Replace all occurrences of a literal string, like
+   * <code>replaceAll("from", "to")</code>.
+   */
+  public WordRewriter replace(String from, String to) {
+    rules.add(new Rule(false, from, null, false, false, to));
+    return this;
+  }
+
+  /**
+   * Replace all occurrences of a literal string which don't start the word,
+   * like <code>replaceAll("(.)from", "$1to")</code>.
+   */
+  public WordRewriter replaceAfterAnyChar(String from, String to) {
+    rules.add(new Rule(true, from, null, false, false, to));
+    return this;
+  }
+
+  /**
+   * Replace a literal string at the end of the word, if it isn't the entire
+   * word, like <code>replaceAll("(.)from\\z", "$1to")</code>.
+   */
+  public WordRewriter replaceAfterAnyCharAtEnd(String from, String to) {
+    rules.add(new Rule(true, from, null, false, true, to));
+    return this;
+  }
+
+  /**
+   * Replace all occurrences of a literal string which are preceded and
+   * followed by any character, like
+   * <code>replaceAll("(.)from(.)", "$1to$2")</code>.
+   */
+  public WordRewriter replaceBetweenAnyChars(String from, String to) {
+    rules.add(new Rule(true, from, ANY_CHAR, false, false, to));
+    return this;
+  }
+
+  /**
+   * Replace all occurrences of a literal string followed by a character
+   * matching a condition, like <code>replaceAll("from([^x])", "to$1")</code>.
+   */
+  public WordRewriter replaceBefore(String from, IntPredicate next, String to) {
+    rules.add(new Rule(false, from, next, false, false, to));
+    return this;
+  }
+
+  /**
+   * Replace a literal string at the start of the word, followed by a character
+   * matching a condition, like <code>replaceAll("\\Afrom([^x])", "to$1")</code>.
+   */
+  public WordRewriter replaceAtStartBefore(String from, IntPredicate next, String to) {
+    rules.add(new Rule(false, from, next, true, false, to));
+    return this;
+  }
+
+  /**
+   * Replace a literal string at the start of the word.
+   */
+  public WordRewriter replaceAtStart(String from, String to) {
+    rules.add(new Rule(false, from, null, true, false, to));
+    return this;
+  }
+
+  /**
+   * Replace the word if it is exactly equal to a given string.
+   */
+  public WordRewriter replaceWord(String from, String to) {
+    rules.add(new Rule(false, from, null, true, true, to));
+    return this;
+  }
+
+  /**
+   * Apply all rules in order.
+   */
+  public String rewrite(String word) {
+    String result = word;
+    for (Rule rule : rules)
+      result = rule.apply(result);
+    return result;
+  }
+
+  private static boolean isLineTerminator(int c) {
+    return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+  }
+
+  private static final class Rule {
+    private final boolean anyBefore;
+    private final String literal;
+    private final IntPredicate next;
+    private final boolean atStart;
+    private final boolean atEnd;
+    private final String replacement;
+
+    private Rule(boolean anyBefore, String literal, IntPredicate next, boolean atStart, boolean atEnd,
+        String replacement) {
+      if (literal.length() == 0)
+        throw new IllegalArgumentException("Rewrite rule requires a non-empty string");
+      this.anyBefore = anyBefore;
+      this.literal = literal;
+      this.next = next;
+      this.atStart = atStart;
+      this.atEnd = atEnd;
+      this.replacement = replacement;
+    }
+
+    private String apply(String word) {
+      int length = word.length();
+      StringBuilder sb = null;
+      // the number of characters from the word already appended to sb
+      int copied = 0;
+      int literalIndex = word.indexOf(literal, anyBefore ? 1 : 0);
+      while (literalIndex >= 0) {
+        int start = anyBefore ? literalIndex - 1 : literalIndex;
+        if (atStart && start > 0)
+          break;
+
+        int end = literalIndex + literal.length();
+        boolean matched = !anyBefore || !isLineTerminator(word.charAt(start));
+        int nextEnd = end;
+        if (matched && next != null) {
+          if (end < length) {
+            int c = word.codePointAt(end);
+            matched = next.test(c);
+            nextEnd = end + Character.charCount(c);
+          } else {
+            matched = false;
+          }
+        }
+        if (matched && atEnd && nextEnd != length)
+          matched = false;
+
+        if (matched) {
+          if (sb == null)
+            sb = new StringBuilder(length + replacement.length());
+          sb.append(word, copied, start);
+          if (anyBefore)
+            sb.append(word.charAt(start));
+          sb.append(replacement);
+          sb.append(word, end, nextEnd);
+          copied = nextEnd;
+          // matches can't overlap, including the preceding character
+          literalIndex = word.indexOf(literal, anyBefore ? nextEnd + 1 : nextEnd);
+        } else {
+          literalIndex = word.indexOf(literal, literalIndex + 1);
+        }
+      }
+      if (sb == null)
+        return word;
+      sb.append(word, copied, length);
+      return sb.toString();
+    }
+  }
+}
@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.TreeSet;
+import java.util.function.IntPredicate;
 import java.util.regex.Pattern;
 
 import com.joliciel.jochre.lang.DefaultLinguistics;
@@ -17,6 +18,66 @@ public class YiddishLinguistics extends DefaultLinguistics {
   // notice no dash in the punctuation
   private static final String SPLITTER_PUNCTUATION = ":,.?!;*()[]{}<>—\\\"'«»|/%“„";
 
+  private static final IntPredicate NOT_DAGESH = c -> c != 'ּ';
+
+  /**
+   * The rules for standardising a word, in the order in which they are applied.
+   * Each rule is applied to the result of the previous one.
+   */
+  private static final WordRewriter STANDARDISER = new WordRewriter()
+      // double-character fixes
+      .replace("וו", "װ")
+      .replace("וי", "ױ")
+      .replace("ױִ", "ויִ")
+
+      // systematic replacements, including redundent melupm vov and khirik
+      // yud
+      .replace("װוּ", "װוּּ")
+      .replace("וּװ", "וּּװ")
+      .replace("וּי", "וּּי")
+      .replace("וּ", "ו")
+      .replace("עיִ", "עיִִ")
+      .replace("אַיִ", "אַיִִ")
+      .replace("אָיִ", "אָיִִ")
+      .replace("ויִ", "ויִִ")
+      .replace("וּיִ", "וּיִִ")
+      .replace("יִי", "יִִי")
+      .replace("ייִ", "ייִִ")
+      .replace("יִ", "י")
+      .replace("עֶ", "ע")
+      .replace("עֵ", "ע")
+      .replace("אֵ", "ע")
+      .replace("אֶ", "ע")
+      .replace("שׁ", "ש")
+      .replace("וֹ", "ו")
+      .replaceAtStartBefore("ת", NOT_DAGESH, "תּ")
+
+      // more double-character fixes
+      .replaceAfterAnyChar("יי", "ײ")
+      .replace("ייַ", "ײַ")
+      .replace("“", "\"")
+      .replace("''", "\"")
+      .replace(",,", "„")
+      .replaceAtStart("יי", "ייִ")
+
+      // silent
+      .replaceWord("װאו", "װוּ")
+      .replaceBefore("װאו", NOT_DAGESH, "װוּ")
+      .replace("ואװ", "וּװ")
+      .replace("װאױ", "װױ")
+      .replace("אַא", "אַ")
+
+      // silent ה
+      .replace("טהו", "טו")
+      .replace("טהאָ", "טאָ")
+
+      // apostrophes all over the place (except at the end)
+      .replaceBetweenAnyChars("'", "")
+
+      // adjectives with דיג instread of דיק
+      .replaceAfterAnyCharAtEnd("דיג", "דיק")
+      .replaceAfterAnyCharAtEnd("דיגן", "דיקן");
+
   @Override
   public boolean isLeftToRight() {
     return false;
@@ -24,61 +85,7 @@ public class YiddishLinguistics extends DefaultLinguistics {
 
   @Override
   public String standardiseWord(String originalWord) {
-    String word = originalWord;
-    // double-character fixes
-    word = word.replaceAll("וו", "װ");
-    word = word.replaceAll("וי", "ױ");
-    word = word.replaceAll("ױִ", "ויִ");
-
-    // systematic replacements, including redundent melupm vov and khirik
-    // yud
-    word = word.replaceAll("װוּ", "װוּּ");
-    word = word.replaceAll("וּװ", "וּּװ");
-    word = word.replaceAll("וּי", "וּּי");
-    word = word.replaceAll("וּ", "ו");
-    word = word.replaceAll("עיִ", "עיִִ");
-    word = word.replaceAll("אַיִ", "אַיִִ");
-    word = word.replaceAll("אָיִ", "אָיִִ");
-    word = word.replaceAll("ויִ", "ויִִ");
-    word = word.replaceAll("וּיִ", "וּיִִ");
-    word = word.replaceAll("יִי", "יִִי");
-    word = word.replaceAll("ייִ", "ייִִ");
-    word = word.replaceAll("יִ", "י");
-    word = word.replaceAll("עֶ", "ע");
-    word = word.replaceAll("עֵ", "ע");
-    word = word.replaceAll("אֵ", "ע");
-    word = word.replaceAll("אֶ", "ע");
-    word = word.replaceAll("שׁ", "ש");
-    word = word.replaceAll("וֹ", "ו");
-    word = word.replaceAll("\\Aת([^ּ])", "תּ$1");
-
-    // more double-character fixes
-    word = word.replaceAll("(.)יי", "$1ײ");
-    word = word.replaceAll("ייַ", "ײַ");
-    word = word.replaceAll("“", "\"");
-    word = word.replaceAll("''", "\"");
-    word = word.replaceAll(",,", "„");
-    if (word.startsWith("יי"))
-      word = "ייִ" + word.substring(2);
-
-    // silent
-    if (word.equals("װאו"))
-      word = "װוּ";
-    word = word.replaceAll("װאו([^ּ])", "װוּ$1");
-    word = word.replaceAll("ואװ", "וּװ");
-    word = word.replaceAll("װאױ", "װױ");
-    word = word.replaceAll("אַא", "אַ");
-
-    // silent ה
-    word = word.replaceAll("טהו", "טו");
-    word = word.replaceAll("טהאָ", "טאָ");
-
-    // apostrophes all over the place (except at the end)
-    word = word.replaceAll("(.)'(.)", "$1$2");
-
-    // adjectives with דיג instread of דיק
-    word = word.replaceAll("(.)דיג\\z", "$1דיק");
-    word = word.replaceAll("(.)דיגן\\z", "$1דיקן");
+    String word = STANDARDISER.rewrite(originalWord);
 
     // word = YiddishWordSplitter.getEndForm(word);
 
@@ -0,0 +1,82 @@
+package com.joliciel.jochre.yiddish;
+
+import java.util.regex.Pattern;
+
+/**
+ * The original regex-based implementation of
+ * {@link YiddishLinguistics#standardiseWord(String)}, kept as a reference for
+ * testing and benchmarking the compiled rules.
+ */
+class RegexYiddishStandardiser {
+  private static final Pattern NUMBER = Pattern.compile("\\d+");
+
+  static String standardiseWord(String originalWord) {
+    String word = originalWord;
+    // double-character fixes
+    word = word.replaceAll("וו", "װ");
+    word = word.replaceAll("וי", "ױ");
+    word = word.replaceAll("ױִ", "ויִ");
+
+    // systematic replacements, including redundent melupm vov and khirik
+    // yud
+    word = word.replaceAll("װוּ", "װוּּ");
+    word = word.replaceAll("וּװ", "וּּװ");
+    word = word.replaceAll("וּי", "וּּי");
+    word = word.replaceAll("וּ", "ו");
+    word = word.replaceAll("עיִ", "עיִִ");
+    word = word.replaceAll("אַיִ", "אַיִִ");
+    word = word.replaceAll("אָיִ", "אָיִִ");
+    word = word.replaceAll("ויִ", "ויִִ");
+    word = word.replaceAll("וּיִ", "וּיִִ");
+    word = word.replaceAll("יִי", "יִִי");
+    word = word.replaceAll("ייִ", "ייִִ");
+    word = word.replaceAll("יִ", "י");
+    word = word.replaceAll("עֶ", "ע");
+    word = word.replaceAll("עֵ", "ע");
+    word = word.replaceAll("אֵ", "ע");
+    word = word.replaceAll("אֶ", "ע");
+    word = word.replaceAll("שׁ", "ש");
+    word = word.replaceAll("וֹ", "ו");
+    word = word.replaceAll("\\Aת([^ּ])", "תּ$1");
+
+    // more double-character fixes
+    word = word.replaceAll("(.)יי", "$1ײ");
+    word = word.replaceAll("ייַ", "ײַ");
+    word = word.replaceAll("“", "\"");
+    word = word.replaceAll("''", "\"");
+    word = word.replaceAll(",,", "„");
+    if (word.startsWith("יי"))
+      word = "ייִ" + word.substring(2);
+
+    // silent
+    if (word.equals("װאו"))
+      word = "װוּ";
+    word = word.replaceAll("װאו([^ּ])", "װוּ$1");
+    word = word.replaceAll("ואװ", "וּװ");
+    word = word.replaceAll("װאױ", "װױ");
+    word = word.replaceAll("אַא", "אַ");
+
+    // silent ה
+    word = word.replaceAll("טהו", "טו");
+    word = word.replaceAll("טהאָ", "טאָ");
+
+    // apostrophes all over the place (except at the end)
+    word = word.replaceAll("(.)'(.)", "$1$2");
+
+    // adjectives with דיג instread of דיק
+    word = word.replaceAll("(.)דיג\\z", "$1דיק");
+    word = word.replaceAll("(.)דיגן\\z", "$1דיקן");
+
+    // word = YiddishWordSplitter.getEndForm(word);
+
+    if (NUMBER.matcher(word).matches()) {
+      // reverse numbers
+      char[] newWord = new char[word.length()];
+      for (int i = 0; i < word.length(); i++) {
+        newWord[i] = word.charAt(word.length() - i - 1);
+      }
+      word = new String(newWord);
+    }
+    return word;
+  }
+}
@@ -0,0 +1,47 @@
+package com.joliciel.jochre.yiddish;
+
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Compares the time taken to standardise all of the words in the Yiddish word
+ * lists by {@link YiddishLinguistics#standardiseWord(String)} and by the
+ * original regex-based implementation. Run from the jochre_yiddish directory,
+ * with an optional number of iterations as argument.
+ * 
+ * @author Assaf Urieli
+ *
+ */
+public class YiddishLinguisticsBenchmark {
+  public static void main(String[] args) throws Exception {
+    int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+    List<String> words = YiddishLinguisticsTest.readWords();
+    YiddishLinguistics linguistics = new YiddishLinguistics();
+
+    // warm up both implementations before measuring either
+    run(words, RegexYiddishStandardiser::standardiseWord, 2);
+    run(words, linguistics::standardiseWord, 2);
+
+    double regexTime = run(words, RegexYiddishStandardiser::standardiseWord, iterations);
+    double compiledTime = run(words, linguistics::standardiseWord, iterations);
+
+    System.out.println("Words: " + words.size() + ", iterations: " + iterations);
+    System.out.println(String.format("Regex:    %.1f ns/word", regexTime));
+    System.out.println(String.format("Compiled: %.1f ns/word", compiledTime));
+    System.out.println(String.format("Speed-up: %.1fx", regexTime / compiledTime));
+  }
+
+  private static double run(List<String> words, UnaryOperator<String> standardiser, int iterations) {
+    long totalLength = 0;
+    long startTime = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      for (String word : words)
+        totalLength += standardiser.apply(word).length();
+    }
+    long endTime = System.nanoTime();
+    // use the result so that the calls can't be optimised away
+    if (totalLength == 0)
+      System.out.println("No words");
+    return (double) (endTime - startTime) / ((long) iterations * words.size());
+  }
+}
@@ -0,0 +1,52 @@
+package com.joliciel.jochre.yiddish;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class YiddishLinguisticsTest {
+
+  /**
+   * Read all of the words in the Yiddish word lists, along with the same words
+   * with the ligatures split up, as they are often found in OCR output.
+   */
+  static List<String> readWords() throws IOException {
+    List<String> words = new ArrayList<>();
+    File[] files = new File("resources/lexicons").listFiles((dir, name) -> name.endsWith(".txt"));
+    Arrays.sort(files);
+    for (File file : files) {
+      for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+        if (line.startsWith("#"))
+          continue;
+        for (String word : line.split("[\\s,]+")) {
+          if (word.length() == 0)
+            continue;
+          words.add(word);
+          String split = word.replace("װ", "וו").replace("ױ", "וי").replace("ײ", "יי");
+          if (!split.equals(word))
+            words.add(split);
+        }
+      }
+    }
+    return words;
+  }
+
+  @Test
+  public void testStandardiseWordAsRegex() throws IOException {
+    YiddishLinguistics linguistics = new YiddishLinguistics();
+    List<String> words = readWords();
+    words.addAll(Arrays.asList("", "ת", "תא", "תּא", "א'ב'ג", "א'", "'א", "דיג", "אדיג", "אדיגן", "װאו", "װאוּ", "װאוא", "יי",
+        "ייא", "אייי", "אָ,,ב", "א“ב", "12345", "א\n'ב"));
+    for (String word : words) {
+      assertEquals(word, RegexYiddishStandardiser.standardiseWord(word), linguistics.standardiseWord(word));
+    }
+  }
+}